@@ -14,7 +14,20 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableScheduling  // 启用定时任务调度功能
 public class DingdingDemoApplication {
 
+    /**
+     * 旧版OAPI每个主机保持的默认最大空闲Keep-Alive连接数，与同步线程数相当
+     */
+    private static final String DEFAULT_HTTP_MAX_CONNECTIONS = "50";
+
     public static void main(String[] args) {
+        // HttpURLConnection连接池参数是JVM级的，只在首次建立连接前读取，需在容器启动前设置；
+        // 已通过-Dhttp.keepAlive/-Dhttp.maxConnections显式指定时保持不变
+        if (System.getProperty("http.keepAlive") == null) {
+            System.setProperty("http.keepAlive", "true");
+        }
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", DEFAULT_HTTP_MAX_CONNECTIONS);
+        }
         SpringApplication.run(DingdingDemoApplication.class, args);
         System.out.println("钉钉Demo启动成功！");
     }
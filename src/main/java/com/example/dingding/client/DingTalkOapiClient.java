@@ -0,0 +1,70 @@
+package com.example.dingding.client;
+
+import com.dingtalk.api.DefaultDingTalkClient;
+import com.example.dingding.config.DingdingConfig;
+import com.taobao.api.ApiException;
+import com.taobao.api.TaobaoRequest;
+import com.taobao.api.TaobaoResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 钉钉旧版OAPI（oapi.dingtalk.com）共享客户端
+ * 每个接口地址只创建一个DefaultDingTalkClient并复用，统一应用配置的连接/读取超时；
+ * SDK底层基于HttpURLConnection，连接复用依赖JVM的Keep-Alive连接池，
+ * 池大小由http.maxConnections决定，在{@link com.example.dingding.DingdingDemoApplication#main}中于容器启动前设置
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class DingTalkOapiClient {
+
+    @Autowired
+    private DingdingConfig dingdingConfig;
+
+    private final ConcurrentMap<String, DefaultDingTalkClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * 调用需要access_token的OAPI接口
+     *
+     * @param path        接口路径（相对于baseUrl）
+     * @param request     请求
+     * @param accessToken 访问令牌，为null时不携带
+     * @param <T>         响应类型
+     * @return 响应
+     * @throws ApiException 调用失败
+     */
+    public <T extends TaobaoResponse> T execute(String path, TaobaoRequest<T> request, String accessToken) throws ApiException {
+        DefaultDingTalkClient client = getClient(path);
+        return accessToken == null ? client.execute(request) : client.execute(request, accessToken);
+    }
+
+    /**
+     * 调用不需要access_token的OAPI接口（如获取token）
+     *
+     * @param path    接口路径（相对于baseUrl）
+     * @param request 请求
+     * @param <T>     响应类型
+     * @return 响应
+     * @throws ApiException 调用失败
+     */
+    public <T extends TaobaoResponse> T execute(String path, TaobaoRequest<T> request) throws ApiException {
+        return execute(path, request, null);
+    }
+
+    private DefaultDingTalkClient getClient(String path) {
+        return clients.computeIfAbsent(path, key -> {
+            DingdingConfig.Api api = dingdingConfig.getApi();
+            DefaultDingTalkClient client = new DefaultDingTalkClient(api.getBaseUrl() + key);
+            client.setConnectTimeout(api.getConnectTimeout());
+            client.setReadTimeout(api.getReadTimeout());
+            return client;
+        });
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.dingding.client;
+
+import com.dingtalk.api.request.OapiGettokenRequest;
+import com.dingtalk.api.response.OapiGettokenResponse;
+import com.example.dingding.config.DingdingConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 钉钉access_token管理器
+ * 进程内缓存一份token，未过期时直接返回，不访问Redis；
+ * 过期或即将过期时只有一个线程负责刷新（其余线程等待结果），
+ * 刷新前先读Redis，其他节点已刷新过的token直接复用；
+ * 后台定时任务在到期前主动刷新，业务调用不会碰到过期等待
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class DingTalkTokenManager {
+
+    public static final String TOKEN_CACHE_KEY = "dingding:token:access_token_oajy";
+
+    @Autowired
+    private DingdingConfig dingdingConfig;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private DingTalkOapiClient oapiClient;
+
+    private final Object refreshLock = new Object();
+
+    private volatile CachedToken cachedToken;
+
+    /**
+     * 获取有效的access_token
+     *
+     * @return access_token，获取失败时返回null
+     */
+    public String getAccessToken() {
+        CachedToken current = cachedToken;
+        if (current != null && current.isValid()) {
+            return current.token;
+        }
+        return refresh(false);
+    }
+
+    /**
+     * 定时检查，token剩余有效期不足时提前刷新
+     */
+    @Scheduled(fixedDelayString = "${dingding.token.refresh-check-interval:60000}")
+    public void refreshIfExpiring() {
+        CachedToken current = cachedToken;
+        if (current == null || current.expiresWithin(refreshAheadMillis())) {
+            refresh(true);
+        }
+    }
+
+    /**
+     * 单飞刷新：持锁后再次检查，保证同一时刻只有一个线程调用Redis/钉钉
+     *
+     * @param proactive 是否为到期前的主动刷新
+     * @return access_token，获取失败时返回null
+     */
+    private String refresh(boolean proactive) {
+        synchronized (refreshLock) {
+            CachedToken current = cachedToken;
+            long threshold = proactive ? refreshAheadMillis() : 0L;
+            if (current != null && !current.expiresWithin(threshold)) {
+                return current.token;
+            }
+
+            try {
+                // 其他节点已刷新的token直接复用
+                CachedToken shared = loadFromRedis();
+                if (shared != null && !shared.expiresWithin(threshold)) {
+                    cachedToken = shared;
+                    return shared.token;
+                }
+
+                CachedToken fresh = fetchFromDingTalk();
+                if (fresh != null) {
+                    cachedToken = fresh;
+                    return fresh.token;
+                }
+            } catch (Exception e) {
+                log.error("刷新access_token时发生异常", e);
+            }
+
+            // 主动刷新失败时，未过期的旧token仍可继续使用
+            return current != null && current.isValid() ? current.token : null;
+        }
+    }
+
+    private CachedToken loadFromRedis() {
+        String token = (String) redisTemplate.opsForValue().get(TOKEN_CACHE_KEY);
+        if (!StringUtils.hasText(token)) {
+            return null;
+        }
+        Long ttlMillis = redisTemplate.getExpire(TOKEN_CACHE_KEY, TimeUnit.MILLISECONDS);
+        if (ttlMillis == null || ttlMillis <= 0) {
+            return null;
+        }
+        log.debug("从Redis获取到access_token，剩余有效期{}秒", ttlMillis / 1000);
+        return new CachedToken(token, System.currentTimeMillis() + ttlMillis);
+    }
+
+    private CachedToken fetchFromDingTalk() throws Exception {
+        DingdingConfig.Token tokenConfig = dingdingConfig.getToken();
+        OapiGettokenRequest request = new OapiGettokenRequest();
+        request.setAppkey(dingdingConfig.getApp().getAppKey());
+        request.setAppsecret(dingdingConfig.getApp().getAppSecret());
+
+        int attempts = Math.max(1, tokenConfig.getRetryTimes());
+        for (int i = 1; i <= attempts; i++) {
+            OapiGettokenResponse response = oapiClient.execute(dingdingConfig.getApi().getTokenUrl(), request);
+            if (response.isSuccess() && response.getAccessToken() != null) {
+                long expireSeconds = tokenConfig.getCacheDuration();
+                redisTemplate.opsForValue().set(TOKEN_CACHE_KEY, response.getAccessToken(), expireSeconds, TimeUnit.SECONDS);
+                log.info("成功获取并缓存access_token，过期时间{}秒", expireSeconds);
+                return new CachedToken(response.getAccessToken(),
+                        System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expireSeconds));
+            }
+            log.error("获取access_token失败（第{}次）：{}", i, response.getErrmsg());
+        }
+        return null;
+    }
+
+    private long refreshAheadMillis() {
+        return TimeUnit.SECONDS.toMillis(dingdingConfig.getToken().getRefreshAheadSeconds());
+    }
+
+    /**
+     * 本地缓存的token及其过期时间
+     */
+    private static class CachedToken {
+        private final String token;
+        private final long expiresAtMillis;
+
+        private CachedToken(String token, long expiresAtMillis) {
+            this.token = token;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        private boolean isValid() {
+            return !expiresWithin(0L);
+        }
+
+        private boolean expiresWithin(long millis) {
+            return System.currentTimeMillis() + millis >= expiresAtMillis;
+        }
+    }
+}
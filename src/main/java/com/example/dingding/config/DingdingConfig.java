@@ -31,6 +31,21 @@ public class DingdingConfig {
      */
     private Token token;
 
+    /**
+     * 同步引擎配置
+     */
+    private Sync sync = new Sync();
+
+    /**
+     * 组织树配置
+     */
+    private Tree tree = new Tree();
+
+    /**
+     * 提案指标汇总配置
+     */
+    private Kpi kpi = new Kpi();
+
     @Data
     public static class App {
         /**
@@ -111,6 +126,12 @@ public class DingdingConfig {
          */
         private int readTimeout = 15000;
 
+        /**
+         * 新版SDK每个主机保持的最大空闲连接数（maxIdleConns）
+         * 旧版OAPI走JVM的HttpURLConnection连接池，其大小通过启动参数-Dhttp.maxConnections调整
+         */
+        private int maxConnections = 50;
+
         /**
          * API查询时间跨度限制（天）
          */
@@ -126,6 +147,11 @@ public class DingdingConfig {
          */
         private int maxTimeSplits = 50;
 
+        /**
+         * 钉钉接口QPS上限（令牌桶速率，所有同步线程共享）
+         */
+        private int qpsLimit = 20;
+
     }
     @Data
     public static class Token {
@@ -139,7 +165,101 @@ public class DingdingConfig {
          */
         private int retryTimes = 3;
 
+        /**
+         * 到期前多少秒开始后台主动刷新
+         */
+        private long refreshAheadSeconds = 300;
+
+        /**
+         * 后台检查token有效期的间隔（毫秒）
+         */
+        private long refreshCheckInterval = 60000;
+
+    }
+    @Data
+    public static class Sync {
+        /**
+         * 同步工作线程数
+         */
+        private int workerThreads = 8;
+
+        /**
+         * 工作队列容量，队列满时由提交线程直接执行（背压）
+         */
+        private int queueCapacity = 200;
+
+        /**
+         * 并发批处理（部门树抓取、人员信息补充）线程数，与同步单元线程池相互独立
+         */
+        private int mapThreads = 8;
+
+        /**
+         * 每完成多少个同步单元写一次进度到ding_sync_records
+         */
+        private int progressReportInterval = 50;
+
+        /**
+         * 流程详情获取线程数（流水线第二阶段）
+         */
+        private int detailThreads = 4;
+
+        /**
+         * 流水线各阶段之间的队列容量
+         */
+        private int pipelineQueueCapacity = 500;
+
+        /**
+         * 流程详情批量写库条数
+         */
+        private int persistBatchSize = 50;
+
+        /**
+         * 没有检查点且未指定开始时间时，首次同步回溯的天数
+         */
+        private int initialLookbackDays = 365;
+
+        /**
+         * 部门抓取（子部门列表、人员信息）失败时的重试次数
+         */
+        private int enrichRetryTimes = 2;
+
+        /**
+         * 部门抓取重试的退避基数（毫秒），第n次重试前等待n倍
+         */
+        private long retryBackoffMillis = 500;
+
+    }
+
+    @Data
+    public static class Tree {
+        /**
+         * 历史日期组织树的缓存个数（LRU淘汰）
+         */
+        private int asOfCacheSize = 24;
+
     }
 
+    @Data
+    public static class Kpi {
+        /**
+         * 标记提案已采纳的表单组件名称
+         */
+        private String adoptionComponentName = "是否采纳";
+
+        /**
+         * 表示已采纳的组件值
+         */
+        private String adoptionValue = "是";
+
+        /**
+         * 采纳后应结案的天数，超过即计为超期
+         */
+        private int closeWithinDays = 30;
 
-}
\ No newline at end of file
+        /**
+         * 每日定时重算最近多少天的汇总（超期状态随时间变化）
+         */
+        private int recentRefreshDays = 31;
+
+    }
+}
@@ -24,5 +24,36 @@ public class JyOaConstants {
     public static final String DEPT_USER_IDS = "jyoa:deptuserids:";
 
     public static final String PARTICIPANTS_CNT = "jyoa:participants:cnt:";
+
+    /**
+     * 计算参与人数时的临时合并集合，计算完成后删除
+     */
+    public static final String PARTICIPANTS_SET = "jyoa:participants:set:";
+
     public static final String EMPLOYEE_TITLE = "jyoa:title";
+
+    /**
+     * 部门统计表版本号，统计表每次写入提交后递增，各实例据此判断树形结构缓存是否过期
+     */
+    public static final String DEPT_GROUP_VERSION = "jyoa:deptgroup:version";
+
+    /**
+     * 部门统计表重新生成锁，跨实例互斥影子表重建和增量更新，值为持有者令牌
+     */
+    public static final String DEPT_GROUP_REGENERATE_LOCK = "jyoa:deptgroup:regenerate:lock";
+
+    /**
+     * 当前组织树版本号，部门同步提交后递增，各实例据此判断组织树索引是否过期
+     */
+    public static final String ORG_TREE_VERSION = "jyoa:orgtree:version";
+
+    /**
+     * 待重算提案指标的日期集合（yyyy-MM-dd），重启后仍保留
+     */
+    public static final String KPI_DIRTY_DAYS = "jyoa:kpi:dirtydays";
+
+    /**
+     * 正在重算的日期集合，重算提交后删除，失败或中途退出时留待下次继续
+     */
+    public static final String KPI_DIRTY_DAYS_PROCESSING = "jyoa:kpi:dirtydays:processing";
 }
@@ -1,14 +1,19 @@
 package com.example.dingding.controller;
 
+import com.example.dingding.dto.ExcelImportResultDTO;
 import com.example.dingding.entity.DepartmentGroup;
 import com.example.dingding.service.DepartmentGroupService;
+import com.example.dingding.tree.DepartmentGroupTree;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -58,13 +63,20 @@ public class DepartmentGroupController {
 
     /**
      * 获取树形结构数据
+     * 返回缓存的JSON并携带ETag，请求头If-None-Match与之相同时返回304
      */
     @GetMapping("/tree")
-    public ResponseEntity<List<Map<String, Object>>> getTreeStructure() {
+    public ResponseEntity<byte[]> getTreeStructure(WebRequest webRequest) {
         try {
-            List<Map<String, Object>> treeStructure = departmentGroupService.getTreeStructure();
-            log.info("获取到树形结构数据，共 {} 个根节点", treeStructure.size());
-            return ResponseEntity.ok(treeStructure);
+            DepartmentGroupTree tree = departmentGroupService.getTreeSnapshot();
+            if (webRequest.checkNotModified(tree.getEtag())) {
+                return null;
+            }
+            log.debug("返回树形结构数据，共 {} 个根节点", tree.getRoots().size());
+            return ResponseEntity.ok()
+                    .eTag(tree.getEtag())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(tree.getJson());
 
         } catch (Exception e) {
             log.error("获取树形结构数据失败", e);
@@ -73,28 +85,35 @@ public class DepartmentGroupController {
     }
 
     /**
-     * 从Excel文件更新部门简称
+     * 上传Excel文件更新部门简称（multipart，字段名file）
      */
-    @PutMapping("/updateShortName")
-    public ResponseEntity<Map<String, Object>> updateShortNameFromExcel(@RequestParam("filePath") String filePath) {
+    @PutMapping(value = "/updateShortName", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> updateShortNameFromExcel(@RequestParam("file") MultipartFile file) {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            if (filePath == null || filePath.trim().isEmpty()) {
+            if (file == null || file.isEmpty()) {
                 result.put("success", false);
-                result.put("message", "文件路径不能为空");
+                result.put("message", "上传文件不能为空");
                 return ResponseEntity.badRequest().body(result);
             }
 
-            log.info("接收到从Excel文件更新部门简称的请求，文件路径：{}", filePath);
+            log.info("接收到从Excel文件更新部门简称的请求，文件：{}，大小：{}字节", file.getOriginalFilename(), file.getSize());
 
-            int updateCount = departmentGroupService.updateShortNameFromExcel(filePath);
+            ExcelImportResultDTO importResult;
+            try (InputStream inputStream = file.getInputStream()) {
+                importResult = departmentGroupService.updateShortNameFromExcel(inputStream);
+            }
 
-            result.put("success", true);
-            result.put("message", "部门简称更新成功");
-            result.put("count", updateCount);
+            result.put("success", importResult.getErrorCount() == 0);
+            result.put("message", importResult.getErrorCount() == 0 ? "部门简称更新成功" : "部门简称部分更新，存在错误行");
+            result.put("count", importResult.getAffectedRecords());
+            result.put("totalRows", importResult.getTotalRows());
+            result.put("importedRows", importResult.getImportedRows());
+            result.put("errorCount", importResult.getErrorCount());
+            result.put("errors", importResult.getErrors());
 
-            log.info("成功更新 {} 条部门简称记录", updateCount);
+            log.info("成功更新 {} 条部门简称记录", importResult.getAffectedRecords());
             return ResponseEntity.ok(result);
 
         } catch (Exception e) {
@@ -6,6 +6,8 @@ import com.example.dingding.entity.DepartmentSCD2;
 import com.example.dingding.job.DepartmentSyncJob;
 import com.example.dingding.service.IDepartmentSCD2Service;
 import com.example.dingding.service.DingTalkOAService;
+import com.example.dingding.service.IOrgTreeService;
+import com.example.dingding.tree.OrgTree;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -39,6 +41,9 @@ public class DepartmentSyncController {
     @Autowired
     private IDepartmentSCD2Service departmentSCD2Service;
 
+    @Autowired
+    private IOrgTreeService orgTreeService;
+
     /**
      * 手动触发部门同步
      */
@@ -97,6 +102,39 @@ public class DepartmentSyncController {
     }
 
     
+    /**
+     * 获取指定日期的组织树
+     *
+     * @param asOf 查询日期，不传时为当天
+     */
+    @GetMapping("/tree")
+    public ResponseEntity<Map<String, Object>> getTreeAsOf(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate asOf) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            LocalDate date = asOf != null ? asOf : LocalDate.now();
+            OrgTree tree = orgTreeService.getTreeAsOf(date);
+
+            response.put("success", true);
+            response.put("asOf", date);
+            response.put("departmentCount", tree.size());
+            response.put("tree", tree.toTreeNodes());
+            response.put("timestamp", LocalDateTime.now());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("获取组织树失败", e);
+
+            response.put("success", false);
+            response.put("message", "获取组织树失败: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now());
+
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
     /**
      * 获取部门的历史版本信息
      */
@@ -33,6 +33,7 @@ public class DingTalkController {
      * 同步OA表单实例数据
      * 从部门SCD2表获取部门信息，实时从API获取用户数据
      *
+     * @param startTime 开始时间，不传时从同步检查点继续
      * @return 同步结果
      */
     @PostMapping("/sync/oaLSS")
@@ -44,16 +45,15 @@ public class DingTalkController {
         try {
             log.info("收到同步OA数据的请求");
 
-            // 如果没有指定开始时间，使用默认时间（30天前）
-            LocalDateTime syncTime = startTime != null ? startTime : LocalDateTime.now();
+            // 未指定开始时间时由服务端从同步检查点继续
             long start = System.currentTimeMillis();
-            dingTalkOAService.syncOALSS(syncTime);
+            dingTalkOAService.syncOALSS(startTime);
             long end = System.currentTimeMillis();
             long costTime = end - start;
 
             result.put("success", true);
             result.put("message", "OA数据同步完成");
-            result.put("syncStartTime", syncTime);
+            result.put("syncStartTime", startTime != null ? startTime : "checkpoint");
             result.put("costTime", costTime + "ms");
 
             log.info("OA数据同步完成，耗时{}ms", costTime);
@@ -69,6 +69,37 @@ public class DingTalkController {
         }
     }
 
+    /**
+     * 刷新未结束的OA流程实例（状态、结果、完成时间和新增操作记录）
+     *
+     * @return 刷新结果
+     */
+    @PostMapping("/sync/oaLSS/refresh")
+    public ResponseEntity<Map<String, Object>> refreshRunningInstances() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            log.info("收到刷新未结束流程实例的请求");
+
+            long start = System.currentTimeMillis();
+            dingTalkOAService.refreshRunningInstances();
+            long costTime = System.currentTimeMillis() - start;
+
+            result.put("success", true);
+            result.put("message", "流程实例刷新完成");
+            result.put("costTime", costTime + "ms");
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            log.error("刷新流程实例时发生异常", e);
+
+            result.put("success", false);
+            result.put("message", "刷新失败：" + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(result);
+        }
+    }
+
     /**
      * 每天同步没有更新职位信息的提案流程
      */
@@ -0,0 +1,76 @@
+package com.example.dingding.controller;
+
+import com.example.dingding.service.ProcessInstanceExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 数据导出控制器
+ * 导出内容边查询边写入响应流，不在内存中组装完整文件
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private static final MediaType XLSX_MEDIA_TYPE =
+            MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    @Autowired
+    private ProcessInstanceExportService processInstanceExportService;
+
+    /**
+     * 导出流程实例及表单组件值
+     *
+     * @param format      导出格式（csv/xlsx），默认csv
+     * @param startTime   创建时间下限（含）
+     * @param endTime     创建时间上限（不含）
+     * @param processCode 流程模板ID，不传时导出全部表单
+     * @return 文件流
+     */
+    @GetMapping("/process-instances")
+    public ResponseEntity<StreamingResponseBody> exportProcessInstances(
+            @RequestParam(defaultValue = ProcessInstanceExportService.FORMAT_CSV) String format,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime,
+            @RequestParam(required = false) String processCode) {
+        if (!ProcessInstanceExportService.isSupportedFormat(format) || !startTime.isBefore(endTime)) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("收到流程实例导出请求 - 格式: {}, 时间: {} ~ {}, 表单: {}", format, startTime, endTime, processCode);
+
+        String fileName = String.format("process_instances_%s_%s.%s",
+                startTime.format(DateTimeFormatter.BASIC_ISO_DATE), endTime.format(DateTimeFormatter.BASIC_ISO_DATE), format);
+        StreamingResponseBody body = outputStream -> {
+            try {
+                processInstanceExportService.export(format, startTime, endTime, processCode, outputStream);
+            } catch (Exception e) {
+                // 响应头已发出，只能中断输出
+                log.error("导出流程实例失败", e);
+                throw e;
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString())
+                .contentType(ProcessInstanceExportService.FORMAT_XLSX.equals(format)
+                        ? XLSX_MEDIA_TYPE
+                        : new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.dingding.controller;
+
+import com.example.dingding.entity.ProposalKpiRollup;
+import com.example.dingding.service.IProposalKpiService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 提案指标控制器
+ * 指标看板从预先汇总的表中按索引读取，参与率等比率由前端用汇总值计算
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/kpi")
+public class ProposalKpiController {
+
+    @Autowired
+    private IProposalKpiService proposalKpiService;
+
+    /**
+     * 查询提案指标汇总
+     *
+     * @param periodType    统计周期（DAY/MONTH），默认MONTH
+     * @param from          周期开始日期下限（含）
+     * @param to            周期开始日期上限（含）
+     * @param parentGroupId 父分组ID，指定时只返回其直接下级分组（用于排名）
+     * @return 汇总行
+     */
+    @GetMapping("/rollups")
+    public ResponseEntity<Map<String, Object>> listRollups(
+            @RequestParam(defaultValue = ProposalKpiRollup.PERIOD_MONTH) String periodType,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long parentGroupId) {
+        Map<String, Object> result = new HashMap<>();
+
+        if (!ProposalKpiRollup.PERIOD_DAY.equals(periodType) && !ProposalKpiRollup.PERIOD_MONTH.equals(periodType)) {
+            result.put("success", false);
+            result.put("message", "不支持的统计周期：" + periodType);
+            return ResponseEntity.badRequest().body(result);
+        }
+
+        try {
+            List<ProposalKpiRollup> rollups = proposalKpiService.listRollups(periodType, from, to, parentGroupId);
+            result.put("success", true);
+            result.put("data", rollups);
+            result.put("count", rollups.size());
+            result.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            log.error("查询提案指标汇总失败", e);
+
+            result.put("success", false);
+            result.put("message", "查询失败：" + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(result);
+        }
+    }
+
+    /**
+     * 重算日期区间内的提案指标汇总（首次回填或部门统计分组重建后使用）
+     *
+     * @param from 开始日期（含）
+     * @param to   结束日期（含）
+     * @return 重算结果
+     */
+    @PostMapping("/rollups/refresh")
+    public ResponseEntity<Map<String, Object>> refreshRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            log.info("收到提案指标汇总重算请求: {} ~ {}", from, to);
+
+            long start = System.currentTimeMillis();
+            int rows = proposalKpiService.refreshRange(from, to);
+
+            result.put("success", true);
+            result.put("message", "提案指标汇总重算完成");
+            result.put("count", rows);
+            result.put("costTime", (System.currentTimeMillis() - start) + "ms");
+            return ResponseEntity.ok(result);
+
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+
+        } catch (Exception e) {
+            log.error("重算提案指标汇总失败", e);
+
+            result.put("success", false);
+            result.put("message", "重算失败：" + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(result);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.dingding.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 部门统计分组树节点
+ * 不可变对象，构建后可被缓存并在多个请求间共享
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Getter
+public class DepartmentGroupTreeNodeDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 分组ID
+     */
+    private final Long groupId;
+
+    /**
+     * 部门ID
+     */
+    private final Long deptId;
+
+    /**
+     * 分组名称
+     */
+    private final String groupName;
+
+    /**
+     * 分组类型（REGION/DEPARTMENT/null）
+     */
+    private final String groupType;
+
+    /**
+     * 父分组ID
+     */
+    private final Long parentGroupId;
+
+    /**
+     * 子节点
+     */
+    private final List<DepartmentGroupTreeNodeDTO> children;
+
+    public DepartmentGroupTreeNodeDTO(Long groupId, Long deptId, String groupName, String groupType,
+                                      Long parentGroupId, List<DepartmentGroupTreeNodeDTO> children) {
+        this.groupId = groupId;
+        this.deptId = deptId;
+        this.groupName = groupName;
+        this.groupType = groupType;
+        this.parentGroupId = parentGroupId;
+        this.children = Collections.unmodifiableList(children);
+    }
+
+    /**
+     * 是否为根节点
+     */
+    @JsonProperty("isRoot")
+    public boolean isRoot() {
+        return parentGroupId == null;
+    }
+
+    /**
+     * 前端组件使用的显示名称
+     */
+    public String getLabel() {
+        return groupName;
+    }
+
+    /**
+     * 前端组件使用的取值
+     */
+    public Long getValue() {
+        return groupId;
+    }
+}
@@ -5,6 +5,8 @@ import lombok.experimental.Accessors;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 部门同步结果DTO
@@ -54,6 +56,11 @@ public class DepartmentSyncResultDTO implements Serializable {
      */
     private Integer failedCount = 0;
 
+    /**
+     * 新增、变更和删除的部门ID
+     */
+    private List<Long> changedDeptIds = new ArrayList<>();
+
     /**
      * 错误信息
      */
@@ -0,0 +1,46 @@
+package com.example.dingding.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 组织树节点传输对象
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Data
+@Accessors(chain = true)
+public class DepartmentTreeNodeDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 部门ID
+     */
+    private Long deptId;
+
+    /**
+     * 父部门ID
+     */
+    private Long parentId;
+
+    /**
+     * 部门名称
+     */
+    private String name;
+
+    /**
+     * 部门下的员工数量
+     */
+    private Integer num;
+
+    /**
+     * 子部门
+     */
+    private List<DepartmentTreeNodeDTO> children = new ArrayList<>();
+}
@@ -0,0 +1,83 @@
+package com.example.dingding.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Excel导入结果DTO
+ * 记录读取、写入的行数和行级错误（错误明细最多保留 {@link #MAX_REPORTED_ERRORS} 条，计数不受限制）
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Data
+public class ExcelImportResultDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int MAX_REPORTED_ERRORS = 200;
+
+    /**
+     * 读取的数据行数（不含表头）
+     */
+    private int totalRows;
+
+    /**
+     * 成功写入的行数
+     */
+    private int importedRows;
+
+    /**
+     * 出错的行数
+     */
+    private int errorCount;
+
+    /**
+     * 写入数据库影响的记录数
+     */
+    private int affectedRecords;
+
+    /**
+     * 行级错误明细
+     */
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * 记录一行错误
+     *
+     * @param rowNumber Excel中的行号（从1开始）
+     * @param message   错误信息
+     */
+    public void addError(int rowNumber, String message) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(rowNumber, message));
+        }
+    }
+
+    /**
+     * 行级错误
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Excel中的行号（从1开始）
+         */
+        private int rowNumber;
+
+        /**
+         * 错误信息
+         */
+        private String message;
+    }
+}
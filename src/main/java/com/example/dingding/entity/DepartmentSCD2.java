@@ -7,6 +7,7 @@ import lombok.EqualsAndHashCode;
 import lombok.experimental.Accessors;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -55,6 +56,12 @@ public class DepartmentSCD2 implements Serializable {
     @TableField("num")
     private Integer num;
 
+    /**
+     * 跟踪属性（父部门、名称、人数）的内容哈希，用于变更检测
+     */
+    @TableField("row_hash")
+    private Long rowHash;
+
     /**
      * 版本生效日期
      */
@@ -112,6 +119,7 @@ public class DepartmentSCD2 implements Serializable {
         dept.setParentId(parentId);
         dept.setName(name);
         dept.setNum(num);
+        dept.setRowHash(computeRowHash(parentId, name, num));
         dept.setValidFrom(effectiveDate);
         // 使用一个足够远的未来日期表示永久有效
         dept.setValidTo(LocalDate.of(9999, 12, 31));
@@ -119,6 +127,32 @@ public class DepartmentSCD2 implements Serializable {
         return dept;
     }
 
+    /**
+     * 计算跟踪属性的内容哈希（64位FNV-1a）
+     * 名称去除前后空格后参与计算；新增跟踪属性时在此追加即可
+     *
+     * @param parentId 父部门ID
+     * @param name     部门名称
+     * @param num      部门人数
+     * @return 内容哈希
+     */
+    public static long computeRowHash(Long parentId, String name, Integer num) {
+        String content = parentId + "\u0001" + (name == null ? "" : name.trim()) + "\u0001" + num;
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : content.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * 便利方法：获取内容哈希，历史数据未写入哈希时按当前属性计算
+     */
+    public long effectiveRowHash() {
+        return rowHash != null ? rowHash : computeRowHash(parentId, name, num);
+    }
+
     /**
      * 便利方法：关闭当前版本
      */
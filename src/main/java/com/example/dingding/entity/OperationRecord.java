@@ -84,6 +84,12 @@ public class OperationRecord {
     @TableField("task_id")
     private Long taskId;
 
+    /**
+     * 环节耗时（秒）：到本实例下一个更晚操作的时间差，最后一个操作为空
+     */
+    @TableField("duration_seconds")
+    private Long durationSeconds;
+
     /**
      * 创建时间
      */
@@ -0,0 +1,101 @@
+package com.example.dingding.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 提案事实实体类
+ * 每个流程实例一行，入库时把关键表单字段解析为强类型列，
+ * 统计查询直接在索引列上聚合，不再对表单组件值表做字符串匹配和类型转换
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("ding_proposal_facts")
+public class ProposalFact {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 流程实例ID
+     */
+    @TableField("process_instance_id")
+    private String processInstanceId;
+
+    /**
+     * 流程模板ID
+     */
+    @TableField("process_code")
+    private String processCode;
+
+    /**
+     * 发起人用户ID
+     */
+    @TableField("originator_userid")
+    private String originatorUserid;
+
+    /**
+     * 流程创建时间（冗余自流程实例，用于按时间范围聚合）
+     */
+    @TableField("create_time")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createTime;
+
+    /**
+     * 预计产生经济效益（元）
+     */
+    @TableField("economic_benefit")
+    private BigDecimal economicBenefit;
+
+    /**
+     * 改善等级选项编码
+     */
+    @TableField("improvement_level_code")
+    private String improvementLevelCode;
+
+    /**
+     * 改善等级
+     */
+    @TableField("improvement_level")
+    private String improvementLevel;
+
+    /**
+     * 提案类别选项编码
+     */
+    @TableField("proposal_category_code")
+    private String proposalCategoryCode;
+
+    /**
+     * 提案类别
+     */
+    @TableField("proposal_category")
+    private String proposalCategory;
+
+    /**
+     * 申报日期
+     */
+    @TableField("declared_date")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate declaredDate;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "created_at", fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+}
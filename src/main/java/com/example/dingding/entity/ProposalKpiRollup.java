@@ -0,0 +1,127 @@
+package com.example.dingding.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 提案指标汇总实体类
+ * 按 (统计周期, 周期开始日期, 分组) 预先汇总的提案指标，分组对应 dim_department_group_jy 中的节点，
+ * 数值包含该分组及其全部下级分组；指标看板直接按索引读取，不再扫描流程实例表
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("ding_proposal_kpi_rollups")
+public class ProposalKpiRollup {
+
+    /**
+     * 日汇总
+     */
+    public static final String PERIOD_DAY = "DAY";
+
+    /**
+     * 月汇总
+     */
+    public static final String PERIOD_MONTH = "MONTH";
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 统计周期（DAY/MONTH）
+     */
+    @TableField("period_type")
+    private String periodType;
+
+    /**
+     * 周期开始日期（月汇总为当月1日）
+     */
+    @TableField("period_start")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate periodStart;
+
+    /**
+     * 分组ID
+     */
+    @TableField("group_id")
+    private Long groupId;
+
+    /**
+     * 父分组ID
+     */
+    @TableField("parent_group_id")
+    private Long parentGroupId;
+
+    /**
+     * 分组类型
+     */
+    @TableField("group_type")
+    private String groupType;
+
+    /**
+     * 分组名称
+     */
+    @TableField("group_name")
+    private String groupName;
+
+    /**
+     * 提案总数
+     */
+    @TableField("proposal_count")
+    private Integer proposalCount;
+
+    /**
+     * 提案人数（去重）
+     */
+    @TableField("proposer_count")
+    private Integer proposerCount;
+
+    /**
+     * 审批通过数
+     */
+    @TableField("passed_count")
+    private Integer passedCount;
+
+    /**
+     * 采纳数（立项数）
+     */
+    @TableField("adopted_count")
+    private Integer adoptedCount;
+
+    /**
+     * 采纳后按期结案数
+     */
+    @TableField("closed_in_time_count")
+    private Integer closedInTimeCount;
+
+    /**
+     * 采纳后超期数（已超期结案或超期未结案）
+     */
+    @TableField("overdue_count")
+    private Integer overdueCount;
+
+    /**
+     * 汇总时的分组员工数（来自部门参与人数缓存）
+     */
+    @TableField("employee_count")
+    private Integer employeeCount;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "created_at", fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+}
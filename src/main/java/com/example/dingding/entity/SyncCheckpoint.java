@@ -0,0 +1,62 @@
+package com.example.dingding.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 同步检查点实体类
+ * 记录每个 (表单, 部门) 已完整同步到的创建时间，增量同步从该时间继续；
+ * 部门成员变化后检查点失效，新成员的历史实例需从回溯起点重新同步
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("ding_sync_checkpoints")
+public class SyncCheckpoint {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 流程模板ID
+     */
+    @TableField("process_code")
+    private String processCode;
+
+    /**
+     * 发起人部门ID
+     */
+    @TableField("dept_id")
+    private Long deptId;
+
+    /**
+     * 已同步完成的创建时间上限（不含）
+     */
+    @TableField("last_create_time")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastCreateTime;
+
+    /**
+     * 推进检查点时的部门成员指纹（排序后用户ID的MD5）
+     */
+    @TableField("members_hash")
+    private String membersHash;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "created_at", fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+}
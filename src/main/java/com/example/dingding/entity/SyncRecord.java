@@ -22,7 +22,7 @@ public class SyncRecord {
     private Long id;
 
     /**
-     * 同步类型(INSTANCE_IDS/PROCESS_DETAILS)
+     * 同步类型(INSTANCE_IDS/PROCESS_DETAILS/PROCESS_REFRESH)
      */
     @TableField("sync_type")
     private String syncType;
@@ -0,0 +1,112 @@
+package com.example.dingding.excel;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.event.AnalysisEventListener;
+import com.example.dingding.dto.ExcelImportResultDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式Excel导入
+ * EasyExcel基于SAX逐行解析上传流，解析出的行攒满一批即交给处理器写库，
+ * 内存中最多保留一批数据；解析失败的行和写库失败的批次记录为行级错误，不中断后续导入
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+public final class ExcelImporter {
+
+    private ExcelImporter() {
+    }
+
+    /**
+     * 导入第一个工作表
+     *
+     * @param inputStream   Excel输入流（调用方负责关闭）
+     * @param headRowNumber 表头行数
+     * @param batchSize     每批写入行数
+     * @param handler       行处理器
+     * @param <T>           行对应的业务对象类型
+     * @return 导入结果
+     */
+    public static <T> ExcelImportResultDTO importFirstSheet(InputStream inputStream, int headRowNumber,
+                                                            int batchSize, ExcelRowHandler<T> handler) {
+        BatchingListener<T> listener = new BatchingListener<>(handler, Math.max(1, batchSize));
+        EasyExcel.read(inputStream, listener)
+                .autoCloseStream(false)
+                .sheet()
+                .headRowNumber(headRowNumber)
+                .doRead();
+        return listener.result;
+    }
+
+    /**
+     * 逐行解析并按批写入的监听器
+     */
+    private static final class BatchingListener<T> extends AnalysisEventListener<Map<Integer, String>> {
+        private final ExcelRowHandler<T> handler;
+        private final int batchSize;
+        private final List<T> batch;
+        private final List<Integer> batchRowNumbers;
+        private final ExcelImportResultDTO result = new ExcelImportResultDTO();
+
+        private BatchingListener(ExcelRowHandler<T> handler, int batchSize) {
+            this.handler = handler;
+            this.batchSize = batchSize;
+            this.batch = new ArrayList<>(batchSize);
+            this.batchRowNumbers = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void invoke(Map<Integer, String> data, AnalysisContext context) {
+            int rowNumber = context.readRowHolder().getRowIndex() + 1;
+            result.setTotalRows(result.getTotalRows() + 1);
+            T item;
+            try {
+                item = handler.parse(data);
+            } catch (IllegalArgumentException e) {
+                result.addError(rowNumber, e.getMessage());
+                return;
+            }
+            if (item == null) {
+                return;
+            }
+            batch.add(item);
+            batchRowNumbers.add(rowNumber);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void doAfterAllAnalysed(AnalysisContext context) {
+            flush();
+            log.info("Excel导入完成 - 数据行: {}, 写入: {}, 错误: {}, 影响记录: {}",
+                    result.getTotalRows(), result.getImportedRows(), result.getErrorCount(), result.getAffectedRecords());
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                result.setAffectedRecords(result.getAffectedRecords() + handler.write(batch));
+                result.setImportedRows(result.getImportedRows() + batch.size());
+            } catch (RuntimeException e) {
+                log.error("Excel导入批次写入失败，行号 {} ~ {}", batchRowNumbers.get(0),
+                        batchRowNumbers.get(batchRowNumbers.size() - 1), e);
+                for (Integer rowNumber : batchRowNumbers) {
+                    result.addError(rowNumber, "写入失败: " + e.getMessage());
+                }
+            }
+            batch.clear();
+            batchRowNumbers.clear();
+        }
+    }
+}
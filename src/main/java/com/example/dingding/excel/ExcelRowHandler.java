@@ -0,0 +1,31 @@
+package com.example.dingding.excel;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Excel导入行处理器
+ * 解析单行为业务对象，并按批写入数据库；具体的导入只需实现这两个方法
+ *
+ * @param <T> 行对应的业务对象类型
+ * @author system
+ * @version 1.0.0
+ */
+public interface ExcelRowHandler<T> {
+
+    /**
+     * 解析一行，数据不合法时抛出IllegalArgumentException（记为该行错误）
+     *
+     * @param row 列索引（从0开始） -> 单元格文本
+     * @return 业务对象，返回null表示忽略该行（如空行）
+     */
+    T parse(Map<Integer, String> row);
+
+    /**
+     * 写入一批数据
+     *
+     * @param batch 业务对象（批内顺序与Excel行顺序一致）
+     * @return 影响的记录数
+     */
+    int write(List<T> batch);
+}
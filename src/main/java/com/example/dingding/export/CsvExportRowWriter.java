@@ -0,0 +1,80 @@
+package com.example.dingding.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * CSV导出写入器（RFC 4180转义，UTF-8带BOM以便Excel直接打开中文）
+ * 以=、+、-、@、制表符或回车开头的单元格会被Excel当作公式执行，写出前加单引号前缀按文本处理；
+ * 纯数字（如负数金额）保持原样
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public class CsvExportRowWriter implements ExportRowWriter {
+
+    private static final Pattern NUMERIC = Pattern.compile("[+-]?\\d+(\\.\\d+)?");
+
+    private final Writer writer;
+
+    public CsvExportRowWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeHeader(List<String> headers) throws IOException {
+        writer.write('\uFEFF');
+        writeRow(headers);
+    }
+
+    @Override
+    public void writeRow(List<String> row) throws IOException {
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCell(row.get(i));
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeCell(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (isFormulaLike(value)) {
+            value = "'" + value;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * 是否会被电子表格当作公式解析（CSV公式注入）
+     */
+    static boolean isFormulaLike(String value) {
+        char first = value.charAt(0);
+        if (first != '=' && first != '+' && first != '-' && first != '@' && first != '\t' && first != '\r') {
+            return false;
+        }
+        return !NUMERIC.matcher(value).matches();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.dingding.export;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.metadata.WriteSheet;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Excel（xlsx）导出写入器
+ * EasyExcel底层使用SXSSF，只在内存中保留最近的行；这里再按块提交，避免逐行调用的开销
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public class ExcelExportRowWriter implements ExportRowWriter {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final OutputStream outputStream;
+
+    private final String sheetName;
+
+    private final List<List<String>> chunk = new ArrayList<>(CHUNK_SIZE);
+
+    private ExcelWriter excelWriter;
+
+    private WriteSheet writeSheet;
+
+    private boolean written;
+
+    public ExcelExportRowWriter(OutputStream outputStream, String sheetName) {
+        this.outputStream = outputStream;
+        this.sheetName = sheetName;
+    }
+
+    @Override
+    public void writeHeader(List<String> headers) {
+        List<List<String>> head = new ArrayList<>(headers.size());
+        for (String header : headers) {
+            head.add(Collections.singletonList(header));
+        }
+        excelWriter = EasyExcel.write(outputStream).head(head).autoCloseStream(false).build();
+        writeSheet = EasyExcel.writerSheet(sheetName).build();
+    }
+
+    @Override
+    public void writeRow(List<String> row) {
+        chunk.add(row);
+        if (chunk.size() >= CHUNK_SIZE) {
+            flushChunk();
+        }
+    }
+
+    private void flushChunk() {
+        excelWriter.write(chunk, writeSheet);
+        chunk.clear();
+        written = true;
+    }
+
+    @Override
+    public void close() {
+        if (excelWriter == null) {
+            return;
+        }
+        // 没有数据行时也写一次，保证输出带表头的工作表
+        if (!chunk.isEmpty() || !written) {
+            flushChunk();
+        }
+        excelWriter.finish();
+    }
+}
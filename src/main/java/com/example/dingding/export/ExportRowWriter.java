@@ -0,0 +1,31 @@
+package com.example.dingding.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 导出行写入器
+ * 逐行写入输出流，实现类不得缓存全部数据；close时刷新缓冲但不关闭底层输出流
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public interface ExportRowWriter extends Closeable {
+
+    /**
+     * 写入表头（在所有数据行之前调用一次）
+     *
+     * @param headers 列名
+     * @throws IOException 写入失败
+     */
+    void writeHeader(List<String> headers) throws IOException;
+
+    /**
+     * 写入一行数据
+     *
+     * @param row 单元格值，与表头一一对应
+     * @throws IOException 写入失败
+     */
+    void writeRow(List<String> row) throws IOException;
+}
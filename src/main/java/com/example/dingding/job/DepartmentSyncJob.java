@@ -2,6 +2,7 @@ package com.example.dingding.job;
 
 import com.example.dingding.dto.DepartmentDTO;
 import com.example.dingding.dto.DepartmentSyncResultDTO;
+import com.example.dingding.service.DepartmentGroupService;
 import com.example.dingding.service.DingTalkOAService;
 import com.example.dingding.service.IDepartmentSCD2Service;
 import com.example.dingding.service.ISyncRecordService;
@@ -37,6 +38,9 @@ public class DepartmentSyncJob {
     @Autowired
     private ISyncRecordService syncRecordService;
 
+    @Autowired
+    private DepartmentGroupService departmentGroupService;
+
     /**
      * 定时执行部门全量同步
      * 每日02:00执行
@@ -88,11 +92,28 @@ public class DepartmentSyncJob {
                     syncRecord.setExtraData(extraData);
                     syncRecordService.updateById(syncRecord);
                 }
+
+                // 4. 按变化部门增量更新部门统计数据（无变化时跳过）
+                try {
+                    departmentGroupService.regenerateIncrementally(result);
+                } catch (Exception e) {
+                    log.error("部门统计数据增量更新失败", e);
+                }
             } else {
-                log.error("部门同步失败: {}", result.getErrorMessage());
+                log.error("部门同步失败: {}, 失败部门数: {}", result.getErrorMessage(), result.getFailedCount());
                 syncRecordService.failSync(syncRecord,
                     result.getTotalCount(),
-                    result.getErrorMessage());
+                    result.getErrorMessage() != null ? result.getErrorMessage()
+                            : String.format("%d个部门合并失败", result.getFailedCount()));
+
+                // 逐个合并时已成功提交的部门仍需更新统计数据
+                if (!result.getChangedDeptIds().isEmpty()) {
+                    try {
+                        departmentGroupService.regenerateIncrementally(result);
+                    } catch (Exception e) {
+                        log.error("部门统计数据增量更新失败", e);
+                    }
+                }
             }
 
         } catch (Exception e) {
@@ -0,0 +1,40 @@
+package com.example.dingding.job;
+
+import com.example.dingding.service.IProposalKpiService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 提案指标汇总定时作业
+ * 超期指标随时间变化（未结案的采纳提案到期后转为超期），同步流程登记的日期覆盖不到，
+ * 每日03:00重算最近一段时间的汇总
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dingding.job.proposal-kpi.enabled", havingValue = "true", matchIfMissing = true)
+public class ProposalKpiJob {
+
+    @Autowired
+    private IProposalKpiService proposalKpiService;
+
+    /**
+     * 重算最近一段时间的提案指标汇总
+     * cron表达式: 秒 分 时 日 月 周
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void refreshRecentRollups() {
+        log.info("=== 开始执行提案指标汇总作业 ===");
+        try {
+            int rows = proposalKpiService.refreshRecentPeriods();
+            log.info("提案指标汇总作业完成，写入{}行", rows);
+        } catch (Exception e) {
+            log.error("提案指标汇总作业执行异常", e);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.example.dingding.entity.DepartmentGroup;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -43,13 +44,49 @@ public interface DepartmentGroupMapper extends BaseMapper<DepartmentGroup> {
      */
     int batchInsert(@Param("groups") List<DepartmentGroup> groups);
 
+    /**
+     * 批量插入影子表dim_department_group_jy_shadow
+     *
+     * @param groups 部门统计分组列表
+     * @return 插入的记录数
+     */
+    int batchInsertShadow(@Param("groups") List<DepartmentGroup> groups);
+
+    /**
+     * 更新分组的类型、父分组、名称和人数，简称保持不变
+     *
+     * @param group 部门分组
+     * @return 更新的记录数
+     */
+    int updateGroupStructure(@Param("group") DepartmentGroup group);
+
+    /**
+     * 删除影子表（如存在）
+     */
+    void dropShadowTable();
+
+    /**
+     * 按正式表结构创建空的影子表
+     */
+    void createShadowTable();
+
+    /**
+     * 通过一条RENAME TABLE原子交换正式表和影子表，读请求不会看到空表或部分数据
+     */
+    void swapShadowTable();
+
+    /**
+     * 删除交换下来的旧表（如存在）
+     */
+    void dropOldTable();
+
     /**
      * 获取树形结构数据（扁平化）
      * Service层会将其构建成真正的树形结构
      *
      * @return 扁平化的层级数据
      */
-    List<Map<String, Object>> selectTreeStructure();
+    List<DepartmentGroup> selectTreeStructure();
 
     /**
      * 检查根节点是否存在
@@ -60,10 +97,22 @@ public interface DepartmentGroupMapper extends BaseMapper<DepartmentGroup> {
     boolean checkRootNodeExists(@Param("rootDeptName") String rootDeptName);
 
     /**
-     * 批量更新简称
+     * 将指定类型分组中名称不在给定列表内的简称重置为分组名称
+     *
+     * @param groupNames 保留简称的分组名称，不能为空
+     * @param groupTypes 分组类型编码
+     * @return 更新的记录数
+     */
+    int resetShortNamesExcept(@Param("groupNames") Collection<String> groupNames,
+                              @Param("groupTypes") List<String> groupTypes);
+
+    /**
+     * 按分组名称批量更新简称（单条UPDATE，CASE WHEN覆盖整批）
      *
-     * @param groups 部门分组列表
+     * @param mappings   分组名称 -> 简称，名称不能重复
+     * @param groupTypes 分组类型编码
      * @return 更新的记录数
      */
-    int batchUpdateShortName(@Param("groups") List<DepartmentGroup> groups);
+    int updateShortNameByGroupName(@Param("mappings") Collection<Map.Entry<String, String>> mappings,
+                                   @Param("groupTypes") List<String> groupTypes);
 }
\ No newline at end of file
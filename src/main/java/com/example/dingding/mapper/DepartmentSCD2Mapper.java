@@ -95,6 +95,19 @@ public interface DepartmentSCD2Mapper extends BaseMapper<DepartmentSCD2> {
                 .orderByAsc(DepartmentSCD2::getDeptId));
     }
 
+    /**
+     * 查找指定日期有效的部门版本（valid_from <= 日期 <= valid_to）
+     *
+     * @param asOf 查询日期
+     * @return 该日期有效的部门版本列表
+     */
+    default List<DepartmentSCD2> findVersionsAsOf(LocalDate asOf) {
+        return selectList(new LambdaQueryWrapper<DepartmentSCD2>()
+                .le(DepartmentSCD2::getValidFrom, asOf)
+                .ge(DepartmentSCD2::getValidTo, asOf)
+                .orderByAsc(DepartmentSCD2::getDeptId));
+    }
+
     /**
      * 关闭部门的旧版本
      * 将指定部门的当前版本的valid_to设置为指定日期，is_current设置为false
@@ -59,39 +59,35 @@ public interface FormComponentValueMapper extends BaseMapper<FormComponentValue>
                                                                         @Param("componentName") String componentName);
 
     /**
-     * 统计改善等级分布
+     * 统计改善等级分布（读取提案事实表的索引列）
      */
-    @Select("SELECT fcv.value as improvementLevel, COUNT(*) as count " +
-            "FROM ding_form_component_values fcv " +
-            "INNER JOIN ding_process_instances dpi ON fcv.process_instance_id = dpi.process_instance_id " +
-            "WHERE fcv.component_name = '改善等级' " +
-            "AND dpi.create_time BETWEEN #{startTime} AND #{endTime} " +
-            "GROUP BY fcv.value")
+    @Select("SELECT improvement_level as improvementLevel, COUNT(*) as count " +
+            "FROM ding_proposal_facts " +
+            "WHERE create_time BETWEEN #{startTime} AND #{endTime} " +
+            "AND improvement_level IS NOT NULL " +
+            "GROUP BY improvement_level")
     List<ImprovementLevelStats> selectImprovementLevelStats(@Param("startTime") String startTime,
                                                            @Param("endTime") String endTime);
 
     /**
-     * 统计提案类别分布
+     * 统计提案类别分布（读取提案事实表的索引列）
      */
-    @Select("SELECT fcv.value as proposalCategory, COUNT(*) as count " +
-            "FROM ding_form_component_values fcv " +
-            "INNER JOIN ding_process_instances dpi ON fcv.process_instance_id = dpi.process_instance_id " +
-            "WHERE fcv.component_name = '提案类别' " +
-            "AND dpi.create_time BETWEEN #{startTime} AND #{endTime} " +
-            "GROUP BY fcv.value")
+    @Select("SELECT proposal_category as proposalCategory, COUNT(*) as count " +
+            "FROM ding_proposal_facts " +
+            "WHERE create_time BETWEEN #{startTime} AND #{endTime} " +
+            "AND proposal_category IS NOT NULL " +
+            "GROUP BY proposal_category")
     List<ProposalCategoryStats> selectProposalCategoryStats(@Param("startTime") String startTime,
                                                             @Param("endTime") String endTime);
 
     /**
-     * 统计经济效益
+     * 统计经济效益（入库时已解析为DECIMAL列，无需逐行类型转换）
      */
-    @Select("SELECT dpi.originator_userid, " +
-            "SUM(CAST(CASE WHEN fcv.value != '' AND fcv.value IS NOT NULL THEN fcv.value ELSE '0' END AS DECIMAL(10,2))) as totalBenefit " +
-            "FROM ding_process_instances dpi " +
-            "LEFT JOIN ding_form_component_values fcv ON dpi.process_instance_id = fcv.process_instance_id " +
-            "AND fcv.component_name = '预计产生经济效益(元)' " +
-            "WHERE dpi.create_time BETWEEN #{startTime} AND #{endTime} " +
-            "GROUP BY dpi.originator_userid")
+    @Select("SELECT originator_userid, " +
+            "SUM(COALESCE(economic_benefit, 0)) as totalBenefit " +
+            "FROM ding_proposal_facts " +
+            "WHERE create_time BETWEEN #{startTime} AND #{endTime} " +
+            "GROUP BY originator_userid")
     List<EconomicBenefitStats> selectEconomicBenefitStats(@Param("startTime") String startTime,
                                                          @Param("endTime") String endTime);
 
@@ -38,19 +38,15 @@ public interface OperationRecordMapper extends BaseMapper<OperationRecord> {
                                            @Param("endTime") String endTime);
 
     /**
-     * 统计各环节平均处理时间
+     * 统计各环节平均处理时间（环节耗时在入库时已计算，最后环节耗时为空不参与平均）
      */
     @Select("SELECT show_name, " +
             "COUNT(*) as count, " +
-            "AVG(TIMESTAMPDIFF(HOUR, operation_date, " +
-            "    (SELECT MIN(operation_date) FROM ding_operation_records o2 " +
-            "     WHERE o2.process_instance_id = o1.process_instance_id " +
-            "     AND o2.operation_date > o1.operation_date))) as avgProcessHours " +
-            "FROM ding_operation_records o1 " +
+            "AVG(duration_seconds) / 3600 as avgProcessHours " +
+            "FROM ding_operation_records " +
             "WHERE operation_type = 'EXECUTE_TASK_NORMAL' " +
             "AND operation_date BETWEEN #{startTime} AND #{endTime} " +
-            "GROUP BY show_name " +
-            "HAVING count > 0")
+            "GROUP BY show_name")
     List<ProcessEfficiencyStats> selectProcessEfficiencyStats(@Param("startTime") String startTime,
                                                               @Param("endTime") String endTime);
 
@@ -3,10 +3,15 @@ package com.example.dingding.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.dingding.entity.ProcessInstance;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -27,6 +32,18 @@ public interface ProcessInstanceMapper extends BaseMapper<ProcessInstance> {
                                                     @Param("startTime") LocalDateTime startTime,
                                                     @Param("endTime") LocalDateTime endTime);
 
+    /**
+     * 查询已存在的流程实例ID（用于同步前批量判重）
+     */
+    @Select("<script>" +
+            "SELECT process_instance_id FROM ding_process_instances " +
+            "WHERE process_instance_id IN " +
+            "<foreach collection='processInstanceIds' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            "</script>")
+    List<String> selectExistingInstanceIds(@Param("processInstanceIds") Collection<String> processInstanceIds);
+
     /**
      * 根据部门名称和时间范围查询流程实例
      */
@@ -78,6 +95,58 @@ public interface ProcessInstanceMapper extends BaseMapper<ProcessInstance> {
     List<MonthlyStats> selectMonthlyStats(@Param("startTime") LocalDateTime startTime,
                                          @Param("endTime") LocalDateTime endTime);
 
+    /**
+     * 查询指标汇总所需的流程实例事实（只取汇总用到的列）
+     * 采纳标记按表单组件值判断，依赖 ding_form_component_values 上的 process_instance_id 索引
+     */
+    @Select("SELECT p.originator_dept_id AS deptId, p.originator_userid AS userId, p.status, p.result, " +
+            "p.create_time AS createTime, p.finish_time AS finishTime, " +
+            "EXISTS (SELECT 1 FROM ding_form_component_values v " +
+            "WHERE v.process_instance_id = p.process_instance_id " +
+            "AND v.component_name = #{adoptionComponentName} AND v.value = #{adoptionValue}) AS adopted " +
+            "FROM ding_process_instances p " +
+            "WHERE p.create_time >= #{startTime} AND p.create_time < #{endTime}")
+    List<KpiFact> selectKpiFacts(@Param("startTime") LocalDateTime startTime,
+                                 @Param("endTime") LocalDateTime endTime,
+                                 @Param("adoptionComponentName") String adoptionComponentName,
+                                 @Param("adoptionValue") String adoptionValue);
+
+    /**
+     * 查询导出范围内出现过的表单组件名称，按首次出现顺序排列（作为导出的透视列）
+     */
+    @Select("<script>" +
+            "SELECT v.component_name FROM ding_form_component_values v " +
+            "INNER JOIN ding_process_instances p ON v.process_instance_id = p.process_instance_id " +
+            "WHERE p.create_time &gt;= #{startTime} AND p.create_time &lt; #{endTime} " +
+            "<if test='processCode != null'>AND p.process_code = #{processCode} </if>" +
+            "AND v.component_name IS NOT NULL " +
+            "GROUP BY v.component_name ORDER BY MIN(v.id)" +
+            "</script>")
+    List<String> selectExportComponentNames(@Param("startTime") LocalDateTime startTime,
+                                            @Param("endTime") LocalDateTime endTime,
+                                            @Param("processCode") String processCode);
+
+    /**
+     * 流式查询导出数据：每个流程实例的每个表单组件值一行，同一实例的行相邻
+     * fetchSize=Integer.MIN_VALUE 让MySQL驱动逐行读取结果集，内存占用与导出行数无关
+     */
+    @Select("<script>" +
+            "SELECT p.process_instance_id, p.business_id, p.title, p.process_code, p.originator_userid, " +
+            "p.originator_dept_name, p.status, p.result, p.create_time, p.finish_time, " +
+            "v.component_name, v.value AS component_value " +
+            "FROM ding_process_instances p " +
+            "LEFT JOIN ding_form_component_values v ON v.process_instance_id = p.process_instance_id " +
+            "WHERE p.create_time &gt;= #{startTime} AND p.create_time &lt; #{endTime} " +
+            "<if test='processCode != null'>AND p.process_code = #{processCode} </if>" +
+            "ORDER BY p.create_time, p.process_instance_id" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(ExportRecord.class)
+    void streamExportRecords(@Param("startTime") LocalDateTime startTime,
+                             @Param("endTime") LocalDateTime endTime,
+                             @Param("processCode") String processCode,
+                             ResultHandler<ExportRecord> handler);
+
     /**
      * 部门统计结果类
      */
@@ -125,4 +194,77 @@ public interface ProcessInstanceMapper extends BaseMapper<ProcessInstance> {
         public Long getCompletedCount() { return completedCount; }
         public void setCompletedCount(Long completedCount) { this.completedCount = completedCount; }
     }
+
+    /**
+     * 指标汇总事实类
+     */
+    class KpiFact {
+        private String deptId;
+        private String userId;
+        private String status;
+        private String result;
+        private LocalDateTime createTime;
+        private LocalDateTime finishTime;
+        private Boolean adopted;
+
+        // getters and setters
+        public String getDeptId() { return deptId; }
+        public void setDeptId(String deptId) { this.deptId = deptId; }
+        public String getUserId() { return userId; }
+        public void setUserId(String userId) { this.userId = userId; }
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+        public String getResult() { return result; }
+        public void setResult(String result) { this.result = result; }
+        public LocalDateTime getCreateTime() { return createTime; }
+        public void setCreateTime(LocalDateTime createTime) { this.createTime = createTime; }
+        public LocalDateTime getFinishTime() { return finishTime; }
+        public void setFinishTime(LocalDateTime finishTime) { this.finishTime = finishTime; }
+        public Boolean getAdopted() { return adopted; }
+        public void setAdopted(Boolean adopted) { this.adopted = adopted; }
+    }
+
+    /**
+     * 导出记录类（流程实例 + 单个表单组件值）
+     */
+    class ExportRecord {
+        private String processInstanceId;
+        private String businessId;
+        private String title;
+        private String processCode;
+        private String originatorUserid;
+        private String originatorDeptName;
+        private String status;
+        private String result;
+        private LocalDateTime createTime;
+        private LocalDateTime finishTime;
+        private String componentName;
+        private String componentValue;
+
+        // getters and setters
+        public String getProcessInstanceId() { return processInstanceId; }
+        public void setProcessInstanceId(String processInstanceId) { this.processInstanceId = processInstanceId; }
+        public String getBusinessId() { return businessId; }
+        public void setBusinessId(String businessId) { this.businessId = businessId; }
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+        public String getProcessCode() { return processCode; }
+        public void setProcessCode(String processCode) { this.processCode = processCode; }
+        public String getOriginatorUserid() { return originatorUserid; }
+        public void setOriginatorUserid(String originatorUserid) { this.originatorUserid = originatorUserid; }
+        public String getOriginatorDeptName() { return originatorDeptName; }
+        public void setOriginatorDeptName(String originatorDeptName) { this.originatorDeptName = originatorDeptName; }
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+        public String getResult() { return result; }
+        public void setResult(String result) { this.result = result; }
+        public LocalDateTime getCreateTime() { return createTime; }
+        public void setCreateTime(LocalDateTime createTime) { this.createTime = createTime; }
+        public LocalDateTime getFinishTime() { return finishTime; }
+        public void setFinishTime(LocalDateTime finishTime) { this.finishTime = finishTime; }
+        public String getComponentName() { return componentName; }
+        public void setComponentName(String componentName) { this.componentName = componentName; }
+        public String getComponentValue() { return componentValue; }
+        public void setComponentValue(String componentValue) { this.componentValue = componentValue; }
+    }
 }
\ No newline at end of file
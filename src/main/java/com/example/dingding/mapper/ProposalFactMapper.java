@@ -0,0 +1,39 @@
+package com.example.dingding.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.dingding.entity.ProposalFact;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+
+/**
+ * 提案事实Mapper接口
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Mapper
+public interface ProposalFactMapper extends BaseMapper<ProposalFact> {
+
+    /**
+     * 批量写入提案事实，流程实例已存在时覆盖解析字段
+     */
+    @Insert("<script>" +
+            "INSERT INTO ding_proposal_facts (process_instance_id, process_code, originator_userid, create_time, " +
+            "economic_benefit, improvement_level_code, improvement_level, proposal_category_code, proposal_category, " +
+            "declared_date) VALUES " +
+            "<foreach collection='facts' item='f' separator=','>" +
+            "(#{f.processInstanceId}, #{f.processCode}, #{f.originatorUserid}, #{f.createTime}, " +
+            "#{f.economicBenefit}, #{f.improvementLevelCode}, #{f.improvementLevel}, #{f.proposalCategoryCode}, " +
+            "#{f.proposalCategory}, #{f.declaredDate})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE process_code = VALUES(process_code), " +
+            "originator_userid = VALUES(originator_userid), create_time = VALUES(create_time), " +
+            "economic_benefit = VALUES(economic_benefit), improvement_level_code = VALUES(improvement_level_code), " +
+            "improvement_level = VALUES(improvement_level), proposal_category_code = VALUES(proposal_category_code), " +
+            "proposal_category = VALUES(proposal_category), declared_date = VALUES(declared_date)" +
+            "</script>")
+    int upsertBatch(@Param("facts") Collection<ProposalFact> facts);
+}
@@ -0,0 +1,55 @@
+package com.example.dingding.mapper;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.dingding.entity.ProposalKpiRollup;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 提案指标汇总Mapper接口
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Mapper
+public interface ProposalKpiRollupMapper extends BaseMapper<ProposalKpiRollup> {
+
+    /**
+     * 删除指定周期的汇总行（重算前调用）
+     *
+     * @param periodType   统计周期
+     * @param periodStarts 周期开始日期
+     * @return 删除行数
+     */
+    default int deletePeriods(String periodType, Collection<LocalDate> periodStarts) {
+        if (periodStarts == null || periodStarts.isEmpty()) {
+            return 0;
+        }
+        return delete(new LambdaQueryWrapper<ProposalKpiRollup>()
+                .eq(ProposalKpiRollup::getPeriodType, periodType)
+                .in(ProposalKpiRollup::getPeriodStart, periodStarts));
+    }
+
+    /**
+     * 查询汇总行，命中 (period_type, period_start, group_id) 唯一索引或 (parent_group_id, ...) 索引
+     *
+     * @param periodType    统计周期
+     * @param from          周期开始日期下限（含）
+     * @param to            周期开始日期上限（含）
+     * @param parentGroupId 父分组ID，为null时返回所有分组
+     * @return 按周期升序、提案数降序排列的汇总行
+     */
+    default List<ProposalKpiRollup> selectRollups(String periodType, LocalDate from, LocalDate to, Long parentGroupId) {
+        return selectList(new LambdaQueryWrapper<ProposalKpiRollup>()
+                .eq(ProposalKpiRollup::getPeriodType, periodType)
+                .ge(ProposalKpiRollup::getPeriodStart, from)
+                .le(ProposalKpiRollup::getPeriodStart, to)
+                .eq(parentGroupId != null, ProposalKpiRollup::getParentGroupId, parentGroupId)
+                .orderByAsc(ProposalKpiRollup::getPeriodStart)
+                .orderByDesc(ProposalKpiRollup::getProposalCount));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.dingding.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.dingding.entity.SyncCheckpoint;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * 同步检查点Mapper接口
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Mapper
+public interface SyncCheckpointMapper extends BaseMapper<SyncCheckpoint> {
+
+    /**
+     * 推进检查点（成员指纹不变时只前进不后退，指纹变化时以新值重置）
+     * MySQL按书写顺序赋值，last_create_time 需在 members_hash 之前比较旧指纹
+     */
+    @Insert("INSERT INTO ding_sync_checkpoints (process_code, dept_id, last_create_time, members_hash) " +
+            "VALUES (#{processCode}, #{deptId}, #{lastCreateTime}, #{membersHash}) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "last_create_time = IF(members_hash <=> VALUES(members_hash), " +
+            "GREATEST(last_create_time, VALUES(last_create_time)), VALUES(last_create_time)), " +
+            "members_hash = VALUES(members_hash)")
+    int upsertAdvance(@Param("processCode") String processCode,
+                      @Param("deptId") Long deptId,
+                      @Param("lastCreateTime") LocalDateTime lastCreateTime,
+                      @Param("membersHash") String membersHash);
+}
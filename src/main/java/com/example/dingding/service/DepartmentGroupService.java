@@ -1,9 +1,13 @@
 package com.example.dingding.service;
 
+import com.example.dingding.dto.DepartmentGroupTreeNodeDTO;
+import com.example.dingding.dto.DepartmentSyncResultDTO;
+import com.example.dingding.dto.ExcelImportResultDTO;
 import com.example.dingding.entity.DepartmentGroup;
+import com.example.dingding.tree.DepartmentGroupTree;
 
+import java.io.InputStream;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 部门统计维度服务接口
@@ -23,26 +27,46 @@ public interface DepartmentGroupService {
     int generateDepartmentGroups();
 
     /**
-     * 清理并重新生成数据
-     * 先清空目标表，再重新生成数据（包含区域管理部和项目部）
+     * 清理并重新生成数据（包含区域管理部、项目部和总部）
+     * 数据写入影子表后通过RENAME TABLE原子替换正式表，重建期间读请求仍能查到完整的旧数据
      *
      * @return 生成记录数
      */
     int truncateAndRegenerate();
 
+    /**
+     * 根据部门SCD2同步结果增量更新统计数据
+     * 同步无变化或异常中止时直接跳过；部分部门合并失败时仍按已提交的变化部门更新；
+     * 只重新计算包含变化部门的分组（区域、项目部、总部）及其人数和参与人数，并只写入有差异的记录
+     *
+     * @param syncResult 部门同步结果
+     * @return 新增、更新和删除的记录数
+     */
+    int regenerateIncrementally(DepartmentSyncResultDTO syncResult);
+
     /**
      * 获取树形结构数据
      * 用于前端展示层级结构
      *
-     * @return 树形结构数据
+     * @return 树形结构数据（不可变）
+     */
+    List<DepartmentGroupTreeNodeDTO> getTreeStructure();
+
+    /**
+     * 获取树形结构快照（树节点、序列化后的JSON及ETag）
+     * 快照缓存在内存中，只在统计表重新生成后失效
+     *
+     * @return 树形结构快照
      */
-    List<Map<String, Object>> getTreeStructure();
+    DepartmentGroupTree getTreeSnapshot();
 
     /**
-     * 从Excel文件读取映射数据并更新部门简称
+     * 从上传的Excel流式读取简称映射（第2列部门名称，第3列简称）并更新部门简称
+     * 按Excel中的映射分批更新区域和部门分组的简称，全部行导入成功后，
+     * 再用一条语句把Excel中没有出现的分组简称重置为分组名称；没有导入任何行或有行级错误时不重置
      *
-     * @param filePath Excel文件路径
-     * @return 更新的记录数
+     * @param inputStream Excel输入流（调用方负责关闭）
+     * @return 导入结果，包含行级错误
      */
-    int updateShortNameFromExcel(String filePath);
+    ExcelImportResultDTO updateShortNameFromExcel(InputStream inputStream);
 }
\ No newline at end of file
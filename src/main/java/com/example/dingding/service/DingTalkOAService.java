@@ -16,11 +16,18 @@ public interface DingTalkOAService {
     /**
      * 同步OA表单实例数据
      * 从部门SCD2表获取部门信息，实时从API获取用户数据
+     * 每个 (表单, 部门) 完成的时间窗口会推进同步检查点
      *
-     * @param startTime 开始时间
+     * @param startTime 开始时间，为null时从各 (表单, 部门) 的检查点继续增量同步
      */
     void syncOALSS(LocalDateTime startTime);
 
+    /**
+     * 刷新未结束的流程实例
+     * 重新获取库中非终态实例的详情，只写入有变化的行和新增的操作记录
+     */
+    void refreshRunningInstances();
+
     /**
      * 获取钉钉所有部门的详细信息
      * 包含部门ID、名称、父部门ID等信息
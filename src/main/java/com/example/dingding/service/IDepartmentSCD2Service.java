@@ -62,7 +62,7 @@ public interface IDepartmentSCD2Service {
 
     /**
      * 检测部门是否发生变化
-     * 对比维度：dept_id（业务键）、name、parent_id
+     * 对比维度：name、parent_id、num 的内容哈希（row_hash）
      *
      * @param current 当前数据库中的部门版本
      * @param newDept 从钉钉API获取的新部门数据
@@ -0,0 +1,39 @@
+package com.example.dingding.service;
+
+import com.example.dingding.tree.OrgTree;
+
+import java.time.LocalDate;
+
+/**
+ * 组织树服务接口
+ * 提供按日期（as-of）查询历史组织结构的能力
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public interface IOrgTreeService {
+
+    /**
+     * 获取指定日期的组织树
+     * 历史日期的结果不会再变化，按LRU缓存；当天及以后的日期每次重新加载
+     *
+     * @param asOf 查询日期
+     * @return 不可变组织树
+     */
+    OrgTree getTreeAsOf(LocalDate asOf);
+
+    /**
+     * 获取当前版本的组织树索引
+     * 首次调用时加载；任一实例部门同步提交后递增共享版本号，各实例读取时发现版本变化即重新加载，读取方无需加锁
+     *
+     * @return 不可变组织树
+     */
+    OrgTree getCurrentTree();
+
+    /**
+     * 递增共享版本号，并重新加载当前版本的组织树索引后原子替换
+     *
+     * @return 新的组织树
+     */
+    OrgTree refreshCurrentTree();
+}
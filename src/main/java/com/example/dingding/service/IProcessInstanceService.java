@@ -5,7 +5,9 @@ import com.example.dingding.entity.ProcessInstance;
 import com.example.dingding.mapper.ProcessInstanceMapper;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 流程实例服务接口
@@ -78,4 +80,12 @@ public interface IProcessInstanceService extends IService<ProcessInstance> {
      * @return 流程实例
      */
     ProcessInstance getByProcessInstanceId(String processInstanceId);
+
+    /**
+     * 批量查询已存在的流程实例ID
+     *
+     * @param processInstanceIds 待检查的流程实例ID
+     * @return 其中已入库的流程实例ID
+     */
+    Set<String> findExistingInstanceIds(Collection<String> processInstanceIds);
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.example.dingding.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.dingding.entity.ProposalFact;
+
+import java.util.Collection;
+
+/**
+ * 提案事实服务接口
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public interface IProposalFactService extends IService<ProposalFact> {
+
+    /**
+     * 批量写入提案事实，流程实例已存在时覆盖
+     *
+     * @param facts 提案事实
+     * @return 影响行数
+     */
+    int upsertBatch(Collection<ProposalFact> facts);
+}
@@ -0,0 +1,61 @@
+package com.example.dingding.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.dingding.entity.ProcessInstance;
+import com.example.dingding.entity.ProposalKpiRollup;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 提案指标汇总服务接口
+ * 按日、按月为每个部门统计分组预先汇总提案指标；同步流程写入或更新流程实例时登记受影响的日期，
+ * 同步结束后只重算这些日期所在的日汇总和月汇总
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public interface IProposalKpiService extends IService<ProposalKpiRollup> {
+
+    /**
+     * 登记需要重算的日期（按流程实例创建日期），登记保存在Redis中，重启后不会丢失；可在同步线程中并发调用
+     *
+     * @param instances 新写入或有变化的流程实例
+     */
+    void markDirty(Collection<ProcessInstance> instances);
+
+    /**
+     * 重算已登记日期所在的日汇总和月汇总，并清空登记
+     *
+     * @return 写入的汇总行数
+     */
+    int refreshDirtyPeriods();
+
+    /**
+     * 重算最近若干天（见 dingding.kpi.recent-refresh-days）的汇总，用于随时间变化的超期指标
+     *
+     * @return 写入的汇总行数
+     */
+    int refreshRecentPeriods();
+
+    /**
+     * 重算日期区间内的汇总（用于首次回填或部门统计分组重建后）
+     *
+     * @param from 开始日期（含）
+     * @param to   结束日期（含）
+     * @return 写入的汇总行数
+     */
+    int refreshRange(LocalDate from, LocalDate to);
+
+    /**
+     * 查询汇总行
+     *
+     * @param periodType    统计周期（DAY/MONTH）
+     * @param from          周期开始日期下限（含）
+     * @param to            周期开始日期上限（含）
+     * @param parentGroupId 父分组ID，为null时返回所有分组
+     * @return 汇总行
+     */
+    List<ProposalKpiRollup> listRollups(String periodType, LocalDate from, LocalDate to, Long parentGroupId);
+}
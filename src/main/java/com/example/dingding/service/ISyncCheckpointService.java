@@ -0,0 +1,63 @@
+package com.example.dingding.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.dingding.entity.SyncCheckpoint;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 同步检查点服务接口
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public interface ISyncCheckpointService extends IService<SyncCheckpoint> {
+
+    /**
+     * 加载全部检查点
+     *
+     * @return 检查点键（见 {@link #key(String, Long)}） -> 检查点
+     */
+    Map<String, SyncCheckpoint> loadCheckpoints();
+
+    /**
+     * 推进检查点，成员指纹不变且新值小于已有值时保持不变
+     *
+     * @param processCode    流程模板ID
+     * @param deptId         部门ID
+     * @param lastCreateTime 已同步完成的创建时间上限
+     * @param membersHash    本次同步时的部门成员指纹
+     */
+    void advance(String processCode, Long deptId, LocalDateTime lastCreateTime, String membersHash);
+
+    /**
+     * 生成检查点键
+     *
+     * @param processCode 流程模板ID
+     * @param deptId      部门ID
+     * @return 检查点键
+     */
+    static String key(String processCode, Long deptId) {
+        return processCode + ":" + deptId;
+    }
+
+    /**
+     * 计算部门成员指纹，与用户ID顺序无关
+     *
+     * @param userIds 部门用户ID
+     * @return 排序后用户ID的MD5
+     */
+    static String membersHash(Collection<String> userIds) {
+        List<String> sorted = new ArrayList<>(userIds);
+        Collections.sort(sorted);
+        return DigestUtils.md5DigestAsHex(String.join(",", sorted).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -41,6 +41,15 @@ public interface ISyncRecordService extends IService<SyncRecord> {
      */
     SyncRecord startSync(String syncType, Integer totalCount);
 
+    /**
+     * 记录同步进度（状态保持RUNNING）
+     *
+     * @param syncRecord   同步记录
+     * @param successCount 当前成功数量
+     * @param failedCount  当前失败数量
+     */
+    void updateProgress(SyncRecord syncRecord, Integer successCount, Integer failedCount);
+
     /**
      * 记录同步成功
      *
@@ -0,0 +1,43 @@
+package com.example.dingding.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * 流程实例导出服务接口
+ * 导出流程实例及其表单组件值（每个组件一列），数据逐行从数据库流式读取并直接写入输出流
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public interface ProcessInstanceExportService {
+
+    String FORMAT_CSV = "csv";
+
+    String FORMAT_XLSX = "xlsx";
+
+    /**
+     * 判断导出格式是否支持
+     *
+     * @param format 导出格式
+     * @return 是否支持
+     */
+    static boolean isSupportedFormat(String format) {
+        return FORMAT_CSV.equals(format) || FORMAT_XLSX.equals(format);
+    }
+
+    /**
+     * 流式导出流程实例
+     *
+     * @param format       导出格式（csv/xlsx）
+     * @param startTime    创建时间下限（含）
+     * @param endTime      创建时间上限（不含）
+     * @param processCode  流程模板ID，为null时导出全部表单
+     * @param outputStream 输出流，导出结束后不关闭
+     * @return 导出的流程实例数
+     * @throws IOException 写入输出流失败
+     */
+    int export(String format, LocalDateTime startTime, LocalDateTime endTime, String processCode,
+               OutputStream outputStream) throws IOException;
+}
@@ -1,25 +1,40 @@
 package com.example.dingding.service.impl;
 
-import com.alibaba.excel.EasyExcel;
-import com.alibaba.excel.context.AnalysisContext;
-import com.alibaba.excel.event.AnalysisEventListener;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.example.dingding.config.JyOaConstants;
 import com.example.dingding.config.UnifiedDepartmentConfig;
+import com.example.dingding.dto.DepartmentGroupTreeNodeDTO;
+import com.example.dingding.dto.DepartmentSyncResultDTO;
+import com.example.dingding.dto.ExcelImportResultDTO;
 import com.example.dingding.entity.DepartmentGroup;
 import com.example.dingding.entity.DepartmentSCD2;
 import com.example.dingding.enums.DepartmentGroupType;
+import com.example.dingding.excel.ExcelImporter;
+import com.example.dingding.excel.ExcelRowHandler;
 import com.example.dingding.mapper.DepartmentGroupMapper;
-import com.example.dingding.mapper.DepartmentSCD2Mapper;
 import com.example.dingding.service.DepartmentGroupService;
+import com.example.dingding.service.IOrgTreeService;
+import com.example.dingding.tree.DepartmentGroupTree;
+import com.example.dingding.tree.DepartmentGroupTreeBuilder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.dingding.tree.OrgTree;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.DigestUtils;
 
-import java.io.File;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -39,66 +54,434 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
     private DepartmentGroupMapper departmentGroupMapper;
 
     @Autowired
-    private DepartmentSCD2Mapper departmentSCD2Mapper;
+    private UnifiedDepartmentConfig unifiedDepartmentConfig;
 
     @Autowired
-    private UnifiedDepartmentConfig unifiedDepartmentConfig;
+    private IOrgTreeService orgTreeService;
 
     private static final String ROOT_DEPT_NAME = "区域管理部";
 
+    /**
+     * 写入影子表时单条INSERT的最大记录数
+     */
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    /**
+     * Excel导入时单条UPDATE覆盖的最大行数
+     */
+    private static final int IMPORT_BATCH_SIZE = 500;
+
+    /**
+     * 重新生成锁的过期时间，持有者异常退出时锁自动释放；需大于一次全量重建的耗时
+     */
+    private static final Duration REGENERATE_LOCK_TTL = Duration.ofMinutes(30);
+
+    /**
+     * 令牌一致时才删除锁，避免锁过期后误删其他实例持有的锁
+     */
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 树形结构缓存，统计表版本号（Redis共享）变化后重新加载
+     */
+    private volatile DepartmentGroupTree treeCache;
+
+    private final Object treeCacheLock = new Object();
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public int truncateAndRegenerate() {
-        log.info("清理并重新生成部门统计数据");
+        String lockToken = acquireRegenerateLock();
+        try {
+            return rebuildViaShadowTable();
+        } finally {
+            releaseRegenerateLock(lockToken);
+        }
+    }
 
-        // 先清理数据
-        departmentGroupMapper.truncateTable();
-        log.info("已清理原有数据");
+    /**
+     * 获取跨实例的重新生成锁（Redis SET NX PX），防止多个实例同时重建同一张影子表
+     *
+     * @return 持有者令牌
+     * @throws IllegalStateException 其他实例或请求正在重新生成
+     */
+    private String acquireRegenerateLock() {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue()
+                .setIfAbsent(JyOaConstants.DEPT_GROUP_REGENERATE_LOCK, token, REGENERATE_LOCK_TTL);
+        if (!Boolean.TRUE.equals(acquired)) {
+            throw new IllegalStateException("部门统计数据正在重新生成，请稍后再试");
+        }
+        return token;
+    }
 
-        // 处理区域管理部数据
-        int regionCount = generateDepartmentGroups();
-        log.info("生成区域管理部数据完成，共 {} 条", regionCount);
+    private void releaseRegenerateLock(String token) {
+        try {
+            redisTemplate.execute(RELEASE_LOCK_SCRIPT,
+                    Collections.singletonList(JyOaConstants.DEPT_GROUP_REGENERATE_LOCK), token);
+        } catch (Exception e) {
+            log.error("释放部门统计数据重新生成锁失败，锁将在{}分钟后过期", REGENERATE_LOCK_TTL.toMinutes(), e);
+        }
+    }
 
-        // 处理项目部数据
-        int projectCount = syncProjectDepartmentGroups();
-        log.info("生成项目部数据完成，共 {} 条", projectCount);
+    /**
+     * 先在事务外决定更新方式并计算差异（读取组织树、在Redis端计算参与人数），
+     * 统计表为空时走影子表全量重建（DDL会隐式提交，不能放在事务中）；
+     * 否则只把差异放在一个事务中写入
+     */
+    @Override
+    public int regenerateIncrementally(DepartmentSyncResultDTO syncResult) {
+        if (syncResult.getErrorMessage() != null) {
+            log.warn("部门同步异常中止，跳过部门统计数据更新");
+            return 0;
+        }
+        if (CollectionUtils.isEmpty(syncResult.getChangedDeptIds())) {
+            log.info("部门同步无新增、变更或删除，跳过部门统计数据重新生成");
+            return 0;
+        }
+        String lockToken = acquireRegenerateLock();
+        try {
+            Map<Long, DepartmentGroup> existing = new HashMap<>();
+            for (DepartmentGroup group : departmentGroupMapper.selectList(null)) {
+                existing.put(group.getGroupId(), group);
+            }
+            if (existing.isEmpty()) {
+                log.info("部门统计表为空，执行全量重新生成");
+                return rebuildViaShadowTable();
+            }
+            GroupChanges changes = computeChanges(new HashSet<>(syncResult.getChangedDeptIds()), existing);
+            Integer applied = transactionTemplate.execute(status -> applyChanges(changes));
+            return applied != null ? applied : 0;
+        } finally {
+            releaseRegenerateLock(lockToken);
+        }
+    }
+
+    /**
+     * 找出包含变化部门的分组范围（区域、项目部、总部），只重新计算这些范围并与现有记录比对出差异
+     *
+     * @param changedDeptIds 新增、变更和删除的部门ID
+     * @param existing       统计表中的现有记录
+     * @return 需要新增、更新和删除的记录
+     */
+    private GroupChanges computeChanges(Set<Long> changedDeptIds, Map<Long, DepartmentGroup> existing) {
+        // 变化部门原来所在的范围
+        Map<Long, Long> existingSections = resolveSections(existing.values());
+        Set<Long> affectedSections = new HashSet<>();
+        for (Long deptId : changedDeptIds) {
+            Long section = existingSections.get(deptId);
+            if (section != null) {
+                affectedSections.add(section);
+            }
+        }
+
+        // 区域分组只重建变化部门原来和现在所在的区域，参与人数也只对这些区域执行SUNIONSTORE；
+        // 项目部和总部同样仅在受影响时计算
+        Set<Long> regionIds = new HashSet<>(affectedSections);
+        regionIds.addAll(resolveCurrentRegions(changedDeptIds));
+        List<DepartmentGroup> fresh = new ArrayList<>(buildRegionGroups(regionIds));
+        affectedSections.addAll(regionIds);
+        Long projectVirtualId = unifiedDepartmentConfig.getProject().getVirtualId();
+        List<DepartmentSCD2> projectDepts = findProjectDepartments();
+        if (affectedSections.contains(projectVirtualId) || containsAny(projectDepts, changedDeptIds)) {
+            fresh.addAll(buildProjectGroups(projectDepts));
+            affectedSections.add(projectVirtualId);
+        }
+        Long headquarterVirtualId = unifiedDepartmentConfig.getHeadquarter().getVirtualId();
+        List<DepartmentSCD2> headquarterDepts = findHeadquarterDepartments();
+        if (affectedSections.contains(headquarterVirtualId) || containsAny(headquarterDepts, changedDeptIds)) {
+            fresh.addAll(buildHeadquarterGroups(headquarterDepts));
+            affectedSections.add(headquarterVirtualId);
+        }
+
+        // 变化部门现在所在的范围
+        Map<Long, Long> freshSections = resolveSections(fresh);
+        for (Long deptId : changedDeptIds) {
+            Long section = freshSections.get(deptId);
+            if (section != null) {
+                affectedSections.add(section);
+            }
+        }
+
+        Map<Long, DepartmentGroup> freshById = new LinkedHashMap<>();
+        for (DepartmentGroup group : fresh) {
+            if (affectedSections.contains(freshSections.get(group.getGroupId()))) {
+                freshById.putIfAbsent(group.getGroupId(), group);
+            }
+        }
 
-        //处理总部数据
-        int headquarterCount = syncHeadquarterDepartmentGroups();
-        log.info("生成总部数据完成，共 {} 条", headquarterCount);
+        GroupChanges changes = new GroupChanges(changedDeptIds.size(), affectedSections.size());
+        for (DepartmentGroup group : freshById.values()) {
+            DepartmentGroup current = existing.get(group.getGroupId());
+            if (current == null) {
+                changes.inserts.add(group);
+            } else if (isStructureChanged(current, group)) {
+                changes.updates.add(group);
+            }
+        }
+        for (DepartmentGroup current : existing.values()) {
+            if (affectedSections.contains(existingSections.get(current.getGroupId()))
+                    && !freshById.containsKey(current.getGroupId())) {
+                changes.deletes.add(current.getGroupId());
+            }
+        }
+        return changes;
+    }
 
-        int totalCount = regionCount + projectCount + headquarterCount;
-        log.info("总共生成 {} 条部门统计数据", totalCount);
+    /**
+     * 在当前组织树中找出变化部门所在的区域（根部门的直接下级），不在区域管理部下的部门忽略
+     */
+    private Set<Long> resolveCurrentRegions(Set<Long> changedDeptIds) {
+        OrgTree orgTree = orgTreeService.getCurrentTree();
+        List<DepartmentSCD2> rootDepts = orgTree.findByNames(Collections.singletonList(ROOT_DEPT_NAME));
+        if (rootDepts.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Long rootDeptId = rootDepts.get(0).getDeptId();
+        Set<Long> regionIds = new HashSet<>();
+        for (Long deptId : changedDeptIds) {
+            if (!orgTree.isAncestor(rootDeptId, deptId)) {
+                continue;
+            }
+            // 祖先链从直接上级到根部门，根部门前一个即为所在区域；直接上级是根部门时自身就是区域
+            List<DepartmentSCD2> ancestors = orgTree.getAncestors(deptId);
+            int rootIndex = ancestors.size() - 1;
+            while (rootIndex >= 0 && !rootDeptId.equals(ancestors.get(rootIndex).getDeptId())) {
+                rootIndex--;
+            }
+            regionIds.add(rootIndex <= 0 ? deptId : ancestors.get(rootIndex - 1).getDeptId());
+        }
+        return regionIds;
+    }
+
+    /**
+     * 在一个事务中写入差异，提交后使树形结构缓存失效
+     *
+     * @param changes 需要新增、更新和删除的记录
+     * @return 新增、更新和删除的记录数
+     */
+    private int applyChanges(GroupChanges changes) {
+        int inserted = 0;
+        for (int from = 0; from < changes.inserts.size(); from += INSERT_BATCH_SIZE) {
+            inserted += departmentGroupMapper.batchInsert(
+                    changes.inserts.subList(from, Math.min(from + INSERT_BATCH_SIZE, changes.inserts.size())));
+        }
+        int updated = 0;
+        for (DepartmentGroup group : changes.updates) {
+            updated += departmentGroupMapper.updateGroupStructure(group);
+        }
+        int deleted = changes.deletes.isEmpty() ? 0 : departmentGroupMapper.deleteBatchIds(changes.deletes);
+        if (inserted + updated + deleted > 0) {
+            invalidateTreeCache();
+        }
 
+        log.info("部门统计数据增量更新完成 - 变化部门: {}, 受影响范围: {}, 新增: {}, 更新: {}, 删除: {}",
+                changes.changedDeptCount, changes.affectedSectionCount, inserted, updated, deleted);
+        return inserted + updated + deleted;
+    }
+
+    /**
+     * 增量更新需要写入的差异
+     */
+    private static final class GroupChanges {
+        private final int changedDeptCount;
+        private final int affectedSectionCount;
+        private final List<DepartmentGroup> inserts = new ArrayList<>();
+        private final List<DepartmentGroup> updates = new ArrayList<>();
+        private final List<Long> deletes = new ArrayList<>();
+
+        private GroupChanges(int changedDeptCount, int affectedSectionCount) {
+            this.changedDeptCount = changedDeptCount;
+            this.affectedSectionCount = affectedSectionCount;
+        }
+    }
+
+    /**
+     * 计算每条记录所属的范围：沿parent_group_id向上找到的顶层分组ID
+     */
+    private Map<Long, Long> resolveSections(Collection<DepartmentGroup> groups) {
+        Map<Long, DepartmentGroup> byId = new HashMap<>(groups.size() * 2);
+        for (DepartmentGroup group : groups) {
+            byId.putIfAbsent(group.getGroupId(), group);
+        }
+        Map<Long, Long> sections = new HashMap<>(byId.size() * 2);
+        for (DepartmentGroup group : byId.values()) {
+            List<Long> path = new ArrayList<>();
+            Long id = group.getGroupId();
+            Long section;
+            while (true) {
+                Long known = sections.get(id);
+                if (known != null) {
+                    section = known;
+                    break;
+                }
+                path.add(id);
+                Long parentId = byId.get(id).getParentGroupId();
+                // 父分组不存在或出现环时，当前节点即为顶层
+                if (parentId == null || !byId.containsKey(parentId) || path.size() > byId.size()) {
+                    section = id;
+                    break;
+                }
+                id = parentId;
+            }
+            for (Long node : path) {
+                sections.put(node, section);
+            }
+        }
+        return sections;
+    }
+
+    private boolean containsAny(List<DepartmentSCD2> departments, Set<Long> deptIds) {
+        for (DepartmentSCD2 dept : departments) {
+            if (deptIds.contains(dept.getDeptId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isStructureChanged(DepartmentGroup current, DepartmentGroup fresh) {
+        return !Objects.equals(current.getGroupType(), fresh.getGroupType())
+                || !Objects.equals(current.getParentGroupId(), fresh.getParentGroupId())
+                || !Objects.equals(current.getGroupName(), fresh.getGroupName())
+                || !Objects.equals(current.getNum(), fresh.getNum());
+    }
+
+    /**
+     * 在影子表中全量生成数据，再通过RENAME TABLE原子替换正式表
+     *
+     * @return 生成记录数
+     */
+    private int rebuildViaShadowTable() {
+        log.info("在影子表中重新生成部门统计数据");
+
+        // 先在内存中生成全部数据，期间正式表不受影响
+        List<DepartmentGroup> regionGroups = buildRegionGroups();
+        log.info("生成区域管理部数据完成，共 {} 条", regionGroups.size());
+
+        List<DepartmentGroup> projectGroups = buildProjectGroups(findProjectDepartments());
+        log.info("生成项目部数据完成，共 {} 条", projectGroups.size());
+
+        List<DepartmentGroup> headquarterGroups = buildHeadquarterGroups(findHeadquarterDepartments());
+        log.info("生成总部数据完成，共 {} 条", headquarterGroups.size());
+
+        List<DepartmentGroup> allGroups = new ArrayList<>(
+                regionGroups.size() + projectGroups.size() + headquarterGroups.size());
+        allGroups.addAll(regionGroups);
+        allGroups.addAll(projectGroups);
+        allGroups.addAll(headquarterGroups);
+
+        // 写入影子表后一次RENAME原子交换，读请求始终看到完整的旧表或新表
+        departmentGroupMapper.dropShadowTable();
+        departmentGroupMapper.createShadowTable();
+        int totalCount = 0;
+        for (int from = 0; from < allGroups.size(); from += INSERT_BATCH_SIZE) {
+            List<DepartmentGroup> batch = allGroups.subList(from, Math.min(from + INSERT_BATCH_SIZE, allGroups.size()));
+            totalCount += departmentGroupMapper.batchInsertShadow(batch);
+        }
+        departmentGroupMapper.dropOldTable();
+        departmentGroupMapper.swapShadowTable();
+        departmentGroupMapper.dropOldTable();
+        invalidateTreeCache();
+
+        log.info("总共生成 {} 条部门统计数据，已切换为正式表", totalCount);
         return totalCount;
     }
 
     @Override
-    public List<Map<String, Object>> getTreeStructure() {
-        // 获取扁平化的数据
-        List<Map<String, Object>> flatList = departmentGroupMapper.selectTreeStructure();
-
-        // 构建树形结构
-        return buildTree(flatList);
+    public List<DepartmentGroupTreeNodeDTO> getTreeStructure() {
+        return getTreeSnapshot().getRoots();
     }
 
+    /**
+     * 每次请求先读取Redis中的统计表版本号，与缓存加载时的版本一致才复用缓存，
+     * 其他实例重新生成统计表后本实例也能及时感知；版本号读取失败时沿用已有缓存
+     */
     @Override
-    @Transactional(rollbackFor = Exception.class)
-    public int generateDepartmentGroups() {
-        log.info("开始生成部门统计数据，根部门：{}", ROOT_DEPT_NAME);
+    public DepartmentGroupTree getTreeSnapshot() {
+        // 先读版本再读表，加载期间若有新的写入，版本号随后递增，下次请求会重新加载
+        Long version = readTreeVersion();
+        DepartmentGroupTree cached = treeCache;
+        if (cached != null && (version == null || version.equals(cached.getVersion()))) {
+            return cached;
+        }
+        // 持锁加载，失效操作同样持锁，保证不会把失效前读到的旧数据放回缓存
+        synchronized (treeCacheLock) {
+            if (treeCache == null || (version != null && !version.equals(treeCache.getVersion()))) {
+                treeCache = loadTreeSnapshot(version);
+            }
+            return treeCache;
+        }
+    }
 
-        // 检查根节点是否存在
-        if (!checkRootNodeExists(ROOT_DEPT_NAME)) {
-            log.error("根节点 '{}' 不存在或不是当前版本", ROOT_DEPT_NAME);
-            throw new RuntimeException("根节点 '" + ROOT_DEPT_NAME + "' 不存在或不是当前版本");
+    /**
+     * 读取统计表版本号，从未写入过时为0，Redis不可用时返回null
+     */
+    private Long readTreeVersion() {
+        try {
+            Object version = redisTemplate.opsForValue().get(JyOaConstants.DEPT_GROUP_VERSION);
+            return version == null ? 0L : ((Number) version).longValue();
+        } catch (Exception e) {
+            log.warn("读取部门统计表版本号失败，沿用本地缓存: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private DepartmentGroupTree loadTreeSnapshot(Long version) {
+        List<DepartmentGroupTreeNodeDTO> roots = DepartmentGroupTree.buildNodes(departmentGroupMapper.selectTreeStructure());
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(roots);
+            String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            log.info("部门统计树已缓存，共 {} 个根节点，{} 字节", roots.size(), json.length);
+            return new DepartmentGroupTree(roots, json, etag, version);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化部门统计树失败", e);
+        }
+    }
+
+    /**
+     * 统计表变化后使树形结构缓存失效并递增共享版本号，所有实例的缓存随之过期；
+     * 在事务中时等提交后再失效，避免提交前被重新加载旧数据
+     */
+    private void invalidateTreeCache() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            clearTreeCache();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                clearTreeCache();
+            }
+        });
+    }
+
+    private void clearTreeCache() {
+        synchronized (treeCacheLock) {
+            treeCache = null;
+        }
+        try {
+            redisTemplate.opsForValue().increment(JyOaConstants.DEPT_GROUP_VERSION);
+        } catch (Exception e) {
+            log.error("递增部门统计表版本号失败，其他实例的树形结构缓存可能未及时失效", e);
         }
+    }
 
-        // 执行递归查询
-        List<DepartmentGroup> groups = departmentGroupMapper.selectDepartmentHierarchy(ROOT_DEPT_NAME);
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int generateDepartmentGroups() {
+        List<DepartmentGroup> groups = buildRegionGroups();
 
         if (CollectionUtils.isEmpty(groups)) {
             log.warn("未找到任何部门数据");
@@ -107,11 +490,58 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
 
         // 批量插入数据
         int insertedCount = departmentGroupMapper.batchInsert(groups);
+        invalidateTreeCache();
 
         log.info("成功生成 {} 条部门统计数据", insertedCount);
         return insertedCount;
     }
 
+    /**
+     * 生成区域管理部统计分组（不写库）
+     *
+     * @return 分组列表
+     */
+    private List<DepartmentGroup> buildRegionGroups() {
+        return buildRegionGroups(null);
+    }
+
+    /**
+     * 生成指定区域的统计分组（不写库），只对这些区域计算参与人数
+     *
+     * @param regionIds 区域部门ID（根部门的直接下级），为null时生成全部区域
+     * @return 分组列表
+     */
+    private List<DepartmentGroup> buildRegionGroups(Set<Long> regionIds) {
+        log.info("开始生成部门统计数据，根部门：{}", ROOT_DEPT_NAME);
+
+        // 检查根节点是否存在
+        if (!checkRootNodeExists(ROOT_DEPT_NAME)) {
+            log.error("根节点 '{}' 不存在或不是当前版本", ROOT_DEPT_NAME);
+            throw new RuntimeException("根节点 '" + ROOT_DEPT_NAME + "' 不存在或不是当前版本");
+        }
+
+        // 根部门的直接子部门为REGION，孙部门为DEPARTMENT，更深层级group_type为null
+        OrgTree orgTree = orgTreeService.getCurrentTree();
+        List<DepartmentSCD2> rootDepts = orgTree.findByNames(Collections.singletonList(ROOT_DEPT_NAME));
+        if (rootDepts.size() > 1) {
+            log.warn("存在 {} 个名为 '{}' 的当前部门，使用ID最小的一个", rootDepts.size(), ROOT_DEPT_NAME);
+        }
+        List<DepartmentGroup> groups = Collections.emptyList();
+        if (!rootDepts.isEmpty()) {
+            Long rootDeptId = rootDepts.get(0).getDeptId();
+            List<DepartmentSCD2> regions = orgTree.getChildren(rootDeptId);
+            if (regionIds != null) {
+                regions = regions.stream()
+                        .filter(region -> regionIds.contains(region.getDeptId()))
+                        .collect(Collectors.toList());
+            }
+            groups = DepartmentGroupTreeBuilder.build(orgTree.getDescendants(rootDeptId), regions,
+                    null, DepartmentGroupType.REGION, DepartmentGroupType.DEPARTMENT);
+            storeParticipantCounts(groups);
+        }
+        return groups;
+    }
+
     /**
      * 同步项目部数据
      * 将配置的目标部门重新组织为项目部的树形结构
@@ -120,38 +550,47 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
      */
     @Transactional(rollbackFor = Exception.class)
     public int syncProjectDepartmentGroups() {
-        log.info("开始生成项目部统计分组数据");
+        List<DepartmentGroup> groupList = buildProjectGroups(findProjectDepartments());
+        if (CollectionUtils.isEmpty(groupList)) {
+            return 0;
+        }
 
-        // 1. 查找所有项目相关部门（包含所有子级）
-        List<DepartmentSCD2> projectDepts = findProjectDepartments();
+        // 批量插入数据
+        int insertedCount = departmentGroupMapper.batchInsert(groupList);
+        invalidateTreeCache();
+
+        log.info("成功生成 {} 条项目部统计数据", insertedCount);
+        return insertedCount;
+    }
+
+    /**
+     * 生成项目部统计分组（不写库）
+     *
+     * @param projectDepts 所有项目相关部门（包含所有子级）
+     * @return 分组列表
+     */
+    private List<DepartmentGroup> buildProjectGroups(List<DepartmentSCD2> projectDepts) {
+        log.info("开始生成项目部统计分组数据");
 
         if (CollectionUtils.isEmpty(projectDepts)) {
             log.warn("未找到任何项目相关部门数据");
-            return 0;
+            return Collections.emptyList();
         }
 
         log.info("找到 {} 个项目相关部门", projectDepts.size());
 
-        //1.5设置定义的区域用户数
-        Set<String> member = new HashSet<>();
-        for (DepartmentSCD2 departmentSCD2 : projectDepts){
-            Set<Object> members = redisTemplate.opsForSet().members(JyOaConstants.DEPT_USER_IDS + departmentSCD2.getDeptId().toString());
-            if (members != null && !members.isEmpty()) {
-                members.stream()
-                        .filter(Objects::nonNull)
-                        .map(String::valueOf)
-                        .forEach(member::add);
+        // 2. 构建树形结构
+        List<DepartmentGroup> groups = buildProjectDepartmentTree(projectDepts);
+
+        // 3. 在Redis端合并参与人，根节点人数为整个项目部的去重参与人数
+        Long virtualId = unifiedDepartmentConfig.getProject().getVirtualId();
+        Map<Long, Integer> participantCounts = storeParticipantCounts(groups);
+        for (DepartmentGroup group : groups) {
+            if (virtualId.equals(group.getGroupId())) {
+                group.setNum(participantCounts.getOrDefault(virtualId, 0));
             }
         }
-        redisTemplate.opsForValue().set(JyOaConstants.PARTICIPANTS_CNT + unifiedDepartmentConfig.getProject().getVirtualId(), member.size());
-        // 2. 构建树形结构
-        List<DepartmentGroup> groupList = buildProjectDepartmentTree(projectDepts, member.size());
-
-        // 3. 批量插入数据
-        int insertedCount = departmentGroupMapper.batchInsert(groupList);
-
-        log.info("成功生成 {} 条项目部统计数据", insertedCount);
-        return insertedCount;
+        return groups;
     }
 
     /**
@@ -162,39 +601,105 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
      */
     @Transactional(rollbackFor = Exception.class)
     public int syncHeadquarterDepartmentGroups() {
-        log.info("开始生成总部统计分组数据");
+        List<DepartmentGroup> groupList = buildHeadquarterGroups(findHeadquarterDepartments());
+        if (CollectionUtils.isEmpty(groupList)) {
+            return 0;
+        }
 
-        // 1. 查找所有总部相关部门（包含所有子级）
-        List<DepartmentSCD2> headquarterDepts = findHeadquarterDepartments();
+        // 批量插入数据
+        int insertedCount = departmentGroupMapper.batchInsert(groupList);
+        invalidateTreeCache();
+
+        log.info("成功生成 {} 条总部统计数据", insertedCount);
+        return insertedCount;
+    }
+
+    /**
+     * 生成总部统计分组（不写库）
+     *
+     * @param headquarterDepts 所有总部相关部门（包含所有子级）
+     * @return 分组列表
+     */
+    private List<DepartmentGroup> buildHeadquarterGroups(List<DepartmentSCD2> headquarterDepts) {
+        log.info("开始生成总部统计分组数据");
 
         if (CollectionUtils.isEmpty(headquarterDepts)) {
             log.warn("未找到任何总部相关部门数据");
-            return 0;
+            return Collections.emptyList();
         }
 
         log.info("找到 {} 个总部相关部门", headquarterDepts.size());
 
-        //1.5设置定义的区域用户数
-        Set<String> member = new HashSet<>();
-        for (DepartmentSCD2 departmentSCD2 : headquarterDepts){
-            Set<Object> members = redisTemplate.opsForSet().members(JyOaConstants.DEPT_USER_IDS + departmentSCD2.getDeptId().toString());
-            if (members != null && !members.isEmpty()) {
-                members.stream()
-                        .filter(Objects::nonNull)
-                        .map(String::valueOf)
-                        .forEach(member::add);
+        // 2. 构建树形结构
+        List<DepartmentGroup> groups = buildHeadquarterDepartmentTree(headquarterDepts);
+
+        // 3. 在Redis端合并参与人，根节点人数为整个总部的去重参与人数
+        Long virtualId = unifiedDepartmentConfig.getHeadquarter().getVirtualId();
+        Map<Long, Integer> participantCounts = storeParticipantCounts(groups);
+        for (DepartmentGroup group : groups) {
+            if (virtualId.equals(group.getGroupId())) {
+                group.setNum(participantCounts.getOrDefault(virtualId, 0));
             }
         }
-        redisTemplate.opsForValue().set(JyOaConstants.PARTICIPANTS_CNT + unifiedDepartmentConfig.getHeadquarter().getVirtualId(), member.size());
+        return groups;
+    }
 
-        // 2. 构建树形结构
-        List<DepartmentGroup> groupList = buildHeadquarterDepartmentTree(headquarterDepts, member.size());
+    /**
+     * 在Redis端计算每个分组的去重参与人数并写入PARTICIPANTS_CNT
+     * 按子分组先于父分组的顺序对每个分组执行SUNIONSTORE（本部门用户集合 + 各子分组的合并集合），
+     * 命令的返回值即为合并后的人数；全部命令通过两次管道发送，用户ID不经过JVM
+     *
+     * @param groups 分组列表，父分组必须排在子分组之前
+     * @return 分组ID -> 参与人数
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Integer> storeParticipantCounts(List<DepartmentGroup> groups) {
+        if (groups.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, List<String>> childUnionKeys = new HashMap<>(groups.size() * 2);
+        for (DepartmentGroup group : groups) {
+            if (group.getParentGroupId() != null) {
+                childUnionKeys.computeIfAbsent(group.getParentGroupId(), key -> new ArrayList<>())
+                        .add(JyOaConstants.PARTICIPANTS_SET + group.getGroupId());
+            }
+        }
 
-        // 3. 批量插入数据
-        int insertedCount = departmentGroupMapper.batchInsert(groupList);
+        // 逆序执行，子分组的合并集合总是先于父分组生成
+        List<Object> unionSizes = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (int i = groups.size() - 1; i >= 0; i--) {
+                    DepartmentGroup group = groups.get(i);
+                    ops.opsForSet().unionAndStore(JyOaConstants.DEPT_USER_IDS + group.getDeptId(),
+                            childUnionKeys.getOrDefault(group.getGroupId(), Collections.emptyList()),
+                            JyOaConstants.PARTICIPANTS_SET + group.getGroupId());
+                }
+                return null;
+            }
+        });
 
-        log.info("成功生成 {} 条总部统计数据", insertedCount);
-        return insertedCount;
+        Map<Long, Integer> counts = new HashMap<>(groups.size() * 2);
+        for (int i = 0; i < groups.size(); i++) {
+            Object size = unionSizes.get(groups.size() - 1 - i);
+            counts.put(groups.get(i).getGroupId(), size == null ? 0 : ((Number) size).intValue());
+        }
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                List<String> unionKeys = new ArrayList<>(counts.size());
+                for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+                    ops.opsForValue().set(JyOaConstants.PARTICIPANTS_CNT + entry.getKey(), entry.getValue());
+                    unionKeys.add(JyOaConstants.PARTICIPANTS_SET + entry.getKey());
+                }
+                ops.delete(unionKeys);
+                return null;
+            }
+        });
+        return counts;
     }
 
     /**
@@ -213,15 +718,15 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
 
         log.info("目标部门列表：{}", targetDeptNames);
 
-        // 1. 查找一级部门
-        List<DepartmentSCD2> firstLevel = departmentSCD2Mapper.findByNameIn(targetDeptNames);
+        // 1. 查找一级部门（内存组织树索引，同步后整体替换）
+        OrgTree orgTree = orgTreeService.getCurrentTree();
+        List<DepartmentSCD2> firstLevel = orgTree.findByNames(targetDeptNames);
         log.info("找到 {} 个一级部门", firstLevel.size());
 
-        // 打印一级部门信息
         firstLevel.forEach(dept ->
-            log.info("  一级部门: {} (ID: {})", dept.getName(), dept.getDeptId()));
+            log.debug("  一级部门: {} (ID: {})", dept.getName(), dept.getDeptId()));
 
-        // 2. 查找所有子部门（SQL已经使用递归CTE，不需要Java再递归）
+        // 2. 查找所有子部门（先序编号下子树连续，一次区间读取即可取出所有层级）
         List<DepartmentSCD2> allDepts = new ArrayList<>(firstLevel);
         Set<Long> existingIds = new HashSet<>();
 
@@ -229,8 +734,8 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
         firstLevel.forEach(dept -> existingIds.add(dept.getDeptId()));
 
         for (DepartmentSCD2 dept : firstLevel) {
-            List<DepartmentSCD2> children = departmentSCD2Mapper.findAllChildren(dept.getDeptId());
-            log.info("部门 {} ({}) 有 {} 个子部门", dept.getName(), dept.getDeptId(), children.size());
+            List<DepartmentSCD2> children = orgTree.getDescendants(dept.getDeptId());
+            log.debug("部门 {} ({}) 有 {} 个子部门", dept.getName(), dept.getDeptId(), children.size());
 
             for (DepartmentSCD2 child : children) {
                 // 跳过已存在的部门（防止重复）
@@ -240,7 +745,7 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
                     log.debug("添加子部门: {} (ID: {}, 父ID: {})",
                         child.getName(), child.getDeptId(), child.getParentId());
                 } else {
-                    log.warn("部门 {} (ID: {}) 已存在，跳过",
+                    log.debug("部门 {} (ID: {}) 已存在，跳过",
                         child.getName(), child.getDeptId());
                 }
             }
@@ -248,12 +753,6 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
 
         log.info("总共找到 {} 个项目相关部门（包含子部门）", allDepts.size());
 
-        // 打印所有收集到的部门，帮助调试
-        log.info("收集到的部门列表：");
-        allDepts.forEach(dept ->
-            log.info("  ID: {}, 名称: {}, 父ID: {}",
-                dept.getDeptId(), dept.getName(), dept.getParentId()));
-
         return allDepts;
     }
 
@@ -273,15 +772,15 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
 
         log.info("总部目标部门列表：{}", targetDeptNames);
 
-        // 1. 查找一级部门
-        List<DepartmentSCD2> firstLevel = departmentSCD2Mapper.findByNameIn(targetDeptNames);
+        // 1. 查找一级部门（内存组织树索引，同步后整体替换）
+        OrgTree orgTree = orgTreeService.getCurrentTree();
+        List<DepartmentSCD2> firstLevel = orgTree.findByNames(targetDeptNames);
         log.info("找到 {} 个总部一级部门", firstLevel.size());
 
-        // 打印一级部门信息
         firstLevel.forEach(dept ->
-            log.info("  一级部门: {} (ID: {})", dept.getName(), dept.getDeptId()));
+            log.debug("  一级部门: {} (ID: {})", dept.getName(), dept.getDeptId()));
 
-        // 2. 查找所有子部门（重要：SQL已经使用递归CTE，返回所有层级子部门）
+        // 2. 查找所有子部门（先序编号下子树连续，一次区间读取即可取出所有层级）
         List<DepartmentSCD2> allDepts = new ArrayList<>(firstLevel);
         Set<Long> existingIds = new HashSet<>();
 
@@ -289,9 +788,8 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
         firstLevel.forEach(dept -> existingIds.add(dept.getDeptId()));
 
         for (DepartmentSCD2 dept : firstLevel) {
-            // SQL查询已通过递归CTE返回所有层级的子部门
-            List<DepartmentSCD2> children = departmentSCD2Mapper.findAllChildren(dept.getDeptId());
-            log.info("部门 {} ({}) 有 {} 个子部门", dept.getName(), dept.getDeptId(), children.size());
+            List<DepartmentSCD2> children = orgTree.getDescendants(dept.getDeptId());
+            log.debug("部门 {} ({}) 有 {} 个子部门", dept.getName(), dept.getDeptId(), children.size());
 
             for (DepartmentSCD2 child : children) {
                 // 使用existingIds去重，避免重复添加
@@ -301,7 +799,7 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
                     log.debug("添加子部门: {} (ID: {}, 父ID: {})",
                         child.getName(), child.getDeptId(), child.getParentId());
                 } else {
-                    log.warn("部门 {} (ID: {}) 已存在，跳过",
+                    log.debug("部门 {} (ID: {}) 已存在，跳过",
                         child.getName(), child.getDeptId());
                 }
             }
@@ -309,12 +807,6 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
 
         log.info("总共找到 {} 个总部相关部门（包含子部门）", allDepts.size());
 
-        // 打印所有收集到的部门，帮助调试
-        log.info("收集到的部门列表：");
-        allDepts.forEach(dept ->
-            log.info("  ID: {}, 名称: {}, 父ID: {}",
-                dept.getDeptId(), dept.getName(), dept.getParentId()));
-
         return allDepts;
     }
 
@@ -323,10 +815,9 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
      * 构建项目部的树形结构
      *
      * @param departments 部门列表
-     * @param member
-     * @return 部门分组列表
+     * @return 部门分组列表，根节点人数由调用方按参与人数设置
      */
-    private List<DepartmentGroup> buildProjectDepartmentTree(List<DepartmentSCD2> departments, int member) {
+    private List<DepartmentGroup> buildProjectDepartmentTree(List<DepartmentSCD2> departments) {
         List<DepartmentGroup> result = new ArrayList<>();
 
         // 1. 创建项目部根节点（REGION类型，parent_group_id=null）
@@ -341,113 +832,29 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
         projectRoot.setCurrentVersion(true);
         projectRoot.setValidFrom(LocalDate.now());
         projectRoot.setValidTo(LocalDate.of(9999, 12, 31));
-        projectRoot.setNum(member);
         result.add(projectRoot);
 
-        // 2. 构建部门映射
-        log.info("开始构建部门映射，共 {} 个部门", departments.size());
-        Map<Long, DepartmentSCD2> deptMap;
-        try {
-            deptMap = departments.stream()
-                    .collect(Collectors.toMap(DepartmentSCD2::getDeptId, d -> d));
-            log.info("部门映射构建成功，共 {} 个唯一部门", deptMap.size());
-        } catch (IllegalStateException e) {
-            log.error("构建部门映射时出现重复键异常！", e);
-
-            // 找出重复的部门
-            Map<Long, Integer> countMap = new HashMap<>();
-            Set<Long> duplicateIds = new HashSet<>();
-
-            for (DepartmentSCD2 dept : departments) {
-                long count = countMap.merge(dept.getDeptId(), 1, Integer::sum);
-                if (count > 1) {
-                    duplicateIds.add(dept.getDeptId());
-                }
-            }
-
-            log.error("发现 {} 个重复的部门ID", duplicateIds.size());
-
-            // 对每个重复的部门ID，打印详细信息
-            for (Long duplicateId : duplicateIds) {
-                log.error("部门ID {} 重复出现:", duplicateId);
-                departments.stream()
-                    .filter(d -> d.getDeptId().equals(duplicateId))
-                    .forEach(d -> {
-                        log.error("  - ID: {}, 名称: {}, 父ID: {}",
-                            d.getDeptId(), d.getName(), d.getParentId());
-                    });
-            }
-
-            throw e;
-        }
-
-        // 3. 从统一配置中获取项目部目标部门列表（避免硬编码）
+        // 2. 从统一配置中获取项目部目标部门列表（避免硬编码）
         List<String> targetDeptNames = unifiedDepartmentConfig.getProject().getTargetDepartments();
         List<DepartmentSCD2> firstLevel = departments.stream()
                 .filter(d -> targetDeptNames.contains(d.getName()))
                 .collect(Collectors.toList());
 
-        // 4. 处理一级部门（DEPARTMENT类型，parent为项目部）
-        for (DepartmentSCD2 dept : firstLevel) {
-            DepartmentGroup group = new DepartmentGroup();
-            group.setGroupId(dept.getDeptId());      // 使用真实的dept_id
-            group.setDeptId(dept.getDeptId());       // 使用真实的dept_id
-            group.setGroupName(dept.getName());
-            group.setGroupType(DepartmentGroupType.DEPARTMENT);
-            group.setParentGroupId(projectVirtualId);  // 父节点指向项目部（使用配置的虚拟ID）
-            group.setCurrentVersion(true);
-            group.setValidFrom(LocalDate.now());
-            group.setValidTo(LocalDate.of(9999, 12, 31));
-            group.setNum(dept.getNum());
-            result.add(group);
-
-            // 5. 递归处理子部门（group_type=null，层级不限）
-            // 从DEPARTMENT级别开始递归查找所有子级
-            buildChildGroups(dept.getDeptId(), deptMap, result);
-        }
+        // 3. 一级部门为DEPARTMENT类型（parent为项目部），子部门group_type为null，层级不限
+        log.info("开始构建项目部分组，共 {} 个部门", departments.size());
+        result.addAll(DepartmentGroupTreeBuilder.build(
+                departments, firstLevel, projectVirtualId, DepartmentGroupType.DEPARTMENT));
 
         return result;
     }
 
-    /**
-     * 递归构建子部门树
-     *
-     * @param parentId 父部门ID
-     * @param deptMap 所有部门映射
-     * @param result 结果列表
-     */
-    private void buildChildGroups(Long parentId, Map<Long, DepartmentSCD2> deptMap,
-                                List<DepartmentGroup> result) {
-        // parentId是真实的父部门ID，从dim_department_jy表获取
-        for (DepartmentSCD2 dept : deptMap.values()) {
-            if (parentId.equals(dept.getParentId())) {
-                // 子部门的group_type为null
-                DepartmentGroup group = new DepartmentGroup();
-                group.setGroupId(dept.getDeptId());  // 使用真实的dept_id
-                group.setDeptId(dept.getDeptId());   // 使用真实的dept_id
-                group.setGroupName(dept.getName());
-                group.setGroupType(null);            // 子部门group_type为null
-                group.setParentGroupId(dept.getParentId());  // 指向真实的父部门ID
-                group.setCurrentVersion(true);
-                group.setValidFrom(LocalDate.now());
-                group.setValidTo(LocalDate.of(9999, 12, 31));
-                group.setNum(dept.getNum());
-                result.add(group);
-
-                // 继续递归处理下级
-                buildChildGroups(dept.getDeptId(), deptMap, result);
-            }
-        }
-    }
-
     /**
      * 构建总部的树形结构
      *
      * @param departments 部门列表
-     * @param size
-     * @return 部门分组列表
+     * @return 部门分组列表，根节点人数由调用方按参与人数设置
      */
-    private List<DepartmentGroup> buildHeadquarterDepartmentTree(List<DepartmentSCD2> departments, int size) {
+    private List<DepartmentGroup> buildHeadquarterDepartmentTree(List<DepartmentSCD2> departments) {
         List<DepartmentGroup> result = new ArrayList<>();
 
         // 1. 创建总部根节点（REGION类型，parent_group_id=null）
@@ -462,215 +869,22 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
         headquarterRoot.setCurrentVersion(true);
         headquarterRoot.setValidFrom(LocalDate.now());
         headquarterRoot.setValidTo(LocalDate.of(9999, 12, 31));
-        headquarterRoot.setNum(size);
         result.add(headquarterRoot);
 
-        // 2. 构建部门映射（重要：使用LinkedHashMap避免重复键异常）
-        Map<Long, DepartmentSCD2> deptMap;
-        try {
-            // 使用LinkedHashMap保持顺序，同时避免重复键
-            deptMap = departments.stream()
-                    .collect(Collectors.toMap(
-                        DepartmentSCD2::getDeptId,
-                        d -> d,
-                        (existing, replacement) -> existing,  // 遇到重复保留现有的
-                        LinkedHashMap::new
-                    ));
-        } catch (Exception e) {
-            log.error("构建部门映射时出现异常", e);
-            // 降级处理：手动去重
-            deptMap = new LinkedHashMap<>();
-            for (DepartmentSCD2 dept : departments) {
-                if (!deptMap.containsKey(dept.getDeptId())) {
-                    deptMap.put(dept.getDeptId(), dept);
-                }
-            }
-        }
-
-        log.info("开始构建总部部门映射，共 {} 个部门", departments.size());
-
-        // 3. 从统一配置中获取总部目标部门列表
+        // 2. 从统一配置中获取总部目标部门列表
         List<String> targetDeptNames = unifiedDepartmentConfig.getHeadquarter().getTargetDepartments();
         List<DepartmentSCD2> firstLevel = departments.stream()
                 .filter(d -> targetDeptNames.contains(d.getName()))
                 .collect(Collectors.toList());
 
-        // 4. 处理一级部门（DEPARTMENT类型，parent为总部）
-        for (DepartmentSCD2 dept : firstLevel) {
-            DepartmentGroup group = new DepartmentGroup();
-            group.setGroupId(dept.getDeptId());      // 使用真实的dept_id
-            group.setDeptId(dept.getDeptId());       // 使用真实的dept_id
-            group.setGroupName(dept.getName());
-            group.setGroupType(DepartmentGroupType.DEPARTMENT);
-            group.setParentGroupId(headquarterVirtualId);  // 父节点指向总部（使用配置的虚拟ID）
-            group.setCurrentVersion(true);
-            group.setValidFrom(LocalDate.now());
-            group.setValidTo(LocalDate.of(9999, 12, 31));
-            group.setNum(dept.getNum());
-            result.add(group);
-
-            // 5. 递归处理子部门（group_type=null，层级不限）
-            buildHeadquarterChildGroups(dept.getDeptId(), deptMap, result);
-        }
+        // 3. 一级部门为DEPARTMENT类型（parent为总部），子部门group_type为null，层级不限
+        log.info("开始构建总部分组，共 {} 个部门", departments.size());
+        result.addAll(DepartmentGroupTreeBuilder.build(
+                departments, firstLevel, headquarterVirtualId, DepartmentGroupType.DEPARTMENT));
 
         return result;
     }
 
-    /**
-     * 递归构建总部子部门树
-     *
-     * @param parentId 父部门ID
-     * @param deptMap 所有部门映射
-     * @param result 结果列表
-     */
-    private void buildHeadquarterChildGroups(Long parentId, Map<Long, DepartmentSCD2> deptMap,
-                                            List<DepartmentGroup> result) {
-        for (DepartmentSCD2 dept : deptMap.values()) {
-            if (parentId.equals(dept.getParentId())) {
-                // 子部门的group_type为null
-                DepartmentGroup group = new DepartmentGroup();
-                group.setGroupId(dept.getDeptId());  // 使用真实的dept_id
-                group.setDeptId(dept.getDeptId());   // 使用真实的dept_id
-                group.setGroupName(dept.getName());
-                group.setGroupType(null);            // 子部门group_type为null
-                group.setParentGroupId(dept.getParentId());  // 指向真实的父部门ID
-                group.setCurrentVersion(true);
-                group.setValidFrom(LocalDate.now());
-                group.setValidTo(LocalDate.of(9999, 12, 31));
-                group.setNum(dept.getNum());
-                result.add(group);
-
-                // 继续递归处理下级
-                buildHeadquarterChildGroups(dept.getDeptId(), deptMap, result);
-            }
-        }
-    }
-
-    /**
-     * 将扁平化的数据构建成树形结构
-     * 简化版本：因为group_id和dept_id相同，parent_group_id直接就是父节点的ID
-     *
-     * @param flatList 扁平化的数据列表
-     * @return 树形结构数据
-     */
-    private List<Map<String, Object>> buildTree(List<Map<String, Object>> flatList) {
-        // 构建节点映射：groupId -> node
-        Map<Long, Map<String, Object>> nodeMap = new HashMap<>();
-        List<Map<String, Object>> rootNodes = new ArrayList<>();
-
-        // 第一遍：创建所有节点
-        for (Map<String, Object> item : flatList) {
-            Map<String, Object> node = new HashMap<>();
-
-            // 基本信息
-            Long groupId = ((Number) item.get("group_id")).longValue();
-            Long deptId = ((Number) item.get("dept_id")).longValue();
-            String groupName = (String) item.get("group_name");
-            String groupType = (String) item.get("group_type");
-            Long parentGroupId = item.get("parent_group_id") != null ?
-                ((Number) item.get("parent_group_id")).longValue() : null;
-
-            // 构建节点
-            node.put("groupId", groupId);
-            node.put("deptId", deptId);
-            node.put("groupName", groupName);
-            node.put("groupType", groupType);
-            node.put("parentGroupId", parentGroupId);
-
-            // 添加额外属性
-            node.put("isRoot", parentGroupId == null);
-            node.put("label", groupName);
-            node.put("value", groupId);
-
-            // 子节点列表初始化
-            node.put("children", new ArrayList<Map<String, Object>>());
-
-            // 建立映射关系
-            nodeMap.put(groupId, node);
-        }
-
-        // 第二遍：建立父子关系
-        // 简化：因为group_id和dept_id相同，parent_group_id直接就是父节点的ID
-        for (Map<String, Object> node : nodeMap.values()) {
-            Long parentId = (Long) node.get("parentGroupId");
-
-            if (parentId == null) {
-                // 根节点
-                rootNodes.add(node);
-            } else {
-                // 直接通过parent_group_id找到父节点
-                Map<String, Object> parentNode = nodeMap.get(parentId);
-                if (parentNode != null) {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> children =
-                        (List<Map<String, Object>>) parentNode.get("children");
-                    children.add(node);
-                } else {
-                    // 如果找不到父节点，作为根节点处理
-                    rootNodes.add(node);
-                }
-            }
-        }
-
-        // 对每个节点的子节点进行排序
-        sortTreeNodes(rootNodes);
-
-        return rootNodes;
-    }
-
-    /**
-     * 递归排序树节点
-     *
-     * @param nodes 节点列表
-     */
-    private void sortTreeNodes(List<Map<String, Object>> nodes) {
-        if (nodes == null || nodes.isEmpty()) {
-            return;
-        }
-
-        // 按type和name排序
-        nodes.sort((a, b) -> {
-            String typeA = (String) a.get("groupType");
-            String typeB = (String) b.get("groupType");
-            String nameA = (String) a.get("groupName");
-            String nameB = (String) b.get("groupName");
-
-            // REGION -> DEPARTMENT -> NULL
-            int typeOrderA = getTypeOrder(typeA);
-            int typeOrderB = getTypeOrder(typeB);
-
-            if (typeOrderA != typeOrderB) {
-                return Integer.compare(typeOrderA, typeOrderB);
-            }
-
-            return nameA.compareTo(nameB);
-        });
-
-        // 递归排序子节点
-        for (Map<String, Object> node : nodes) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> children =
-                (List<Map<String, Object>>) node.get("children");
-            sortTreeNodes(children);
-        }
-    }
-
-    /**
-     * 获取类型的排序值
-     *
-     * @param type 类型
-     * @return 排序值
-     */
-    private int getTypeOrder(String type) {
-        if ("REGION".equals(type)) {
-            return 1;
-        } else if ("DEPARTMENT".equals(type)) {
-            return 2;
-        } else {
-            return 3; // NULL or others
-        }
-    }
-
     /**
      * 检查根节点是否存在
      *
@@ -722,90 +936,64 @@ public class DepartmentGroupServiceImpl implements DepartmentGroupService {
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    public int updateShortNameFromExcel(String filePath) {
-        log.info("开始从Excel文件读取映射数据并更新部门简称，文件路径：{}", filePath);
-
-        // 1. 读取Excel文件，构建映射Map
-        Map<String, String> mappingMap = readExcelAndBuildMapping(filePath);
-
-        if (CollectionUtils.isEmpty(mappingMap)) {
-            log.warn("Excel文件中没有有效的映射数据");
-            return 0;
-        }
-
-        log.info("从Excel文件读取到 {} 条映射数据", mappingMap.size());
-
-        // 2. 查询所有记录
-        List<DepartmentGroup> allGroups = departmentGroupMapper.selectList(
-                new LambdaQueryWrapper<DepartmentGroup>()
-                        .in(DepartmentGroup::getGroupType, DepartmentGroupType.getAllCode()));
-
-        if (CollectionUtils.isEmpty(allGroups)) {
-            log.warn("数据库中没有部门记录");
-            return 0;
-        }
-
-        // 3. 匹配并更新简称
-        List<DepartmentGroup> groupsToUpdate  = allGroups.stream()
-                .map(e ->
-                        e.setShortName(mappingMap.getOrDefault(e.getGroupName(), e.getGroupName())))
-                .collect(Collectors.toList());
-
-        if (CollectionUtils.isEmpty(groupsToUpdate)) {
-            log.info("没有需要更新的记录");
-            return 0;
-        }
-
-        // 4. 批量更新
-        int updateCount = departmentGroupMapper.batchUpdateShortName(groupsToUpdate);
-        log.info("成功更新 {} 条记录的简称", updateCount);
-
-        return updateCount;
-    }
-
-    /**
-     * 读取Excel文件并构建映射Map
-     * @param filePath Excel文件路径
-     * @return key-value映射Map
-     */
-    private Map<String, String> readExcelAndBuildMapping(String filePath) {
-        Map<String, String> mappingMap = new HashMap<>();
-
-        try {
-            File file = new File(filePath);
-
-            if (!file.exists()) {
-                throw new RuntimeException("Excel文件不存在: " + filePath);
-            }
-
-            // 读取Excel文件，从第2行开始，读取第2列和第3列
-            EasyExcel.read(file,
-                new AnalysisEventListener<Map<Integer, String>>() {
+    public ExcelImportResultDTO updateShortNameFromExcel(InputStream inputStream) {
+        log.info("开始从Excel导入部门简称");
+        List<String> groupTypes = DepartmentGroupType.getAllCode();
+        Set<String> importedNames = new HashSet<>();
+
+        // 1. 流式读取Excel（第2列部门名称，第3列简称），按批更新
+        ExcelImportResultDTO result = ExcelImporter.importFirstSheet(inputStream, 1, IMPORT_BATCH_SIZE,
+                new ExcelRowHandler<Map.Entry<String, String>>() {
                     @Override
-                    public void invoke(Map<Integer, String> data, AnalysisContext context) {
-                        // 获取第2列(key)和第3列(value)
-                        String key = data.get(1); // 索引从0开始，1代表第2列
-                        String value = data.get(2); // 索引2代表第3列
-
-                        if (key != null && value != null) {
-                            mappingMap.put(key.trim(), value.trim());
+                    public Map.Entry<String, String> parse(Map<Integer, String> row) {
+                        String groupName = trimToNull(row.get(1));
+                        String shortName = trimToNull(row.get(2));
+                        if (groupName == null && shortName == null) {
+                            return null;
+                        }
+                        if (groupName == null || shortName == null) {
+                            throw new IllegalArgumentException("部门名称和简称不能为空");
                         }
+                        return new AbstractMap.SimpleImmutableEntry<>(groupName, shortName);
                     }
 
                     @Override
-                    public void doAfterAllAnalysed(AnalysisContext context) {
-                        log.info("Excel文件读取完成，共读取 {} 条数据", mappingMap.size());
+                    public int write(List<Map.Entry<String, String>> batch) {
+                        // 同一名称在批内出现多次时以最后一行为准
+                        Map<String, Map.Entry<String, String>> distinct = new LinkedHashMap<>();
+                        for (Map.Entry<String, String> mapping : batch) {
+                            distinct.put(mapping.getKey(), mapping);
+                        }
+                        int updated = departmentGroupMapper.updateShortNameByGroupName(distinct.values(), groupTypes);
+                        importedNames.addAll(distinct.keySet());
+                        return updated;
                     }
-                })
-                .sheet()
-                .headRowNumber(1) // 设置标题行为1行，这样就会从第2行开始读取数据
-                .doRead();
+                });
 
-        } catch (Exception e) {
-            log.error("读取Excel文件失败，文件路径：{}", filePath, e);
-            throw new RuntimeException("读取Excel文件失败: " + e.getMessage());
+        // 2. 整张表导入成功后，Excel中没有出现的分组简称恢复为分组名称；
+        //    空表或有错误行时不重置，避免错误的文件清空已有简称
+        if (result.getImportedRows() == 0 || result.getErrorCount() > 0) {
+            log.warn("部门简称导入未全部成功（写入: {}, 错误: {}），保留其他分组的现有简称",
+                    result.getImportedRows(), result.getErrorCount());
+        } else {
+            int resetCount = departmentGroupMapper.resetShortNamesExcept(importedNames, groupTypes);
+            result.setAffectedRecords(result.getAffectedRecords() + resetCount);
+            log.info("已重置 {} 条Excel中未出现的分组简称", resetCount);
         }
 
-        return mappingMap;
+        if (result.getAffectedRecords() > 0) {
+            invalidateTreeCache();
+        }
+        log.info("部门简称导入完成 - 数据行: {}, 写入: {}, 错误: {}, 更新记录: {}",
+                result.getTotalRows(), result.getImportedRows(), result.getErrorCount(), result.getAffectedRecords());
+        return result;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
     }
-}
\ No newline at end of file
+}
@@ -7,16 +7,22 @@ import com.example.dingding.dto.DepartmentSyncResultDTO;
 import com.example.dingding.entity.DepartmentSCD2;
 import com.example.dingding.mapper.DepartmentSCD2Mapper;
 import com.example.dingding.service.IDepartmentSCD2Service;
+import com.example.dingding.service.IOrgTreeService;
+import com.example.dingding.util.LongHashSet;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
  * 部门SCD2服务实现类
@@ -31,6 +37,17 @@ public class DepartmentSCD2ServiceImpl
         extends ServiceImpl<DepartmentSCD2Mapper, DepartmentSCD2>
         implements IDepartmentSCD2Service {
 
+    /**
+     * 批量合并时单条语句处理的最大部门数
+     */
+    private static final int MERGE_BATCH_SIZE = 500;
+
+    @Autowired
+    private IOrgTreeService orgTreeService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * 查找部门的当前版本
      */
@@ -110,47 +127,28 @@ public class DepartmentSCD2ServiceImpl
         // 部门ID不可能变化，这是业务键
         assert Objects.equals(current.getDeptId(), newDept.getDeptId());
 
-        // 检测部门名称变化（去除前后空格进行比较）
-        String currentName = current.getName() == null ? "" : current.getName().trim();
-        String newName = newDept.getName() == null ? "" : newDept.getName().trim();
-        boolean nameChanged = !Objects.equals(currentName, newName);
-
-        // 检测父部门ID变化（注意处理null值）
-        boolean parentChanged = !Objects.equals(current.getParentId(), newDept.getParentId());
-
-        boolean deptNum = !Objects.equals(current.getNum(), newDept.getNum());
-
-        // 如果有变化，记录详细日志
-        if (nameChanged || parentChanged || deptNum) {
-            log.info("检测到部门[{}]发生变化:", current.getDeptId());
-
-            if (nameChanged) {
-                log.info("  - 部门名称: '{}' -> '{}'",
-                        current.getName(), newDept.getName());
-            }
-
-            if (parentChanged) {
-                log.info("  - 父部门ID: {} -> {}",
-                        current.getParentId(), newDept.getParentId());
-            }
-
-            if (deptNum){
-                log.info("  - 部门成员数量: {} -> {}",
-                        current.getNum(), newDept.getNum());
-            }
-
-            return true;
+        // 比较跟踪属性的内容哈希，一次long比较即可判断是否变化
+        long newHash = DepartmentSCD2.computeRowHash(newDept.getParentId(), newDept.getName(), newDept.getNum());
+        if (current.effectiveRowHash() == newHash) {
+            return false;
         }
 
-        log.debug("部门[{}]无变化", current.getDeptId());
-        return false;
+        if (log.isDebugEnabled()) {
+            log.debug("检测到部门[{}]发生变化: 名称 '{}' -> '{}', 父部门ID {} -> {}, 成员数量 {} -> {}",
+                    current.getDeptId(),
+                    current.getName(), newDept.getName(),
+                    current.getParentId(), newDept.getParentId(),
+                    current.getNum(), newDept.getNum());
+        }
+        return true;
     }
 
     /**
      * 执行部门全量同步
+     * 先在单个事务中批量合并；批量合并失败时整体回滚，改为逐个部门独立事务合并，
+     * 单个部门失败只计入失败数，不影响其他部门
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public DepartmentSyncResultDTO syncDepartments(List<DepartmentDTO> departments, LocalDate syncDate) {
         DepartmentSyncResultDTO result = new DepartmentSyncResultDTO()
                 .setStartTime(java.time.LocalDateTime.now())
@@ -165,30 +163,29 @@ public class DepartmentSCD2ServiceImpl
                 return result;
             }
 
-            // 遍历所有部门进行同步
-            for (DepartmentDTO dept : departments) {
-                try {
-                    processDepartment(dept, syncDate, result);
-                } catch (Exception e) {
-                    log.error("处理部门[{}]时发生异常: {}", dept.getDeptId(), e.getMessage(), e);
-                    result.setFailedCount(result.getFailedCount() + 1);
-                }
+            // 一次性加载所有当前版本，在内存中按deptId比对（含已删除部门），关闭和新增分别批量执行
+            int deletedCount;
+            DepartmentSyncResultDTO merged = new DepartmentSyncResultDTO();
+            try {
+                Integer batchDeleted = transactionTemplate.execute(status -> mergeDepartments(departments, syncDate, merged));
+                deletedCount = batchDeleted != null ? batchDeleted : 0;
+                result.setNewCount(merged.getNewCount())
+                        .setChangedCount(merged.getChangedCount())
+                        .setUnchangedCount(merged.getUnchangedCount());
+                result.getChangedDeptIds().addAll(merged.getChangedDeptIds());
+            } catch (Exception e) {
+                log.warn("部门批量合并失败，已回滚，改为逐个部门合并: {}", e.getMessage());
+                deletedCount = mergeDepartmentsOneByOne(departments, syncDate, result);
             }
-
-            // 处理已删除的部门（在钉钉中不存在的部门）
-            List<Long> activeDeptIds = departments.stream()
-                    .map(DepartmentDTO::getDeptId)
-                    .collect(Collectors.toList());
-
-            int deletedCount = handleDeletedDepartments(activeDeptIds, syncDate.minusDays(1));
             result.setChangedCount(result.getChangedCount() + deletedCount);
+            refreshOrgTree();
 
             log.info("部门同步完成 - 总数: {}, 新增: {}, 变更: {}, 未变化: {}, 删除: {}, 失败: {}",
                     result.getTotalCount(),
                     result.getNewCount(),
                     result.getChangedCount(),
                     result.getUnchangedCount(),
-                    0,
+                    deletedCount,
                     result.getFailedCount());
 
         } catch (Exception e) {
@@ -202,26 +199,149 @@ public class DepartmentSCD2ServiceImpl
     }
 
     /**
-     * 处理单个部门的同步逻辑
+     * 合并事务均已提交后重建当前组织树索引，失败时继续使用旧索引
      */
-    private void processDepartment(DepartmentDTO dept, LocalDate syncDate, DepartmentSyncResultDTO result) {
-        // 查找当前版本
-        DepartmentSCD2 current = findCurrentByDeptId(dept.getDeptId());
-
-        if (current == null) {
-            // 新增部门
-            insertNewVersion(dept, syncDate);
-            result.setNewCount(result.getNewCount() + 1);
-            log.info("新增部门: [{}] {}", dept.getDeptId(), dept.getName());
-        } else if (hasChanged(current, dept)) {
-            // 部门发生变化
-            createNewVersionForChangedDept(dept, syncDate);
-            result.setChangedCount(result.getChangedCount() + 1);
-        } else {
-            // 未变化
-            result.setUnchangedCount(result.getUnchangedCount() + 1);
-            log.debug("部门[{}]无变化，跳过", dept.getDeptId());
+    private void refreshOrgTree() {
+        try {
+            orgTreeService.refreshCurrentTree();
+        } catch (Exception e) {
+            log.error("重建组织树索引失败，继续使用旧索引", e);
+        }
+    }
+
+    /**
+     * 逐个部门合并：每个部门的关闭旧版本和插入新版本在独立事务中执行，失败的部门计入失败数
+     *
+     * @return 已删除（在钉钉中不存在）且成功关闭的部门数
+     */
+    private int mergeDepartmentsOneByOne(List<DepartmentDTO> departments, LocalDate syncDate, DepartmentSyncResultDTO result) {
+        List<DepartmentSCD2> snapshot = findAllCurrent();
+        Map<Long, DepartmentSCD2> currentByDeptId = new HashMap<>(snapshot.size() * 2);
+        for (DepartmentSCD2 current : snapshot) {
+            currentByDeptId.put(current.getDeptId(), current);
+        }
+
+        LongHashSet activeDeptIds = new LongHashSet(departments.size());
+        for (DepartmentDTO dept : departments) {
+            activeDeptIds.add(dept.getDeptId());
+            DepartmentSCD2 current = currentByDeptId.get(dept.getDeptId());
+            if (current != null && !hasChanged(current, dept)) {
+                result.setUnchangedCount(result.getUnchangedCount() + 1);
+                continue;
+            }
+            try {
+                transactionTemplate.execute(status -> {
+                    if (current != null) {
+                        baseMapper.closeOldVersion(dept.getDeptId(), syncDate.minusDays(1));
+                    }
+                    return save(DepartmentSCD2.createNewVersion(
+                            dept.getDeptId(), dept.getParentId(), dept.getName(), dept.getNum(), syncDate));
+                });
+                if (current == null) {
+                    result.setNewCount(result.getNewCount() + 1);
+                } else {
+                    result.setChangedCount(result.getChangedCount() + 1);
+                }
+                result.getChangedDeptIds().add(dept.getDeptId());
+            } catch (Exception e) {
+                log.error("处理部门[{}]时发生异常: {}", dept.getDeptId(), e.getMessage(), e);
+                result.setFailedCount(result.getFailedCount() + 1);
+            }
+        }
+
+        int deletedCount = 0;
+        for (Long deptId : findDeletedDeptIds(snapshot, activeDeptIds)) {
+            try {
+                baseMapper.closeOldVersion(deptId, syncDate.minusDays(1));
+                result.getChangedDeptIds().add(deptId);
+                deletedCount++;
+            } catch (Exception e) {
+                log.error("关闭已删除部门[{}]的当前版本失败: {}", deptId, e.getMessage(), e);
+                result.setFailedCount(result.getFailedCount() + 1);
+            }
+        }
+        log.info("部门逐个合并完成 - 关闭已删除部门: {}, 失败: {}", deletedCount, result.getFailedCount());
+        return deletedCount;
+    }
+
+    /**
+     * 批量合并部门：与当前版本快照比对后，批量关闭变化和已删除部门的旧版本并批量插入新版本
+     *
+     * @return 已删除（在钉钉中不存在）的部门数
+     */
+    private int mergeDepartments(List<DepartmentDTO> departments, LocalDate syncDate, DepartmentSyncResultDTO result) {
+        List<DepartmentSCD2> snapshot = findAllCurrent();
+        Map<Long, DepartmentSCD2> currentByDeptId = new HashMap<>(snapshot.size() * 2);
+        for (DepartmentSCD2 current : snapshot) {
+            currentByDeptId.put(current.getDeptId(), current);
+        }
+
+        List<Long> closeDeptIds = new ArrayList<>();
+        List<DepartmentSCD2> newVersions = new ArrayList<>();
+        LongHashSet activeDeptIds = new LongHashSet(departments.size());
+        for (DepartmentDTO dept : departments) {
+            activeDeptIds.add(dept.getDeptId());
+            DepartmentSCD2 current = currentByDeptId.get(dept.getDeptId());
+            if (current == null) {
+                // 新增部门
+                newVersions.add(DepartmentSCD2.createNewVersion(
+                        dept.getDeptId(), dept.getParentId(), dept.getName(), dept.getNum(), syncDate));
+                result.setNewCount(result.getNewCount() + 1);
+                result.getChangedDeptIds().add(dept.getDeptId());
+                log.info("新增部门: [{}] {}", dept.getDeptId(), dept.getName());
+            } else if (hasChanged(current, dept)) {
+                // 部门发生变化：关闭旧版本（失效日期为生效日期的前一天）并创建新版本
+                closeDeptIds.add(dept.getDeptId());
+                newVersions.add(DepartmentSCD2.createNewVersion(
+                        dept.getDeptId(), dept.getParentId(), dept.getName(), dept.getNum(), syncDate));
+                result.setChangedCount(result.getChangedCount() + 1);
+                result.getChangedDeptIds().add(dept.getDeptId());
+            } else {
+                // 未变化
+                result.setUnchangedCount(result.getUnchangedCount() + 1);
+            }
+        }
+
+        // 快照中存在、钉钉返回列表中不存在的部门视为已删除，与变化部门一起关闭
+        List<Long> deletedDeptIds = findDeletedDeptIds(snapshot, activeDeptIds);
+        if (!deletedDeptIds.isEmpty()) {
+            log.info("发现{}个已删除的部门: {}", deletedDeptIds.size(), deletedDeptIds);
+            closeDeptIds.addAll(deletedDeptIds);
+            result.getChangedDeptIds().addAll(deletedDeptIds);
+        }
+
+        // 先关闭旧版本再插入新版本，保证同一部门只有一个当前版本
+        closeOldVersionsInBatches(closeDeptIds, syncDate.minusDays(1));
+        if (!newVersions.isEmpty()) {
+            saveBatch(newVersions, MERGE_BATCH_SIZE);
+        }
+        log.info("部门批量合并完成 - 关闭旧版本: {}, 插入新版本: {}", closeDeptIds.size(), newVersions.size());
+        return deletedDeptIds.size();
+    }
+
+    /**
+     * 线性扫描当前版本快照，找出不在活跃部门集合中的部门
+     */
+    private List<Long> findDeletedDeptIds(List<DepartmentSCD2> snapshot, LongHashSet activeDeptIds) {
+        List<Long> deletedDeptIds = new ArrayList<>();
+        for (DepartmentSCD2 current : snapshot) {
+            if (!activeDeptIds.contains(current.getDeptId())) {
+                deletedDeptIds.add(current.getDeptId());
+            }
+        }
+        return deletedDeptIds;
+    }
+
+    /**
+     * 分块批量关闭当前版本
+     */
+    private int closeOldVersionsInBatches(List<Long> deptIds, LocalDate closeDate) {
+        int updated = 0;
+        for (int from = 0; from < deptIds.size(); from += MERGE_BATCH_SIZE) {
+            List<Long> chunk = deptIds.subList(from, Math.min(from + MERGE_BATCH_SIZE, deptIds.size()));
+            updated += baseMapper.batchCloseOldVersions(chunk, closeDate);
         }
+        return updated;
     }
 
     /**
@@ -230,18 +350,15 @@ public class DepartmentSCD2ServiceImpl
     @Override
     @Transactional(rollbackFor = Exception.class)
     public int handleDeletedDepartments(List<Long> activeDeptIds, LocalDate closeDate) {
-        // 查找所有当前版本部门
-        List<DepartmentSCD2> allCurrent = findAllCurrent();
+        LongHashSet activeDeptIdSet = new LongHashSet(activeDeptIds.size());
+        activeDeptIds.forEach(activeDeptIdSet::add);
 
         // 找出已删除的部门（在当前版本中但不在钉钉返回列表中的部门）
-        List<Long> deletedDeptIds = allCurrent.stream()
-                .map(DepartmentSCD2::getDeptId)
-                .filter(deptId -> !activeDeptIds.contains(deptId))
-                .collect(Collectors.toList());
+        List<Long> deletedDeptIds = findDeletedDeptIds(findAllCurrent(), activeDeptIdSet);
 
         if (!CollectionUtils.isEmpty(deletedDeptIds)) {
             log.info("发现{}个已删除的部门: {}", deletedDeptIds.size(), deletedDeptIds);
-            int updated = baseMapper.batchCloseOldVersions(deletedDeptIds, closeDate);
+            int updated = closeOldVersionsInBatches(deletedDeptIds, closeDate);
             log.info("成功关闭{}个已删除部门的当前版本", updated);
             return updated;
         }
@@ -5,28 +5,39 @@ import com.alibaba.fastjson2.JSONObject;
 import com.aliyun.dingtalkworkflow_1_0.models.GetProcessInstanceResponseBody;
 import com.aliyun.tea.TeaException;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.dingtalk.api.DefaultDingTalkClient;
-import com.dingtalk.api.DingTalkClient;
 import com.dingtalk.api.request.*;
 import com.dingtalk.api.response.*;
+import com.example.dingding.client.DingTalkOapiClient;
+import com.example.dingding.client.DingTalkTokenManager;
 import com.example.dingding.config.JyOaConstants;
 import com.example.dingding.config.DingdingConfig;
 import com.example.dingding.service.DingTalkOAService;
 import com.example.dingding.dto.DepartmentDTO;
 import com.example.dingding.entity.*;
 import com.example.dingding.service.*;
+import com.example.dingding.sync.DingTalkRateLimiter;
+import com.example.dingding.sync.IngestPipeline;
+import com.example.dingding.sync.SyncCheckpointTracker;
+import com.example.dingding.sync.OaSyncUnit;
+import com.example.dingding.sync.ProposalFactProjector;
+import com.example.dingding.sync.SyncWorkerPool;
 import com.taobao.api.ApiException;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 
@@ -41,10 +52,29 @@ import java.util.stream.Collectors;
 @Service
 public class DingTalkOAServiceImpl implements DingTalkOAService {
 
-    private static final String TOKEN_CACHE_KEY = "dingding:token:access_token_oajy";
     //private static final Long ROOT_DEPT_ID = 14479368L; // 根部门ID
     private static final Long ROOT_DEPT_ID = 1L; // 根部门ID
 
+    /**
+     * listProcessInstanceIds 每页最大记录数（接口上限20）
+     */
+    private static final Long LIST_IDS_MAX_RESULTS = 20L;
+
+    /**
+     * listProcessInstanceIds 单次请求允许的最大发起人数量（接口上限10）
+     */
+    private static final int LIST_IDS_MAX_USER_IDS = 10;
+
+    /**
+     * 已结束的流程实例状态，刷新时跳过
+     */
+    private static final List<String> TERMINAL_STATUSES = Arrays.asList("COMPLETED", "TERMINATED", "CANCELED");
+
+    /**
+     * 刷新未结束实例时每页加载的实例数
+     */
+    private static final int REFRESH_PAGE_SIZE = 1000;
+
     @Autowired
     private DingdingConfig dingdingConfig;
 
@@ -69,6 +99,30 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
     @Autowired
     private IDepartmentSCD2Service departmentSCD2Service;
 
+    @Autowired
+    private ISyncCheckpointService syncCheckpointService;
+
+    @Autowired
+    private IProposalKpiService proposalKpiService;
+
+    @Autowired
+    private IProposalFactService proposalFactService;
+
+    @Autowired
+    private DingTalkTokenManager tokenManager;
+
+    @Autowired
+    private DingTalkOapiClient oapiClient;
+
+    @Autowired
+    private SyncWorkerPool syncWorkerPool;
+
+    @Autowired
+    private DingTalkRateLimiter rateLimiter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     // 钉钉Workflow API客户端（懒加载）
     private volatile com.aliyun.dingtalkworkflow_1_0.Client workflowClient;
 
@@ -111,56 +165,193 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
             log.info("从部门表获取到{}个部门", departments.size());
 
             // 2. 获取access_token
-            String accessToken = getValidAccessToken();
+            String accessToken = tokenManager.getAccessToken();
             if (!StringUtils.hasText(accessToken)) {
                 log.error("获取access_token失败，无法进行OA数据同步");
                 return;
             }
 
-            // 3. 统计信息
-            int totalDepts = 0;
-            int totalUsers = 0;
-            int totalInstances = 0;
             departments = Arrays.asList(new DepartmentSCD2().setDeptId(747454379L)); //开发部 测试用
-            // 4. 遍历每个部门，实时获取用户ID
-            for (DepartmentSCD2 dept : departments) {
-                try {
-                    // 获取部门下的所有用户ID（实时从API获取）
-                    Set<Object> userIds =  redisTemplate.opsForSet().members(JyOaConstants.DEPT_USER_IDS + dept.getDeptId());
-                    if (!CollectionUtils.isEmpty(userIds)) {
-                        totalUsers += userIds.size();
-                        log.debug("部门[{}]获取到{}个用户", dept.getDeptId(), userIds.size());
-
-                        // 处理每个用户的OA数据
-                        for (String formId : JyOaConstants.FORM_MAP.keySet()) {
-                            for (Object userId : userIds) {
-                                List<String> instanceIds = getFormInstantIds(formId, String.valueOf(userId), startTime);
-                                if (!CollectionUtils.isEmpty(instanceIds)) {
-                                    totalInstances += instanceIds.size();
-                                    log.info("表单ID: {}, 用户ID: {}, 从时间{}开始获取到{}个实例ID",
-                                            formId, userId, startTime, instanceIds.size());
-                                    syncProcessInstanceDetails(instanceIds, formId);
-                                }
-                            }
+
+            // 3. 按部门把用户合并成批次；每个 (表单, 部门) 从检查点（或指定的开始时间）拆分时间范围，
+            //    展开为 (表单, 部门, 用户批次, 时间段) 同步单元；部门成员变化后检查点失效，从回溯起点重新同步
+            LocalDateTime syncUntil = LocalDateTime.now();
+            LocalDateTime defaultStart = syncUntil.minusDays(dingdingConfig.getSync().getInitialLookbackDays());
+            Map<Long, List<List<String>>> deptUserBatches = buildDeptUserBatches(departments);
+            Map<Long, String> membersHashes = new HashMap<>();
+            for (Map.Entry<Long, List<List<String>>> entry : deptUserBatches.entrySet()) {
+                List<String> members = new ArrayList<>();
+                entry.getValue().forEach(members::addAll);
+                membersHashes.put(entry.getKey(), ISyncCheckpointService.membersHash(members));
+            }
+            Map<String, SyncCheckpoint> checkpoints = startTime == null
+                    ? syncCheckpointService.loadCheckpoints() : Collections.emptyMap();
+            SyncCheckpointTracker checkpointTracker = new SyncCheckpointTracker((processCode, deptId, lastCreateTime) ->
+                    syncCheckpointService.advance(processCode, deptId, lastCreateTime, membersHashes.get(deptId)));
+
+            List<OaSyncUnit> units = new ArrayList<>();
+            for (String formId : JyOaConstants.FORM_MAP.keySet()) {
+                for (Map.Entry<Long, List<List<String>>> entry : deptUserBatches.entrySet()) {
+                    SyncCheckpoint checkpoint = checkpoints.get(ISyncCheckpointService.key(formId, entry.getKey()));
+                    LocalDateTime scopeStart = startTime != null ? startTime
+                            : checkpoint != null && membersHashes.get(entry.getKey()).equals(checkpoint.getMembersHash())
+                            ? checkpoint.getLastCreateTime() : defaultStart;
+                    if (!scopeStart.isBefore(syncUntil)) {
+                        continue;
+                    }
+                    for (TimeRange range : splitTimeRanges(scopeStart, syncUntil)) {
+                        SyncCheckpointTracker.Window window = checkpointTracker.register(
+                                formId, entry.getKey(), range.getEndTime(), entry.getValue().size());
+                        for (List<String> userBatch : entry.getValue()) {
+                            units.add(new OaSyncUnit(formId, entry.getKey(), userBatch,
+                                    range.getStartTime(), range.getEndTime(), window));
                         }
                     }
-                    totalDepts++;
-
-                    // 添加API调用间隔，避免触发频率限制
-                    Thread.sleep(dingdingConfig.getApi().getApiCallInterval());
-
-                } catch (Exception e) {
-                    log.error("处理部门[{}]时发生异常: {}", dept.getDeptId(), e.getMessage(), e);
                 }
             }
+            log.info("OA同步单元构建完成 - 部门: {}, 用户批次: {}, 单元总数: {}, 起始: {}",
+                    deptUserBatches.size(), deptUserBatches.values().stream().mapToInt(List::size).sum(),
+                    units.size(), startTime != null ? startTime : "检查点");
 
-            log.info("OA数据同步完成 - 处理部门: {}, 用户: {}, 实例: {}", totalDepts, totalUsers, totalInstances);
+            // 4. 同步单元负责ID分页，详情获取、解析和写库由流水线异步完成
+            SyncRecord detailRecord = syncRecordService.startSync("PROCESS_DETAILS", 0);
+            IngestPipeline<InstanceTask, ProcessInstanceDetails> pipeline = newDetailPipeline();
+            try {
+                syncWorkerPool.runAll("OA_SYNC", units, unit -> syncUnit(unit, pipeline));
+            } finally {
+                pipeline.close();
+                finishDetailSync(detailRecord, pipeline);
+            }
+            refreshKpiRollups();
 
         } catch (Exception e) {
             log.error("同步OA数据时发生异常", e);
         }
     }
 
+    /**
+     * 按部门读取用户并切分为不超过接口上限的批次
+     * 同一用户出现在多个部门时只归入第一个部门，避免重复查询
+     *
+     * @param departments 部门列表
+     * @return 部门ID -> 用户批次列表
+     */
+    private Map<Long, List<List<String>>> buildDeptUserBatches(List<DepartmentSCD2> departments) {
+        Map<Long, List<List<String>>> deptUserBatches = new LinkedHashMap<>();
+        Set<String> assignedUserIds = new HashSet<>();
+        for (DepartmentSCD2 dept : departments) {
+            Set<Object> userIds = redisTemplate.opsForSet().members(JyOaConstants.DEPT_USER_IDS + dept.getDeptId());
+            if (CollectionUtils.isEmpty(userIds)) {
+                continue;
+            }
+            log.debug("部门[{}]获取到{}个用户", dept.getDeptId(), userIds.size());
+
+            List<List<String>> batches = new ArrayList<>();
+            List<String> batch = new ArrayList<>(LIST_IDS_MAX_USER_IDS);
+            for (Object userId : userIds) {
+                String id = String.valueOf(userId);
+                if (!assignedUserIds.add(id)) {
+                    continue;
+                }
+                batch.add(id);
+                if (batch.size() == LIST_IDS_MAX_USER_IDS) {
+                    batches.add(batch);
+                    batch = new ArrayList<>(LIST_IDS_MAX_USER_IDS);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.add(batch);
+            }
+            if (!batches.isEmpty()) {
+                deptUserBatches.put(dept.getDeptId(), batches);
+            }
+        }
+        return deptUserBatches;
+    }
+
+    /**
+     * 执行单个同步单元：分页获取实例ID，每页过滤后提交到详情流水线
+     *
+     * @param unit 同步单元
+     * @param pipeline 详情流水线
+     * @return 获取到的实例ID数量
+     */
+    private int syncUnit(OaSyncUnit unit, IngestPipeline<InstanceTask, ProcessInstanceDetails> pipeline) {
+        int total;
+        try {
+            total = listFormInstanceIdsForRange(unit.getFormId(), unit.getUserIds(), unit.getStartTime(), unit.getEndTime(),
+                    pageIds -> submitNewInstances(pageIds, unit, pipeline));
+        } catch (RuntimeException e) {
+            unit.getWindow().unitDone(false);
+            throw e;
+        }
+        unit.getWindow().unitDone(true);
+        if (total > 0) {
+            log.info("表单ID: {}, 部门ID: {}, 用户数: {}, 时间段{} - {}获取到{}个实例ID",
+                    unit.getFormId(), unit.getDeptId(), unit.getUserIds().size(),
+                    unit.getStartTime(), unit.getEndTime(), total);
+        }
+        return total;
+    }
+
+    /**
+     * 跳过已存在的实例，其余提交到详情流水线
+     * 每页只做一次批量判重查询，在调用详情接口之前完成过滤
+     */
+    private void submitNewInstances(List<String> pageIds, OaSyncUnit unit,
+                                    IngestPipeline<InstanceTask, ProcessInstanceDetails> pipeline) {
+        Set<String> existingIds = processInstanceService.findExistingInstanceIds(pageIds);
+        if (!existingIds.isEmpty()) {
+            log.debug("本页{}个流程实例已存在，跳过", existingIds.size());
+        }
+        for (String instanceId : pageIds) {
+            if (!existingIds.contains(instanceId)) {
+                unit.getWindow().itemSubmitted();
+                pipeline.submit(new InstanceTask(instanceId, unit.getFormId(), unit.getWindow()));
+            }
+        }
+    }
+
+    /**
+     * 创建流程详情流水线：详情获取+解析 -> 批量写库
+     */
+    private IngestPipeline<InstanceTask, ProcessInstanceDetails> newDetailPipeline() {
+        DingdingConfig.Sync sync = dingdingConfig.getSync();
+        return new IngestPipeline<>("oa-detail",
+                sync.getDetailThreads(),
+                sync.getPipelineQueueCapacity(),
+                sync.getPersistBatchSize(),
+                this::fetchProcessInstanceDetails,
+                this::saveProcessInstanceDetailsBatch);
+    }
+
+    /**
+     * 流水线获取阶段：获取并解析详情，获取失败时直接结束所属检查点窗口中的该实例
+     */
+    private ProcessInstanceDetails fetchProcessInstanceDetails(InstanceTask task) {
+        ProcessInstanceDetails details = getProcessInstanceDetails(task.getInstanceId(), task.getFormId());
+        if (details == null) {
+            task.getWindow().itemDone(false);
+        } else {
+            details.setWindow(task.getWindow());
+        }
+        return details;
+    }
+
+    /**
+     * 根据流水线统计结果记录详情同步完成情况
+     */
+    private void finishDetailSync(SyncRecord syncRecord, IngestPipeline<InstanceTask, ProcessInstanceDetails> pipeline) {
+        syncRecord.setTotalCount(pipeline.getSubmittedCount());
+        if (pipeline.getFailedCount() == 0) {
+            syncRecordService.completeSync(syncRecord, pipeline.getPersistedCount());
+        } else {
+            syncRecordService.failSync(syncRecord, pipeline.getPersistedCount(),
+                    String.format("获取详情失败%d条，写库失败%d条",
+                            pipeline.getFetchFailedCount(), pipeline.getPersistFailedCount()));
+        }
+    }
+
     /**
      * 拆分时间范围为不超过3个月的多个时间段
      * @param startTime 开始时间
@@ -205,6 +396,9 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
                         com.aliyun.teaopenapi.models.Config config = new com.aliyun.teaopenapi.models.Config();
                         config.protocol = "https";
                         config.regionId = "central";
+                        config.connectTimeout = dingdingConfig.getApi().getConnectTimeout();
+                        config.readTimeout = dingdingConfig.getApi().getReadTimeout();
+                        config.maxIdleConns = dingdingConfig.getApi().getMaxConnections();
                         workflowClient = new com.aliyun.dingtalkworkflow_1_0.Client(config);
                         log.debug("成功初始化钉钉Workflow API客户端");
                     } catch (Exception e) {
@@ -218,22 +412,25 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
     }
 
     /**
-     * 获取指定时间范围内的表单实例ID（单个时间范围，不超过3个月）
+     * 分页获取指定时间范围内的表单实例ID（单个时间范围，不超过3个月）
+     * 每获取一页立即交给pageHandler处理，不在内存中累积全部ID
      * @param formId 表单ID
-     * @param userId 用户ID
+     * @param userIds 用户ID批次（不超过10个）
      * @param startTime 开始时间
      * @param endTime 结束时间
-     * @return 实例ID列表
+     * @param pageHandler 每页实例ID的处理器
+     * @return 实例ID总数
+     * @throws IllegalStateException 调用钉钉接口失败时抛出，由同步引擎计入失败单元
      */
-    private List<String> getFormInstantIdsForRange(String formId, String userId, LocalDateTime startTime, LocalDateTime endTime) {
+    private int listFormInstanceIdsForRange(String formId, List<String> userIds, LocalDateTime startTime, LocalDateTime endTime,
+                                            Consumer<List<String>> pageHandler) {
         try {
-            log.info("开始获取表单实例ID，表单ID: {}, 用户ID: {}, 查询时间: {}", formId, userId, startTime);
+            log.info("开始获取表单实例ID，表单ID: {}, 用户ID: {}, 查询时间: {}", formId, userIds, startTime);
 
             // 1. 获取有效的access_token
-            String accessToken = getValidAccessToken();
+            String accessToken = tokenManager.getAccessToken();
             if (!StringUtils.hasText(accessToken)) {
-                log.error("获取access_token失败，无法获取表单实例ID");
-                return Collections.emptyList();
+                throw new IllegalStateException("获取access_token失败，无法获取表单实例ID");
             }
 
             // 2. 获取Workflow客户端（单例，避免重复初始化）
@@ -251,11 +448,10 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
             log.info("查询时间范围: {} - {}",
                     new java.util.Date(startTimeMillis), new java.util.Date(endTimeMillis));
 
-            // 5. 用于存储所有获取到的实例ID
-            List<String> allInstanceIds = new ArrayList<>();
+            // 5. 已获取的实例ID总数
+            int totalCount = 0;
             Long nextToken = 0L; // 首次调用使用0
             int pageCount = 0; // 记录分页次数
-            final Long maxResults = 20L; // 每页最大记录数
 
             // 6. 循环获取所有分页数据
             while (true) {
@@ -269,10 +465,11 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
                         .setEndTime(endTimeMillis)
                         .setProcessCode(formId)  // 使用传入的表单ID
                         .setNextToken(nextToken)
-                        .setMaxResults(maxResults)
-                        .setUserIds(java.util.Arrays.asList(userId)); // 使用传入的用户ID
+                        .setMaxResults(LIST_IDS_MAX_RESULTS)
+                        .setUserIds(userIds); // 整批用户一次查询
 
-                // 调用API获取结果
+                // 调用API获取结果（共享令牌桶限流）
+                rateLimiter.acquire();
                 com.aliyun.dingtalkworkflow_1_0.models.ListProcessInstanceIdsResponse response =
                     client.listProcessInstanceIdsWithOptions(request, headers, new com.aliyun.teautil.models.RuntimeOptions());
 
@@ -287,15 +484,16 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
                             // 获取当前页的实例ID列表
                             List<String> currentPageIds = result.getList();
                             if (currentPageIds != null && !currentPageIds.isEmpty()) {
-                                allInstanceIds.addAll(currentPageIds);
+                                totalCount += currentPageIds.size();
                                 log.info("第{}页获取到{}个实例ID，累计总数: {}",
-                                        pageCount, currentPageIds.size(), allInstanceIds.size());
+                                        pageCount, currentPageIds.size(), totalCount);
+                                pageHandler.accept(currentPageIds);
                             }
                             // 检查是否还有下一页
                             String nextToken1 = result.getNextToken();
                             if (nextToken1 == null) {
                                 log.info("已获取到所有数据，共{}页，总计{}个实例ID",
-                                        pageCount, allInstanceIds.size());
+                                        pageCount, totalCount);
                                 break; // 没有下一页，退出循环
                             }else {
                                 nextToken = Long.valueOf(nextToken1);
@@ -315,214 +513,36 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
 
                 // 防止无限循环，设置最大分页数限制
                 if (pageCount > 1000) {
-                    log.warn("分页查询超过1000页，强制结束，当前总数: {}", allInstanceIds.size());
+                    log.warn("分页查询超过1000页，强制结束，当前总数: {}", totalCount);
                     break;
                 }
             }
 
             log.info("表单实例ID获取完成，表单ID: {}, 用户ID: {}, 总页数: {}, 总实例数: {}",
-                    formId, userId, pageCount, allInstanceIds.size());
-            log.debug("表单实例ID列表: {}", allInstanceIds);
+                    formId, userIds, pageCount, totalCount);
 
-            return allInstanceIds;
+            return totalCount;
 
         } catch (TeaException err) {
             log.error("获取表单实例ID时发生TeaException，表单ID: {}, 用户ID: {}, 错误代码: {}, 错误信息: {}",
-                    formId, userId, err.getCode(), err.getMessage());
+                    formId, userIds, err.getCode(), err.getMessage());
 
             if (!com.aliyun.teautil.Common.empty(err.code) && !com.aliyun.teautil.Common.empty(err.message)) {
                 log.error("TeaException详细信息 - Code: {}, Message: {}", err.code, err.message);
             }
+            throw new IllegalStateException("获取表单实例ID失败，表单ID: " + formId + ", 用户ID: " + userIds, err);
+
+        } catch (IllegalStateException e) {
+            throw e;
 
         } catch (Exception _err) {
             TeaException err = new TeaException(_err.getMessage(), _err);
-            log.error("获取表单实例ID时发生异常，表单ID: {}, 用户ID: {}", formId, userId, err);
+            log.error("获取表单实例ID时发生异常，表单ID: {}, 用户ID: {}", formId, userIds, err);
 
             if (!com.aliyun.teautil.Common.empty(err.code) && !com.aliyun.teautil.Common.empty(err.message)) {
                 log.error("异常详细信息 - Code: {}, Message: {}", err.code, err.message);
             }
-        }
-
-        // 失败时返回空列表
-        log.warn("获取表单实例ID失败，返回空列表，表单ID: {}, 用户ID: {}", formId, userId);
-        return Collections.emptyList();
-    }
-
-    /**
-     * 处理超过3个月时间范围的表单实例ID查询
-     * @param formId 表单ID
-     * @param userId 用户ID
-     * @param startTime 开始时间
-     * @param endTime 结束时间
-     * @return 实例ID列表（去重后）
-     */
-    private List<String> getFormInstantIdsWithSplit(String formId, String userId,
-                                                  LocalDateTime startTime, LocalDateTime endTime) {
-        try {
-            // 拆分时间范围
-            List<TimeRange> timeRanges = splitTimeRanges(startTime, endTime);
-            Set<String> allInstanceIds = new HashSet<>();
-            int totalSplitCount = timeRanges.size();
-
-            log.info("开始处理{}个时间段的查询，表单ID: {}, 用户ID: {}", totalSplitCount, formId, userId);
-
-            for (int i = 0; i < timeRanges.size(); i++) {
-                TimeRange range = timeRanges.get(i);
-                try {
-                    log.info("处理第{}/{}个时间段: {}", i + 1, totalSplitCount, range);
-
-                    // 调用单个时间范围的查询
-                    List<String> rangeInstanceIds = getFormInstantIdsForRange(
-                            formId, userId, range.getStartTime(), range.getEndTime());
-
-                    if (!CollectionUtils.isEmpty(rangeInstanceIds)) {
-                        allInstanceIds.addAll(rangeInstanceIds);
-                        log.info("第{}个时间段获取到{}个实例ID，累计总数: {}",
-                                i + 1, rangeInstanceIds.size(), allInstanceIds.size());
-                    } else {
-                        log.info("第{}个时间段未获取到实例ID", i + 1);
-                    }
-
-                    // 添加API调用间隔，避免触发频率限制
-                    if (i < timeRanges.size() - 1) {
-                        try {
-                            Thread.sleep(dingdingConfig.getApi().getApiCallInterval());
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            log.warn("API调用间隔被中断", e);
-                            break;
-                        }
-                    }
-
-                } catch (Exception e) {
-                    log.error("处理时间段{}时发生异常: {}", range, e.getMessage(), e);
-                    // 继续处理其他时间段
-                }
-            }
-
-            List<String> result = new ArrayList<>(allInstanceIds);
-            log.info("多时间段查询完成，表单ID: {}, 用户ID: {}, 总时间段数: {}, 最终实例数: {}",
-                    formId, userId, totalSplitCount, result.size());
-
-            return result;
-
-        } catch (Exception e) {
-            log.error("处理多时间段查询时发生异常，表单ID: {}, 用户ID: {}", formId, userId, e);
-            return Collections.emptyList();
-        }
-    }
-
-    /**
-     * 获取表单实例ID的主方法，支持时间拆分和结果合并
-     * @param formId 表单ID
-     * @param userId 用户ID
-     * @param startTime 开始时间
-     * @param endTime 结束时间（可选，不传时默认为当前时间）
-     * @return 实例ID列表
-     */
-    private List<String> getFormInstantIds(String formId, String userId,
-                                         LocalDateTime startTime, LocalDateTime endTime) {
-        try {
-            // 参数验证
-            if (startTime == null) {
-                throw new IllegalArgumentException("startTime不能为空");
-            }
-            if (endTime == null) {
-                endTime = LocalDateTime.now();
-                log.debug("endTime为空，使用当前时间作为默认值: {}", endTime);
-            }
-            if (startTime.isAfter(endTime)) {
-                throw new IllegalArgumentException("startTime不能晚于endTime");
-            }
-
-            log.info("开始查询表单实例ID，表单ID: {}, 用户ID: {}, 时间范围: {} - {}",
-                    formId, userId, startTime, endTime);
-
-            // 检查时间间隔是否超过3个月
-            LocalDateTime threeMonthsLater = startTime.plusMonths(3);
-            if (threeMonthsLater.isAfter(endTime) || threeMonthsLater.isEqual(endTime)) {
-                // 不超过3个月，直接调用原逻辑
-                log.debug("时间间隔不超过3个月，直接查询");
-                return getFormInstantIdsForRange(formId, userId, startTime, endTime);
-            } else {
-                // 超过3个月，拆分时间范围
-                log.info("时间间隔超过3个月，将拆分为多个时间段查询");
-                return getFormInstantIdsWithSplit(formId, userId, startTime, endTime);
-            }
-
-        } catch (Exception e) {
-            log.error("获取表单实例ID失败，表单ID: {}, 用户ID: {}", formId, userId, e);
-            return Collections.emptyList();
-        }
-    }
-
-    /**
-     * 获取表单实例ID（向后兼容方法，endTime默认为当前时间）
-     * @param formId 表单ID
-     * @param userId 用户ID
-     * @param startTime 开始时间
-     * @return 实例ID列表
-     */
-    private List<String> getFormInstantIds(String formId, String userId, LocalDateTime startTime) {
-        return getFormInstantIds(formId, userId, startTime, LocalDateTime.now());
-    }
-
-    /**
-     * 获取有效的access_token
-     * 优先从Redis缓存获取，如果不存在或过期则重新获取
-     *
-     * @return access_token
-     */
-    private String getValidAccessToken() {
-        try {
-            // 先从Redis缓存获取
-            String cachedToken = (String) redisTemplate.opsForValue().get(TOKEN_CACHE_KEY);
-            if (StringUtils.hasText(cachedToken)) {
-                //log.debug("从Redis缓存获取到access_token");
-                return cachedToken;
-            }
-
-            // 缓存不存在，重新获取
-            log.info("缓存中无access_token，开始重新获取");
-            return refreshTokenFromDingTalk();
-
-        } catch (Exception e) {
-            log.error("获取access_token时发生异常", e);
-            return null;
-        }
-    }
-
-    /**
-     * 从钉钉服务器重新获取access_token
-     *
-     * @return 新的access_token
-     */
-    private String refreshTokenFromDingTalk() {
-        try {
-            String url = dingdingConfig.getApi().getBaseUrl() + dingdingConfig.getApi().getTokenUrl();
-            DingTalkClient client = new DefaultDingTalkClient(url);
-            OapiGettokenRequest request = new OapiGettokenRequest();
-            request.setAppkey(dingdingConfig.getApp().getAppKey());
-            request.setAppsecret(dingdingConfig.getApp().getAppSecret());
-
-            OapiGettokenResponse response = client.execute(request);
-
-            if (response.isSuccess() && response.getAccessToken() != null) {
-                String accessToken = response.getAccessToken();
-
-                // 缓存到Redis，设置过期时间
-                long expireTime = dingdingConfig.getToken().getCacheDuration(); // 转换为秒
-                redisTemplate.opsForValue().set(TOKEN_CACHE_KEY, accessToken, expireTime, TimeUnit.SECONDS);
-                log.info("成功获取并缓存access_token，过期时间{}秒", expireTime);
-                return accessToken;
-            } else {
-                log.error("获取access_token失败：{}", response.getErrmsg());
-                return null;
-            }
-
-        } catch (ApiException e) {
-            log.error("调用钉钉获取access_token API失败", e);
-            return null;
+            throw new IllegalStateException("获取表单实例ID失败，表单ID: " + formId + ", 用户ID: " + userIds, _err);
         }
     }
 
@@ -539,16 +559,13 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
         Long cursor = 0L;
         Long size = 50L; // 每页大小
 
-        String url = dingdingConfig.getApi().getBaseUrl() + dingdingConfig.getApi().getUserListUrl();
-
         while (true) {
-            DingTalkClient client = new DefaultDingTalkClient(url);
             OapiV2UserListRequest request = new OapiV2UserListRequest();
             request.setDeptId(deptId);
             request.setCursor(cursor);
             request.setSize(size);
 
-            OapiV2UserListResponse response = client.execute(request, accessToken);
+            OapiV2UserListResponse response = oapiClient.execute(dingdingConfig.getApi().getUserListUrl(), request, accessToken);
 
             if (response.isSuccess() && response.getResult() != null) {
                 OapiV2UserListResponse.PageResult pageResult = response.getResult();
@@ -575,67 +592,6 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
         return userIds;
     }
 
-    /**
-     * 同步流程实例详情
-     *
-     * @param instanceIds 实例ID列表
-     * @param formId 表单ID（用作processCode）
-     */
-    private void syncProcessInstanceDetails(List<String> instanceIds, String formId) {
-        if (CollectionUtils.isEmpty(instanceIds)) {
-            return;
-        }
-
-        // 记录同步开始
-        SyncRecord syncRecord = syncRecordService.startSync("PROCESS_DETAILS", instanceIds.size());
-        int successCount = 0;
-        int failCount = 0;
-        StringBuilder errorMessages = new StringBuilder();
-
-        try {
-            for (String instanceId : instanceIds) {
-                try {
-                    // 检查是否已存在
-                    ProcessInstance existingInstance = processInstanceService.getByProcessInstanceId(instanceId);
-                    if (existingInstance != null) {
-                        log.debug("流程实例已存在，跳过: {}", instanceId);
-                        successCount++;
-                        continue;
-                    }
-
-                    // 获取流程实例详情
-                    ProcessInstanceDetails details = getProcessInstanceDetails(instanceId, formId);
-                    if (details != null) {
-                        // 保存数据
-                        saveProcessInstanceDetails(details);
-                        successCount++;
-                        log.debug("成功保存流程实例详情: {}", instanceId);
-                    } else {
-                        failCount++;
-                        errorMessages.append("获取流程实例详情失败: ").append(instanceId).append("; ");
-                    }
-                } catch (Exception e) {
-                    failCount++;
-                    errorMessages.append("处理流程实例失败: ").append(instanceId).append(", 错误: ").append(e.getMessage()).append("; ");
-                    log.error("处理流程实例失败: {}", instanceId, e);
-                }
-            }
-
-            // 记录同步完成
-            if (failCount == 0) {
-                syncRecordService.completeSync(syncRecord, successCount);
-            } else {
-                syncRecordService.failSync(syncRecord, successCount, errorMessages.toString());
-            }
-
-            log.info("同步流程实例详情完成，总数: {}, 成功: {}, 失败: {}", instanceIds.size(), successCount, failCount);
-
-        } catch (Exception e) {
-            syncRecordService.failSync(syncRecord, successCount, "同步过程中发生异常: " + e.getMessage());
-            log.error("同步流程实例详情时发生异常", e);
-        }
-    }
-
     /**
      * 获取流程实例详情
      *
@@ -645,7 +601,7 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
      */
     private ProcessInstanceDetails getProcessInstanceDetails(String instanceId, String formId) {
         try {
-            String accessToken = getValidAccessToken();
+            String accessToken = tokenManager.getAccessToken();
             if (!StringUtils.hasText(accessToken)) {
                 log.error("获取access_token失败，无法获取流程实例详情");
                 return null;
@@ -664,6 +620,7 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
                     .setProcessInstanceId(instanceId);
 
             // 调用API
+            rateLimiter.acquire();
             com.aliyun.dingtalkworkflow_1_0.models.GetProcessInstanceResponse response =
                 client.getProcessInstanceWithOptions(request, headers, new com.aliyun.teautil.models.RuntimeOptions());
 
@@ -771,6 +728,7 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
 
                     operationRecords.add(or);
                 }
+                fillStepDurations(operationRecords);
                 details.setOperationRecords(operationRecords);
             }
 
@@ -790,24 +748,146 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
     }
 
     /**
-     * 保存流程实例详情
+     * 批量保存流程实例详情
+     * 整批实例连同表单组件值、操作记录和提案事实在一个事务中写入，任一写入失败整批回滚后逐条重试，
+     * 每条同样在独立事务中写入主表和子表，不会留下缺少子表数据的实例（下次同步会因实例已存在而跳过它）；
+     * 只有事务提交后才通知检查点窗口成功，异常退出时本批未通知的实例均按失败处理
+     *
+     * @param batch 流程实例详情
+     * @return 成功保存的实例数
+     */
+    private int saveProcessInstanceDetailsBatch(List<ProcessInstanceDetails> batch) {
+        try {
+            return doSaveProcessInstanceDetailsBatch(batch);
+        } finally {
+            for (ProcessInstanceDetails details : batch) {
+                markPersisted(details, false);
+            }
+        }
+    }
+
+    private int doSaveProcessInstanceDetailsBatch(List<ProcessInstanceDetails> batch) {
+        List<ProcessInstance> instances = batch.stream()
+                .map(ProcessInstanceDetails::getProcessInstance)
+                .collect(Collectors.toList());
+        try {
+            transactionTemplate.execute(status -> {
+                processInstanceService.saveBatch(instances);
+                saveDetailChildren(batch);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("批量保存{}个流程实例失败，已回滚，改为逐条保存: {}", batch.size(), e.getMessage());
+            int successCount = 0;
+            for (ProcessInstanceDetails details : batch) {
+                boolean saved = false;
+                try {
+                    saveProcessInstanceDetails(details);
+                    saved = true;
+                } catch (Exception ex) {
+                    log.error("保存流程实例失败: {}", details.getProcessInstance().getProcessInstanceId(), ex);
+                }
+                if (saved) {
+                    successCount++;
+                    proposalKpiService.markDirty(Collections.singletonList(details.getProcessInstance()));
+                }
+                markPersisted(details, saved);
+            }
+            return successCount;
+        }
+
+        proposalKpiService.markDirty(instances);
+        for (ProcessInstanceDetails details : batch) {
+            markPersisted(details, true);
+        }
+        log.debug("批量保存流程实例详情完成，共{}条", batch.size());
+        return batch.size();
+    }
+
+    /**
+     * 把一批流程实例的关键表单字段投影为提案事实
+     */
+    private List<ProposalFact> projectProposalFacts(List<ProcessInstanceDetails> batch) {
+        List<ProposalFact> facts = new ArrayList<>(batch.size());
+        for (ProcessInstanceDetails details : batch) {
+            ProposalFact fact = ProposalFactProjector.project(details.getProcessInstance(), details.getFormComponentValues());
+            if (fact != null) {
+                facts.add(fact);
+            }
+        }
+        return facts;
+    }
+
+    /**
+     * 通知检查点窗口该实例已处理结束，每个实例只通知一次，重复调用忽略
+     */
+    private void markPersisted(ProcessInstanceDetails details, boolean success) {
+        if (details.isPersistReported()) {
+            return;
+        }
+        details.setPersistReported(true);
+        if (details.getWindow() != null) {
+            details.getWindow().itemDone(success);
+        }
+    }
+
+    /**
+     * 在一个事务中保存单个流程实例详情，主表或任一子表写入失败时整体回滚并抛出异常
      */
     private void saveProcessInstanceDetails(ProcessInstanceDetails details) {
-        // 保存主流程实例
-        processInstanceService.saveOrUpdate(details.getProcessInstance());
+        transactionTemplate.execute(status -> {
+            if (!processInstanceService.saveOrUpdate(details.getProcessInstance())) {
+                throw new IllegalStateException("保存流程实例失败");
+            }
+            saveDetailChildren(Collections.singletonList(details));
+            return null;
+        });
+    }
 
-        // 批量保存表单组件值
-        if (details.getFormComponentValues() != null && !details.getFormComponentValues().isEmpty()) {
-            formComponentValueService.saveBatch(details.getFormComponentValues());
+    /**
+     * 写入一批实例的表单组件值、操作记录和提案事实，需在调用方的事务中执行；
+     * 子表服务以返回false表示失败，这里转为异常使事务回滚
+     */
+    private void saveDetailChildren(List<ProcessInstanceDetails> batch) {
+        List<FormComponentValue> formComponentValues = batch.stream()
+                .filter(details -> details.getFormComponentValues() != null)
+                .flatMap(details -> details.getFormComponentValues().stream())
+                .collect(Collectors.toList());
+        if (!formComponentValues.isEmpty() && !formComponentValueService.saveBatch(formComponentValues)) {
+            throw new IllegalStateException("保存表单组件值失败");
         }
 
-        // 批量保存操作记录
-        if (details.getOperationRecords() != null && !details.getOperationRecords().isEmpty()) {
-            operationRecordService.saveBatch(details.getOperationRecords());
+        List<OperationRecord> operationRecords = batch.stream()
+                .filter(details -> details.getOperationRecords() != null)
+                .flatMap(details -> details.getOperationRecords().stream())
+                .collect(Collectors.toList());
+        if (!operationRecords.isEmpty() && !operationRecordService.saveBatch(operationRecords)) {
+            throw new IllegalStateException("保存操作记录失败");
         }
 
-        // 根据要求，tasks不需要解析和保存
-        log.debug("跳过tasks保存，按业务要求不需要存储");
+        // 关键表单字段投影为提案事实；根据要求，tasks不需要解析和保存
+        proposalFactService.upsertBatch(projectProposalFacts(batch));
+    }
+
+    /**
+     * 计算每条操作记录的环节耗时：到本实例下一个更晚操作的秒数，最后一个操作（及同时刻的操作）为null
+     */
+    static void fillStepDurations(List<OperationRecord> records) {
+        List<OperationRecord> dated = records.stream()
+                .filter(record -> record.getOperationDate() != null)
+                .sorted(Comparator.comparing(OperationRecord::getOperationDate))
+                .collect(Collectors.toList());
+        LocalDateTime next = null;
+        int i = dated.size() - 1;
+        while (i >= 0) {
+            LocalDateTime date = dated.get(i).getOperationDate();
+            Long duration = next != null ? Duration.between(date, next).getSeconds() : null;
+            while (i >= 0 && dated.get(i).getOperationDate().equals(date)) {
+                dated.get(i).setDurationSeconds(duration);
+                i--;
+            }
+            next = date;
+        }
     }
 
     /**
@@ -852,7 +932,52 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
         return componentName.contains("等级") ||
                componentName.contains("经济效益") ||
                componentName.contains("类别") ||
-               componentName.contains("改善");
+               componentName.contains("改善") ||
+               componentName.contains(ProposalFactProjector.DECLARED_DATE);
+    }
+
+    /**
+     * 刷新变更统计内部类（仅由流水线写库线程更新）
+     */
+    private static class RefreshStats {
+        private int changedInstances;
+        private int changedComponents;
+        private int appendedRecords;
+    }
+
+    /**
+     * 详情流水线输入项内部类
+     */
+    private static class InstanceTask {
+        private final String instanceId;
+        private final String formId;
+        private final SyncCheckpointTracker.Window window;
+
+        public InstanceTask(String instanceId, String formId, SyncCheckpointTracker.Window window) {
+            this.instanceId = instanceId;
+            this.formId = formId;
+            this.window = window;
+        }
+
+        public String getInstanceId() {
+            return instanceId;
+        }
+
+        public String getFormId() {
+            return formId;
+        }
+
+        public SyncCheckpointTracker.Window getWindow() {
+            return window;
+        }
+
+        @Override
+        public String toString() {
+            return "InstanceTask{" +
+                    "instanceId='" + instanceId + '\'' +
+                    ", formId='" + formId + '\'' +
+                    '}';
+        }
     }
 
     /**
@@ -863,6 +988,8 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
         private List<FormComponentValue> formComponentValues;
         private List<OperationRecord> operationRecords;
         private List<Task> tasks;
+        private SyncCheckpointTracker.Window window;
+        private boolean persistReported;
 
         // getters and setters
         public ProcessInstance getProcessInstance() { return processInstance; }
@@ -873,6 +1000,10 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
         public void setOperationRecords(List<OperationRecord> operationRecords) { this.operationRecords = operationRecords; }
         public List<Task> getTasks() { return tasks; }
         public void setTasks(List<Task> tasks) { this.tasks = tasks; }
+        public SyncCheckpointTracker.Window getWindow() { return window; }
+        public void setWindow(SyncCheckpointTracker.Window window) { this.window = window; }
+        public boolean isPersistReported() { return persistReported; }
+        public void setPersistReported(boolean persistReported) { this.persistReported = persistReported; }
     }
 
     @Override
@@ -881,15 +1012,14 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
 
         try {
             // 1. 获取有效的access_token
-            String accessToken = getValidAccessToken();
+            String accessToken = tokenManager.getAccessToken();
             if (!StringUtils.hasText(accessToken)) {
                 log.error("获取access_token失败，无法获取部门信息");
                 return Collections.emptyList();
             }
 
-            // 2. 递归获取所有部门信息
-            List<DepartmentDTO> allDepartments = new ArrayList<>();
-            recursionGetDepartmentsWithDetails(ROOT_DEPT_ID, accessToken, allDepartments, new HashSet<>());
+            // 2. 按层并发获取所有部门信息
+            List<DepartmentDTO> allDepartments = crawlDepartmentTree(accessToken);
 
             //3.获取userids设置num并缓存到redis
             getDeptUserIds(allDepartments);
@@ -903,6 +1033,236 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
         }
     }
 
+    @Override
+    public void refreshRunningInstances() {
+        long runningCount = processInstanceService.count(runningInstanceQuery());
+        log.info("开始刷新未结束的流程实例，共{}个", runningCount);
+        if (runningCount == 0) {
+            return;
+        }
+
+        SyncRecord syncRecord = syncRecordService.startSync("PROCESS_REFRESH", (int) runningCount);
+        RefreshStats stats = new RefreshStats();
+        DingdingConfig.Sync sync = dingdingConfig.getSync();
+        IngestPipeline<ProcessInstance, ProcessInstanceDetails> pipeline = new IngestPipeline<>("oa-refresh",
+                sync.getDetailThreads(),
+                sync.getPipelineQueueCapacity(),
+                sync.getPersistBatchSize(),
+                instance -> getProcessInstanceDetails(instance.getProcessInstanceId(), instance.getProcessCode()),
+                batch -> applyInstanceChangesInTransaction(batch, stats));
+        try {
+            // 按主键分页提交，避免一次性加载全部未结束实例
+            Long lastId = 0L;
+            while (true) {
+                List<ProcessInstance> page = processInstanceService.list(runningInstanceQuery()
+                        .select(ProcessInstance::getId, ProcessInstance::getProcessInstanceId, ProcessInstance::getProcessCode)
+                        .gt(ProcessInstance::getId, lastId)
+                        .orderByAsc(ProcessInstance::getId)
+                        .last("LIMIT " + REFRESH_PAGE_SIZE));
+                page.forEach(pipeline::submit);
+                if (page.size() < REFRESH_PAGE_SIZE) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+            }
+        } finally {
+            pipeline.close();
+        }
+
+        syncRecord.setExtraData(String.format("{\"changedInstances\":%d,\"changedComponents\":%d,\"appendedRecords\":%d}",
+                stats.changedInstances, stats.changedComponents, stats.appendedRecords));
+        if (pipeline.getFailedCount() == 0) {
+            syncRecordService.completeSync(syncRecord, pipeline.getPersistedCount());
+        } else {
+            syncRecordService.failSync(syncRecord, pipeline.getPersistedCount(),
+                    String.format("获取详情失败%d条，写库失败%d条",
+                            pipeline.getFetchFailedCount(), pipeline.getPersistFailedCount()));
+        }
+        log.info("流程实例刷新完成 - 实例变更: {}, 组件变更: {}, 新增操作记录: {}",
+                stats.changedInstances, stats.changedComponents, stats.appendedRecords);
+        refreshKpiRollups();
+    }
+
+    /**
+     * 未结束流程实例的查询条件，状态为空的实例同样视为未结束
+     */
+    private LambdaQueryWrapper<ProcessInstance> runningInstanceQuery() {
+        return new LambdaQueryWrapper<ProcessInstance>()
+                .and(wrapper -> wrapper.notIn(ProcessInstance::getStatus, TERMINAL_STATUSES)
+                        .or()
+                        .isNull(ProcessInstance::getStatus));
+    }
+
+    /**
+     * 在独立事务中写入一批实例的变更，任一子表写入失败时整批回滚，不会留下半更新的实例
+     */
+    private int applyInstanceChangesInTransaction(List<ProcessInstanceDetails> batch, RefreshStats stats) {
+        Integer applied = transactionTemplate.execute(status -> applyInstanceChanges(batch, stats));
+        return applied != null ? applied : 0;
+    }
+
+    /**
+     * 重算本次同步涉及日期的提案指标汇总，失败时不影响同步结果，登记的日期留待下次重算
+     */
+    private void refreshKpiRollups() {
+        try {
+            proposalKpiService.refreshDirtyPeriods();
+        } catch (Exception e) {
+            log.error("提案指标汇总失败", e);
+        }
+    }
+
+    /**
+     * 将重新获取的详情与库中数据比对，只写入有变化的行
+     * 主表和表单组件值按主键更新，操作记录只追加库中没有的记录
+     *
+     * @param batch 重新获取的流程实例详情
+     * @param stats 变更统计
+     * @return 成功比对写入的实例数
+     */
+    private int applyInstanceChanges(List<ProcessInstanceDetails> batch, RefreshStats stats) {
+        List<ProcessInstanceDetails> valid = batch.stream()
+                .filter(details -> details.getProcessInstance().getProcessInstanceId() != null)
+                .collect(Collectors.toList());
+        if (valid.isEmpty()) {
+            return 0;
+        }
+        List<String> instanceIds = valid.stream()
+                .map(details -> details.getProcessInstance().getProcessInstanceId())
+                .collect(Collectors.toList());
+
+        // 一次性加载本批实例在库中的数据
+        Map<String, ProcessInstance> storedInstances = processInstanceService.list(new LambdaQueryWrapper<ProcessInstance>()
+                        .in(ProcessInstance::getProcessInstanceId, instanceIds))
+                .stream()
+                .collect(Collectors.toMap(ProcessInstance::getProcessInstanceId, pi -> pi, (a, b) -> a));
+        Map<String, List<FormComponentValue>> storedComponents = formComponentValueService.list(new LambdaQueryWrapper<FormComponentValue>()
+                        .in(FormComponentValue::getProcessInstanceId, instanceIds))
+                .stream()
+                .collect(Collectors.groupingBy(FormComponentValue::getProcessInstanceId));
+        Map<String, List<OperationRecord>> storedRecords = operationRecordService.list(new LambdaQueryWrapper<OperationRecord>()
+                        .in(OperationRecord::getProcessInstanceId, instanceIds))
+                .stream()
+                .collect(Collectors.groupingBy(OperationRecord::getProcessInstanceId));
+
+        List<ProcessInstance> instanceUpdates = new ArrayList<>();
+        List<FormComponentValue> componentUpdates = new ArrayList<>();
+        List<FormComponentValue> componentInserts = new ArrayList<>();
+        List<OperationRecord> recordInserts = new ArrayList<>();
+        List<OperationRecord> recordUpdates = new ArrayList<>();
+        List<ProcessInstance> kpiChanges = new ArrayList<>();
+        List<ProcessInstanceDetails> factChanges = new ArrayList<>();
+
+        for (ProcessInstanceDetails details : valid) {
+            ProcessInstance fresh = details.getProcessInstance();
+            ProcessInstance stored = storedInstances.get(fresh.getProcessInstanceId());
+            if (stored == null) {
+                continue;
+            }
+
+            // 1. 主表：状态、结果、完成时间等有变化时按主键更新（employee_title等空字段不会被覆盖）
+            boolean kpiChanged = false;
+            if (isInstanceChanged(stored, fresh)) {
+                fresh.setId(stored.getId());
+                instanceUpdates.add(fresh);
+                kpiChanged = true;
+            }
+
+            // 2. 表单组件值：按组件ID比对值
+            if (details.getFormComponentValues() != null) {
+                int componentChanges = componentUpdates.size() + componentInserts.size();
+                Map<String, FormComponentValue> storedByComponent = storedComponents
+                        .getOrDefault(fresh.getProcessInstanceId(), Collections.emptyList())
+                        .stream()
+                        .filter(fcv -> fcv.getComponentId() != null)
+                        .collect(Collectors.toMap(FormComponentValue::getComponentId, fcv -> fcv, (a, b) -> a));
+                for (FormComponentValue fcv : details.getFormComponentValues()) {
+                    FormComponentValue storedFcv = storedByComponent.get(fcv.getComponentId());
+                    if (storedFcv == null) {
+                        componentInserts.add(fcv);
+                    } else if (!Objects.equals(storedFcv.getValue(), fcv.getValue())
+                            || !Objects.equals(storedFcv.getExtValue(), fcv.getExtValue())) {
+                        fcv.setId(storedFcv.getId());
+                        componentUpdates.add(fcv);
+                    }
+                }
+                if (componentUpdates.size() + componentInserts.size() > componentChanges) {
+                    kpiChanged = true;
+                    factChanges.add(details);
+                }
+            }
+            if (kpiChanged) {
+                kpiChanges.add(stored);
+            }
+
+            // 3. 操作记录：追加新出现的记录；原最后环节在有后续操作后补上耗时
+            if (details.getOperationRecords() != null) {
+                Map<String, OperationRecord> storedByKey = storedRecords
+                        .getOrDefault(fresh.getProcessInstanceId(), Collections.emptyList())
+                        .stream()
+                        .collect(Collectors.toMap(this::operationRecordKey, record -> record, (a, b) -> a));
+                for (OperationRecord record : details.getOperationRecords()) {
+                    OperationRecord storedRecord = storedByKey.get(operationRecordKey(record));
+                    if (storedRecord == null) {
+                        recordInserts.add(record);
+                    } else if (record.getDurationSeconds() != null
+                            && !record.getDurationSeconds().equals(storedRecord.getDurationSeconds())) {
+                        OperationRecord update = new OperationRecord();
+                        update.setId(storedRecord.getId());
+                        update.setDurationSeconds(record.getDurationSeconds());
+                        recordUpdates.add(update);
+                    }
+                }
+            }
+        }
+
+        if (!instanceUpdates.isEmpty()) {
+            processInstanceService.updateBatchById(instanceUpdates);
+        }
+        if (!componentUpdates.isEmpty()) {
+            formComponentValueService.updateBatchById(componentUpdates);
+        }
+        if (!componentInserts.isEmpty() && !formComponentValueService.saveBatch(componentInserts)) {
+            throw new IllegalStateException("新增表单组件值失败");
+        }
+        if (!recordInserts.isEmpty() && !operationRecordService.saveBatch(recordInserts)) {
+            throw new IllegalStateException("追加操作记录失败");
+        }
+        if (!recordUpdates.isEmpty()) {
+            operationRecordService.updateBatchById(recordUpdates);
+        }
+
+        proposalFactService.upsertBatch(projectProposalFacts(factChanges));
+        proposalKpiService.markDirty(kpiChanges);
+
+        stats.changedInstances += instanceUpdates.size();
+        stats.changedComponents += componentUpdates.size() + componentInserts.size();
+        stats.appendedRecords += recordInserts.size();
+        return valid.size();
+    }
+
+    /**
+     * 判断流程实例主表字段是否有变化
+     */
+    private boolean isInstanceChanged(ProcessInstance stored, ProcessInstance fresh) {
+        return !Objects.equals(stored.getStatus(), fresh.getStatus())
+                || !Objects.equals(stored.getResult(), fresh.getResult())
+                || !Objects.equals(stored.getFinishTime(), fresh.getFinishTime())
+                || !Objects.equals(stored.getTitle(), fresh.getTitle())
+                || !Objects.equals(stored.getBizAction(), fresh.getBizAction())
+                || !Objects.equals(stored.getBizData(), fresh.getBizData())
+                || !Objects.equals(stored.getAttachedProcessInstanceIds(), fresh.getAttachedProcessInstanceIds())
+                || !Objects.equals(stored.getCcUserids(), fresh.getCcUserids());
+    }
+
+    /**
+     * 操作记录去重键：操作时间 + 操作人 + 操作类型 + 节点
+     */
+    private String operationRecordKey(OperationRecord record) {
+        return record.getOperationDate() + "|" + record.getUserId() + "|"
+                + record.getOperationType() + "|" + record.getActivityId();
+    }
+
     @Override
     public void syncEmployeeTitle(LocalDateTime dateTime) {
         List<ProcessInstance> list = processInstanceService.list(new LambdaQueryWrapper<ProcessInstance>()
@@ -938,7 +1298,7 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
         log.info("从部门表获取到{}个部门", departments.size());
 
         // 2. 获取access_token
-        String accessToken = getValidAccessToken();
+        String accessToken = tokenManager.getAccessToken();
         if (!StringUtils.hasText(accessToken)) {
             log.error("获取access_token失败，无法进行OA数据同步");
             return;
@@ -967,10 +1327,9 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
 
     private String getUserInfoFromDing(String userId) {
         try {
-            DingTalkClient client = new DefaultDingTalkClient(dingdingConfig.getApi().getBaseUrl() + dingdingConfig.getApi().getUserGet());
             OapiV2UserGetRequest req = new OapiV2UserGetRequest();
             req.setUserid(userId);
-            OapiV2UserGetResponse rsp = client.execute(req, getValidAccessToken());
+            OapiV2UserGetResponse rsp = oapiClient.execute(dingdingConfig.getApi().getUserGet(), req, tokenManager.getAccessToken());
             OapiV2UserGetResponse.UserGetResponse result = rsp.getResult();
             Thread.sleep(dingdingConfig.getApi().getApiCallInterval());
             return result.getTitle();
@@ -980,35 +1339,152 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
         return null;
     }
 
+    /**
+     * 并发补充部门人数并缓存部门用户ID
+     * 每个部门的两次接口调用由共享令牌桶限流，失败按配置重试；单个部门失败不影响其他部门，
+     * 成功部门的用户ID集合通过Redis管道一次性写入；
+     * 失败部门沿用当前版本的人数，避免SCD2合并时因人数为空生成虚假的新版本
+     *
+     * @param allDepartments 所有部门，重试后仍失败且无当前版本的新部门会被移除，留待下次同步
+     */
     private void getDeptUserIds(List<DepartmentDTO> allDepartments) {
-        for (DepartmentDTO dept : allDepartments){
+        int totalCount = allDepartments.size();
+        SyncRecord syncRecord = syncRecordService.startSync("DEPT_ENRICH", totalCount);
+        List<List<String>> deptUserIds = syncWorkerPool.mapAll(allDepartments, this::enrichDepartment);
+
+        List<DepartmentDTO> failedDepartments = new ArrayList<>();
+        Map<Long, List<String>> cacheEntries = new LinkedHashMap<>();
+        for (int i = 0; i < totalCount; i++) {
+            List<String> userIds = deptUserIds.get(i);
+            if (userIds == null) {
+                failedDepartments.add(allDepartments.get(i));
+            } else {
+                cacheEntries.put(allDepartments.get(i).getDeptId(), userIds);
+            }
+        }
+        cacheDeptUserIds(cacheEntries);
+        carryOverFailedDepartments(allDepartments, failedDepartments);
+
+        int failedCount = failedDepartments.size();
+        int successCount = totalCount - failedCount;
+        if (failedCount == 0) {
+            syncRecordService.completeSync(syncRecord, successCount);
+        } else {
+            syncRecordService.failSync(syncRecord, successCount, String.format("%d个部门获取人员信息失败", failedCount));
+        }
+        log.info("部门人员信息补充完成 - 部门: {}, 成功: {}, 失败: {}", totalCount, successCount, failedCount);
+    }
+
+    /**
+     * 获取人员信息失败的部门沿用当前版本的人数；没有当前版本的新部门无法判断人数，从本次同步中移除
+     *
+     * @param allDepartments    所有部门
+     * @param failedDepartments 获取人员信息失败的部门
+     */
+    private void carryOverFailedDepartments(List<DepartmentDTO> allDepartments, List<DepartmentDTO> failedDepartments) {
+        if (failedDepartments.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> currentNums = new HashMap<>();
+        for (DepartmentSCD2 current : departmentSCD2Service.findAllCurrent()) {
+            currentNums.put(current.getDeptId(), current.getNum());
+        }
+        Set<DepartmentDTO> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DepartmentDTO dept : failedDepartments) {
+            if (currentNums.containsKey(dept.getDeptId())) {
+                dept.setNum(currentNums.get(dept.getDeptId()));
+            } else {
+                skipped.add(dept);
+            }
+        }
+        if (!skipped.isEmpty()) {
+            allDepartments.removeIf(skipped::contains);
+            log.warn("{}个新部门获取人员信息失败，本次不写入部门版本", skipped.size());
+        }
+    }
+
+    /**
+     * 获取单个部门的用户ID列表并回填部门人数，失败时按配置重试
+     *
+     * @param dept 部门
+     * @return 部门直属用户ID，重试后仍失败时返回null
+     */
+    private List<String> enrichDepartment(DepartmentDTO dept) {
+        int attempts = Math.max(1, dingdingConfig.getSync().getEnrichRetryTimes() + 1);
+        for (int i = 1; i <= attempts; i++) {
             try {
-                String url = dingdingConfig.getApi().getBaseUrl() + dingdingConfig.getApi().getListUserid();
-                DingTalkClient client = new DefaultDingTalkClient(url);
+                backoffBeforeRetry(i);
                 OapiUserListidRequest req = new OapiUserListidRequest();
                 req.setDeptId(dept.getDeptId());
-                OapiUserListidResponse rsp = client.execute(req, getValidAccessToken());
+                rateLimiter.acquire();
+                OapiUserListidResponse rsp = oapiClient.execute(dingdingConfig.getApi().getListUserid(), req, tokenManager.getAccessToken());
                 UserIdResponse userIdResponseDTO = JSONObject.parseObject(rsp.getBody(), UserIdResponse.class);
-                if (userIdResponseDTO.getErrcode() == 0 && !userIdResponseDTO.getResult().getUserid_list().isEmpty()){
-                    redisTemplate.opsForSet().add(JyOaConstants.DEPT_USER_IDS + dept.getDeptId(), userIdResponseDTO.getResult().getUserid_list().toArray(new String[0]));
+                if (userIdResponseDTO.getErrcode() != 0) {
+                    throw new IllegalStateException("获取部门用户ID失败：" + userIdResponseDTO.getErrmsg());
                 }
-                Thread.sleep(dingdingConfig.getApi().getApiCallInterval());
-                
-                DingTalkClient client1 = new DefaultDingTalkClient(dingdingConfig.getApi().getBaseUrl() + dingdingConfig.getApi().getDepartmentGet());
+
                 OapiV2DepartmentGetRequest req1 = new OapiV2DepartmentGetRequest();
                 req1.setDeptId(dept.getDeptId());
-                OapiV2DepartmentGetResponse rsp1 = client1.execute(req1, getValidAccessToken());
+                rateLimiter.acquire();
+                OapiV2DepartmentGetResponse rsp1 = oapiClient.execute(dingdingConfig.getApi().getDepartmentGet(), req1, tokenManager.getAccessToken());
                 JSONObject parsed = JSON.parseObject(rsp1.getBody());
-                if (parsed.getInteger("errcode") == 0){
-                    Integer deptNum = parsed.getJSONObject("result").getInteger("member_count");
-                    dept.setNum(deptNum);
+                if (parsed.getInteger("errcode") != 0) {
+                    throw new IllegalStateException("获取部门详情失败：" + parsed.getString("errmsg"));
                 }
+                dept.setNum(parsed.getJSONObject("result").getInteger("member_count"));
+
+                List<String> userIds = userIdResponseDTO.getResult() != null && userIdResponseDTO.getResult().getUserid_list() != null
+                        ? userIdResponseDTO.getResult().getUserid_list() : Collections.emptyList();
                 log.info("获取到部门{}，下员工列表{}个", dept.getName(), dept.getNum());
+                return userIds;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
             } catch (Exception e) {
-                log.info("获取部门信息报错：", e.getMessage(), e);
-                throw new RuntimeException(e);
+                log.warn("获取部门{}人员信息失败（第{}/{}次）：{}", dept.getDeptId(), i, attempts, e.getMessage());
             }
         }
+        log.error("获取部门{}人员信息重试后仍失败", dept.getDeptId());
+        return null;
+    }
+
+    /**
+     * 重试前按次数线性退避，第一次调用不等待
+     *
+     * @param attempt 当前调用次数（从1开始）
+     * @throws InterruptedException 等待时被中断
+     */
+    private void backoffBeforeRetry(int attempt) throws InterruptedException {
+        if (attempt > 1) {
+            Thread.sleep(dingdingConfig.getSync().getRetryBackoffMillis() * (attempt - 1));
+        }
+    }
+
+    /**
+     * 通过Redis管道批量写入部门用户ID集合
+     * 每个部门先删除旧集合再写入，已离开部门的用户随之移除；管道内命令按顺序执行
+     *
+     * @param deptUserIds 部门ID -> 用户ID列表
+     */
+    @SuppressWarnings("unchecked")
+    private void cacheDeptUserIds(Map<Long, List<String>> deptUserIds) {
+        if (deptUserIds.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (Map.Entry<Long, List<String>> entry : deptUserIds.entrySet()) {
+                    String key = JyOaConstants.DEPT_USER_IDS + entry.getKey();
+                    ops.delete(key);
+                    if (!entry.getValue().isEmpty()) {
+                        ops.opsForSet().add(key, entry.getValue().toArray());
+                    }
+                }
+                return null;
+            }
+        });
     }
 
     @Data
@@ -1026,66 +1502,105 @@ public class DingTalkOAServiceImpl implements DingTalkOAService {
 
 
     /**
-     * 递归获取部门详细信息的核心方法
-     * 改进版：直接利用获取子部门API返回的信息
+     * 按层（广度优先）抓取部门树
+     * 同一层的所有部门并发调用listsub，由共享令牌桶限流；父部门总是排在子部门之前。
+     * 任一部门的子部门列表重试后仍获取失败时整棵树不完整，直接失败，
+     * 避免SCD2合并把未抓到的子树当作已删除部门关闭
      *
-     * @param deptId 当前部门ID
      * @param accessToken 访问令牌
-     * @param allDepartments 所有部门信息集合
-     * @param processedDeptIds 已处理的部门ID集合（防止重复处理）
+     * @return 所有部门信息（含根部门）
+     * @throws IllegalStateException 有部门的子部门列表获取失败
      */
-    private void recursionGetDepartmentsWithDetails(Long deptId, String accessToken,
-                                                   List<DepartmentDTO> allDepartments,
-                                                   Set<Long> processedDeptIds) {
-        if (deptId == null || processedDeptIds.contains(deptId)) {
-            return;
-        }
-
-        processedDeptIds.add(deptId);
+    private List<DepartmentDTO> crawlDepartmentTree(String accessToken) {
+        List<DepartmentDTO> allDepartments = new ArrayList<>();
+        Set<Long> visitedDeptIds = ConcurrentHashMap.newKeySet();
+
+        // 根部门特殊处理：钉钉API中根部门(1)不返回详情，需要特殊处理
+        allDepartments.add(new DepartmentDTO()
+                .setDeptId(ROOT_DEPT_ID)
+                .setParentId(null)
+                .setName("根部门"));
+        visitedDeptIds.add(ROOT_DEPT_ID);
+
+        List<Long> frontier = Collections.singletonList(ROOT_DEPT_ID);
+        int level = 0;
+        while (!frontier.isEmpty()) {
+            level++;
+            List<List<DepartmentDTO>> children = syncWorkerPool.mapAll(frontier,
+                    deptId -> listSubDepartments(deptId, accessToken, visitedDeptIds));
+
+            List<Long> failedDeptIds = new ArrayList<>();
+            for (int i = 0; i < frontier.size(); i++) {
+                if (children.get(i) == null) {
+                    failedDeptIds.add(frontier.get(i));
+                }
+            }
+            if (!failedDeptIds.isEmpty()) {
+                throw new IllegalStateException(String.format("第%d层%d个部门的子部门列表获取失败，部门树不完整，放弃本次同步: %s",
+                        level, failedDeptIds.size(), failedDeptIds));
+            }
 
-        try {
-            // 根部门特殊处理：钉钉API中根部门(1)不返回详情，需要特殊处理
-            if (ROOT_DEPT_ID.equals(deptId)) {
-                DepartmentDTO rootDept = new DepartmentDTO()
-                        .setDeptId(ROOT_DEPT_ID)
-                        .setParentId(null)
-                        .setName("根部门");
-                allDepartments.add(rootDept);
-                log.debug("添加根部门: ID={}, Name={}", ROOT_DEPT_ID, "根部门");
+            List<Long> nextFrontier = new ArrayList<>();
+            for (List<DepartmentDTO> subDepartments : children) {
+                for (DepartmentDTO dept : subDepartments) {
+                    allDepartments.add(dept);
+                    nextFrontier.add(dept.getDeptId());
+                }
             }
+            log.debug("第{}层部门抓取完成，父部门{}个，子部门{}个", level, frontier.size(), nextFrontier.size());
+            frontier = nextFrontier;
+        }
 
-            // 获取子部门列表，这里会返回子部门的详细信息
-            String url = dingdingConfig.getApi().getBaseUrl() + dingdingConfig.getApi().getDepartmentListUrl();
-            DingTalkClient client = new DefaultDingTalkClient(url);
-            OapiV2DepartmentListsubRequest request = new OapiV2DepartmentListsubRequest();
-            request.setDeptId(deptId);
+        log.info("部门树抓取完成，共{}层，{}个部门", level, allDepartments.size());
+        return allDepartments;
+    }
 
-            OapiV2DepartmentListsubResponse response = client.execute(request, accessToken);
+    /**
+     * 获取单个部门的直属子部门，已访问过的部门会被过滤；失败时按配置退避重试
+     *
+     * @param deptId 父部门ID
+     * @param accessToken 访问令牌
+     * @param visitedDeptIds 已访问的部门ID（多线程共享）
+     * @return 子部门列表，重试后仍失败时返回null
+     */
+    private List<DepartmentDTO> listSubDepartments(Long deptId, String accessToken, Set<Long> visitedDeptIds) {
+        int attempts = Math.max(1, dingdingConfig.getSync().getEnrichRetryTimes() + 1);
+        for (int i = 1; i <= attempts; i++) {
+            try {
+                backoffBeforeRetry(i);
+                OapiV2DepartmentListsubRequest request = new OapiV2DepartmentListsubRequest();
+                request.setDeptId(deptId);
+
+                rateLimiter.acquire();
+                OapiV2DepartmentListsubResponse response = oapiClient.execute(dingdingConfig.getApi().getDepartmentListUrl(), request, accessToken);
+                if (!response.isSuccess()) {
+                    throw new IllegalStateException("获取子部门列表失败：" + response.getErrmsg());
+                }
 
-            if (response.isSuccess() && response.getResult() != null) {
-                List<OapiV2DepartmentListsubResponse.DeptBaseResponse> departments = response.getResult();
-                if (!CollectionUtils.isEmpty(departments)) {
-                    for (OapiV2DepartmentListsubResponse.DeptBaseResponse dept : departments) {
-                        if (dept != null && dept.getDeptId() != null) {
-                            // 转换为DTO并添加到列表
-                            DepartmentDTO deptDto = DepartmentDTO.fromDingTalkResponse(dept);
-                            if (deptDto != null) {
-                                allDepartments.add(deptDto);
-                                log.debug("添加部门: ID={}, Name={}, ParentId={}",
-                                         deptDto.getDeptId(), deptDto.getName(), deptDto.getParentId());
-                            }
-                            Thread.sleep(dingdingConfig.getApi().getApiCallInterval());
-                            // 递归处理子部门
-                            recursionGetDepartmentsWithDetails(dept.getDeptId(), accessToken, allDepartments, processedDeptIds);
+                // 整页解析完成后才登记已访问，重试时不会因上次部分登记而漏掉子部门
+                List<DepartmentDTO> subDepartments = new ArrayList<>();
+                if (response.getResult() != null) {
+                    for (OapiV2DepartmentListsubResponse.DeptBaseResponse dept : response.getResult()) {
+                        if (dept == null || dept.getDeptId() == null || visitedDeptIds.contains(dept.getDeptId())) {
+                            continue;
                         }
+                        subDepartments.add(DepartmentDTO.fromDingTalkResponse(dept));
                     }
                 }
-            } else {
-                log.warn("获取部门{}的子部门列表失败：{}", deptId, response.getErrmsg());
+                subDepartments.removeIf(deptDto -> !visitedDeptIds.add(deptDto.getDeptId()));
+                for (DepartmentDTO deptDto : subDepartments) {
+                    log.debug("添加部门: ID={}, Name={}, ParentId={}",
+                            deptDto.getDeptId(), deptDto.getName(), deptDto.getParentId());
+                }
+                return subDepartments;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (Exception e) {
+                log.warn("获取部门{}的子部门列表失败（第{}/{}次）：{}", deptId, i, attempts, e.getMessage());
             }
-
-        } catch (Exception e) {
-            log.error("调用钉钉获取部门详情API失败，deptId: {}", deptId, e);
         }
+        log.error("获取部门{}的子部门列表重试后仍失败", deptId);
+        return null;
     }
 }
\ No newline at end of file
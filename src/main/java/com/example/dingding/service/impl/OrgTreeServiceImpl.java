@@ -0,0 +1,153 @@
+package com.example.dingding.service.impl;
+
+import com.example.dingding.config.DingdingConfig;
+import com.example.dingding.config.JyOaConstants;
+import com.example.dingding.entity.DepartmentSCD2;
+import com.example.dingding.mapper.DepartmentSCD2Mapper;
+import com.example.dingding.service.IOrgTreeService;
+import com.example.dingding.tree.OrgTree;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 组织树服务实现类
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@Service
+public class OrgTreeServiceImpl implements IOrgTreeService {
+
+    @Autowired
+    private DepartmentSCD2Mapper departmentSCD2Mapper;
+
+    @Autowired
+    private DingdingConfig dingdingConfig;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 当前版本组织树索引及加载时的共享版本号，部门同步提交后整体替换
+     */
+    private volatile VersionedTree currentTree;
+
+    private final Object currentLoadLock = new Object();
+
+    /**
+     * 历史日期组织树的LRU缓存（访问顺序）
+     */
+    private final Map<LocalDate, OrgTree> asOfCache = new LinkedHashMap<LocalDate, OrgTree>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, OrgTree> eldest) {
+            return size() > dingdingConfig.getTree().getAsOfCacheSize();
+        }
+    };
+
+    @Override
+    public OrgTree getTreeAsOf(LocalDate asOf) {
+        // 当天的版本可能被当日同步修改，只缓存历史日期
+        if (!asOf.isBefore(LocalDate.now())) {
+            return loadTree(asOf);
+        }
+
+        synchronized (asOfCache) {
+            OrgTree cached = asOfCache.get(asOf);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        OrgTree tree = loadTree(asOf);
+        synchronized (asOfCache) {
+            asOfCache.putIfAbsent(asOf, tree);
+            return asOfCache.get(asOf);
+        }
+    }
+
+    /**
+     * 每次读取先比对Redis中的共享版本号，其他实例完成部门同步后本实例随之重新加载；
+     * 版本号读取失败时沿用已有索引
+     */
+    @Override
+    public OrgTree getCurrentTree() {
+        // 先读版本再读表，加载期间若有新的同步提交，版本号随后递增，下次读取会重新加载
+        Long version = readTreeVersion();
+        VersionedTree cached = currentTree;
+        if (cached != null && (version == null || version.equals(cached.version))) {
+            return cached.tree;
+        }
+        synchronized (currentLoadLock) {
+            cached = currentTree;
+            if (cached == null || (version != null && !version.equals(cached.version))) {
+                cached = loadCurrentTree(version);
+            }
+            return cached.tree;
+        }
+    }
+
+    /**
+     * 部门同步提交后调用：递增共享版本号使所有实例的索引过期，并重新加载本实例的索引
+     */
+    @Override
+    public OrgTree refreshCurrentTree() {
+        Long version = null;
+        try {
+            version = redisTemplate.opsForValue().increment(JyOaConstants.ORG_TREE_VERSION);
+        } catch (Exception e) {
+            log.error("递增组织树版本号失败，其他实例的组织树索引可能未及时更新", e);
+        }
+        synchronized (currentLoadLock) {
+            return loadCurrentTree(version).tree;
+        }
+    }
+
+    /**
+     * 读取组织树版本号，从未递增过时为0，Redis不可用时返回null
+     */
+    private Long readTreeVersion() {
+        try {
+            Object version = redisTemplate.opsForValue().get(JyOaConstants.ORG_TREE_VERSION);
+            return version == null ? 0L : ((Number) version).longValue();
+        } catch (Exception e) {
+            log.warn("读取组织树版本号失败，沿用本地索引: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private VersionedTree loadCurrentTree(Long version) {
+        OrgTree tree = OrgTree.build(LocalDate.now(), departmentSCD2Mapper.findAllCurrent());
+        VersionedTree loaded = new VersionedTree(tree, version);
+        currentTree = loaded;
+        log.info("当前组织树索引已更新，共{}个部门，版本: {}", tree.size(), version);
+        return loaded;
+    }
+
+    private OrgTree loadTree(LocalDate asOf) {
+        List<DepartmentSCD2> versions = departmentSCD2Mapper.findVersionsAsOf(asOf);
+        OrgTree tree = OrgTree.build(asOf, versions);
+        log.info("加载{}的组织树，共{}个部门", asOf, tree.size());
+        return tree;
+    }
+
+    /**
+     * 组织树索引与加载时的版本号（Redis不可用时为null）
+     */
+    private static final class VersionedTree {
+        private final OrgTree tree;
+        private final Long version;
+
+        private VersionedTree(OrgTree tree, Long version) {
+            this.tree = tree;
+            this.version = version;
+        }
+    }
+}
@@ -9,7 +9,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 流程实例服务实现类
@@ -22,6 +26,11 @@ import java.util.List;
 public class ProcessInstanceServiceImpl extends ServiceImpl<ProcessInstanceMapper, ProcessInstance>
         implements IProcessInstanceService {
 
+    /**
+     * 批量判重时单条IN查询的最大ID数
+     */
+    private static final int EXISTS_QUERY_CHUNK_SIZE = 500;
+
     @Override
     public List<ProcessInstance> listByProcessCodeAndTime(String processCode, LocalDateTime startTime, LocalDateTime endTime) {
         return baseMapper.selectByProcessCodeAndTime(processCode, startTime, endTime);
@@ -62,4 +71,20 @@ public class ProcessInstanceServiceImpl extends ServiceImpl<ProcessInstanceMappe
         return getOne(new LambdaQueryWrapper<ProcessInstance>()
                 .eq(ProcessInstance::getProcessInstanceId, processInstanceId));
     }
+
+    @Override
+    public Set<String> findExistingInstanceIds(Collection<String> processInstanceIds) {
+        Set<String> existingIds = new HashSet<>();
+        if (processInstanceIds == null || processInstanceIds.isEmpty()) {
+            return existingIds;
+        }
+
+        // 分块执行IN查询，避免单条SQL参数过多
+        List<String> ids = new ArrayList<>(processInstanceIds);
+        for (int from = 0; from < ids.size(); from += EXISTS_QUERY_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + EXISTS_QUERY_CHUNK_SIZE, ids.size()));
+            existingIds.addAll(baseMapper.selectExistingInstanceIds(chunk));
+        }
+        return existingIds;
+    }
 }
\ No newline at end of file
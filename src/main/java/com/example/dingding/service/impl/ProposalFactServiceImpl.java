@@ -0,0 +1,30 @@
+package com.example.dingding.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.dingding.entity.ProposalFact;
+import com.example.dingding.mapper.ProposalFactMapper;
+import com.example.dingding.service.IProposalFactService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+
+/**
+ * 提案事实服务实现类
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@Service
+public class ProposalFactServiceImpl extends ServiceImpl<ProposalFactMapper, ProposalFact>
+        implements IProposalFactService {
+
+    @Override
+    public int upsertBatch(Collection<ProposalFact> facts) {
+        if (facts == null || facts.isEmpty()) {
+            return 0;
+        }
+        return baseMapper.upsertBatch(facts);
+    }
+}
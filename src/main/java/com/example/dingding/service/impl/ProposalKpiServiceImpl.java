@@ -0,0 +1,467 @@
+package com.example.dingding.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.dingding.config.DingdingConfig;
+import com.example.dingding.config.JyOaConstants;
+import com.example.dingding.entity.DepartmentGroup;
+import com.example.dingding.entity.DepartmentSCD2;
+import com.example.dingding.entity.ProcessInstance;
+import com.example.dingding.entity.ProposalKpiRollup;
+import com.example.dingding.mapper.DepartmentGroupMapper;
+import com.example.dingding.mapper.ProcessInstanceMapper;
+import com.example.dingding.mapper.ProposalKpiRollupMapper;
+import com.example.dingding.service.IOrgTreeService;
+import com.example.dingding.service.IProposalKpiService;
+import com.example.dingding.tree.OrgTree;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 提案指标汇总服务实现类
+ * 重算以自然月为单位：一次查询取出当月全部提案的轻量事实，按发起部门归属到最近的统计分组，
+ * 再沿父分组链向上累加，同时得到受影响日期的日汇总和当月的月汇总，最后按周期删除旧行并重新写入
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@Service
+public class ProposalKpiServiceImpl extends ServiceImpl<ProposalKpiRollupMapper, ProposalKpiRollup>
+        implements IProposalKpiService {
+
+    private static final String RESULT_AGREE = "agree";
+
+    @Autowired
+    private DingdingConfig dingdingConfig;
+
+    @Autowired
+    private ProcessInstanceMapper processInstanceMapper;
+
+    @Autowired
+    private DepartmentGroupMapper departmentGroupMapper;
+
+    @Autowired
+    private IOrgTreeService orgTreeService;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * Redis不可用时暂存的待重算日期，正常情况下待重算日期登记在Redis集合中
+     */
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 串行化重算，避免两次重算交错删除和写入同一周期
+     */
+    private final Object refreshLock = new Object();
+
+    /**
+     * 登记到Redis集合，重启或其他实例执行重算时不会丢失；Redis不可用时暂存在本地
+     */
+    @Override
+    public void markDirty(Collection<ProcessInstance> instances) {
+        if (instances == null) {
+            return;
+        }
+        Set<String> days = new HashSet<>();
+        for (ProcessInstance instance : instances) {
+            if (instance != null && instance.getCreateTime() != null) {
+                days.add(instance.getCreateTime().toLocalDate().toString());
+            }
+        }
+        if (days.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForSet().add(JyOaConstants.KPI_DIRTY_DAYS, days.toArray());
+        } catch (Exception e) {
+            log.warn("登记待重算日期到Redis失败，暂存在本地: {}", e.getMessage());
+            days.forEach(day -> dirtyDays.add(LocalDate.parse(day)));
+        }
+    }
+
+    /**
+     * 把Redis登记集合原子改名为处理中集合后重算，事务提交后才删除处理中集合；
+     * 重算期间新登记的日期进入新的登记集合，不会被误删
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int refreshDirtyPeriods() {
+        List<LocalDate> localDays = new ArrayList<>(dirtyDays);
+        dirtyDays.removeAll(localDays);
+        Set<LocalDate> days = new TreeSet<>(localDays);
+        boolean claimed = false;
+        try {
+            claimed = claimDirtyDays(days);
+            if (days.isEmpty()) {
+                return 0;
+            }
+            int rowCount = refreshDays(days);
+            if (claimed) {
+                deleteAfterCommit(JyOaConstants.KPI_DIRTY_DAYS_PROCESSING);
+            }
+            return rowCount;
+        } catch (RuntimeException e) {
+            // 重算失败时保留登记（处理中集合留在Redis），下次同步结束后重试
+            dirtyDays.addAll(localDays);
+            throw e;
+        }
+    }
+
+    /**
+     * 取出Redis中待重算的日期；上次未完成的处理中集合优先继续处理
+     *
+     * @param days 收集日期
+     * @return 是否取到了Redis中的处理中集合
+     */
+    private boolean claimDirtyDays(Set<LocalDate> days) {
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(JyOaConstants.KPI_DIRTY_DAYS_PROCESSING))
+                    && Boolean.TRUE.equals(redisTemplate.hasKey(JyOaConstants.KPI_DIRTY_DAYS))) {
+                redisTemplate.renameIfAbsent(JyOaConstants.KPI_DIRTY_DAYS, JyOaConstants.KPI_DIRTY_DAYS_PROCESSING);
+            }
+            Set<Object> members = redisTemplate.opsForSet().members(JyOaConstants.KPI_DIRTY_DAYS_PROCESSING);
+            if (members == null || members.isEmpty()) {
+                return false;
+            }
+            for (Object member : members) {
+                days.add(LocalDate.parse(member.toString()));
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("读取Redis中的待重算日期失败，本次只重算本地暂存的日期: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 事务提交后删除Redis键，回滚时保留
+     */
+    private void deleteAfterCommit(String key) {
+        Runnable delete = () -> {
+            try {
+                redisTemplate.delete(key);
+            } catch (Exception e) {
+                log.warn("删除Redis键{}失败，下次将重复重算: {}", key, e.getMessage());
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            delete.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                delete.run();
+            }
+        });
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int refreshRecentPeriods() {
+        LocalDate today = LocalDate.now();
+        int recentDays = Math.max(1, dingdingConfig.getKpi().getRecentRefreshDays());
+        return refreshRange(today.minusDays(recentDays - 1L), today);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int refreshRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("日期区间无效: " + from + " ~ " + to);
+        }
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            days.add(day);
+        }
+        return refreshDays(days);
+    }
+
+    @Override
+    public List<ProposalKpiRollup> listRollups(String periodType, LocalDate from, LocalDate to, Long parentGroupId) {
+        return baseMapper.selectRollups(periodType, from, to, parentGroupId);
+    }
+
+    /**
+     * 重算指定日期的日汇总及其所在月份的月汇总
+     */
+    private int refreshDays(Collection<LocalDate> days) {
+        synchronized (refreshLock) {
+            long startTime = System.currentTimeMillis();
+            List<DepartmentGroup> groups = departmentGroupMapper.selectList(null);
+            if (groups.isEmpty()) {
+                log.warn("部门统计分组为空，跳过提案指标汇总");
+                return 0;
+            }
+            GroupIndex index = new GroupIndex(groups, orgTreeService.getCurrentTree());
+            Map<Long, Integer> employeeCounts = loadEmployeeCounts(index.groups.keySet());
+
+            Map<YearMonth, Set<LocalDate>> daysByMonth = new TreeMap<>();
+            for (LocalDate day : days) {
+                daysByMonth.computeIfAbsent(YearMonth.from(day), key -> new TreeSet<>()).add(day);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            int rowCount = 0;
+            for (Map.Entry<YearMonth, Set<LocalDate>> entry : daysByMonth.entrySet()) {
+                rowCount += refreshMonth(entry.getKey(), entry.getValue(), index, employeeCounts, now);
+            }
+            log.info("提案指标汇总完成 - 月份: {}, 日期: {}, 写入: {}行, 耗时: {}ms",
+                    daysByMonth.size(), days.size(), rowCount, System.currentTimeMillis() - startTime);
+            return rowCount;
+        }
+    }
+
+    /**
+     * 重算一个月：月汇总总是整月重算，日汇总只重算指定日期
+     */
+    private int refreshMonth(YearMonth month, Set<LocalDate> days, GroupIndex index,
+                             Map<Long, Integer> employeeCounts, LocalDateTime now) {
+        DingdingConfig.Kpi kpi = dingdingConfig.getKpi();
+        List<ProcessInstanceMapper.KpiFact> facts = processInstanceMapper.selectKpiFacts(
+                month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay(),
+                kpi.getAdoptionComponentName(), kpi.getAdoptionValue());
+
+        Map<Long, Totals> monthTotals = new HashMap<>();
+        Map<LocalDate, Map<Long, Totals>> dayTotals = new HashMap<>();
+        int unassigned = 0;
+        for (ProcessInstanceMapper.KpiFact fact : facts) {
+            List<Long> creditedGroups = index.groupsFor(fact.getDeptId());
+            if (creditedGroups.isEmpty()) {
+                unassigned++;
+                continue;
+            }
+            Outcome outcome = evaluate(fact, kpi.getCloseWithinDays(), now);
+            LocalDate day = fact.getCreateTime().toLocalDate();
+            Map<Long, Totals> dayMap = days.contains(day)
+                    ? dayTotals.computeIfAbsent(day, key -> new HashMap<>())
+                    : null;
+            for (Long groupId : creditedGroups) {
+                monthTotals.computeIfAbsent(groupId, key -> new Totals()).add(fact.getUserId(), outcome);
+                if (dayMap != null) {
+                    dayMap.computeIfAbsent(groupId, key -> new Totals()).add(fact.getUserId(), outcome);
+                }
+            }
+        }
+        if (unassigned > 0) {
+            log.debug("{} 有{}条提案的发起部门不属于任何统计分组", month, unassigned);
+        }
+
+        List<ProposalKpiRollup> rows = new ArrayList<>();
+        LocalDate monthStart = month.atDay(1);
+        appendRows(rows, ProposalKpiRollup.PERIOD_MONTH, monthStart, monthTotals, index, employeeCounts);
+        for (Map.Entry<LocalDate, Map<Long, Totals>> entry : dayTotals.entrySet()) {
+            appendRows(rows, ProposalKpiRollup.PERIOD_DAY, entry.getKey(), entry.getValue(), index, employeeCounts);
+        }
+
+        baseMapper.deletePeriods(ProposalKpiRollup.PERIOD_MONTH, Collections.singletonList(monthStart));
+        baseMapper.deletePeriods(ProposalKpiRollup.PERIOD_DAY, days);
+        if (!rows.isEmpty()) {
+            saveBatch(rows);
+        }
+        return rows.size();
+    }
+
+    /**
+     * 计算单条提案对各项指标的贡献，结案期限以提案创建时间起算
+     */
+    static Outcome evaluate(ProcessInstanceMapper.KpiFact fact, int closeWithinDays, LocalDateTime now) {
+        boolean adopted = Boolean.TRUE.equals(fact.getAdopted());
+        boolean closedInTime = false;
+        boolean overdue = false;
+        if (adopted) {
+            LocalDateTime deadline = fact.getCreateTime().plusDays(closeWithinDays);
+            LocalDateTime finishTime = fact.getFinishTime();
+            closedInTime = finishTime != null && !finishTime.isAfter(deadline);
+            overdue = finishTime != null ? finishTime.isAfter(deadline) : now.isAfter(deadline);
+        }
+        return new Outcome(RESULT_AGREE.equalsIgnoreCase(fact.getResult()), adopted, closedInTime, overdue);
+    }
+
+    private void appendRows(List<ProposalKpiRollup> rows, String periodType, LocalDate periodStart,
+                            Map<Long, Totals> totalsByGroup, GroupIndex index, Map<Long, Integer> employeeCounts) {
+        for (Map.Entry<Long, Totals> entry : totalsByGroup.entrySet()) {
+            DepartmentGroup group = index.groups.get(entry.getKey());
+            Totals totals = entry.getValue();
+            ProposalKpiRollup row = new ProposalKpiRollup();
+            row.setPeriodType(periodType);
+            row.setPeriodStart(periodStart);
+            row.setGroupId(group.getGroupId());
+            row.setParentGroupId(group.getParentGroupId());
+            row.setGroupType(group.getGroupType() != null ? group.getGroupType().getCode() : null);
+            row.setGroupName(group.getGroupName());
+            row.setProposalCount(totals.proposalCount);
+            row.setProposerCount(totals.proposers.size());
+            row.setPassedCount(totals.passedCount);
+            row.setAdoptedCount(totals.adoptedCount);
+            row.setClosedInTimeCount(totals.closedInTimeCount);
+            row.setOverdueCount(totals.overdueCount);
+            row.setEmployeeCount(employeeCounts.get(group.getGroupId()));
+            rows.add(row);
+        }
+    }
+
+    /**
+     * 一次MGET读取各分组的参与人数缓存（由部门统计分组生成时写入）
+     */
+    private Map<Long, Integer> loadEmployeeCounts(Collection<Long> groupIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        List<Long> ids = new ArrayList<>(groupIds);
+        List<String> keys = new ArrayList<>(ids.size());
+        for (Long groupId : ids) {
+            keys.add(JyOaConstants.PARTICIPANTS_CNT + groupId);
+        }
+        try {
+            List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+            if (values != null) {
+                for (int i = 0; i < ids.size() && i < values.size(); i++) {
+                    if (values.get(i) instanceof Number) {
+                        counts.put(ids.get(i), ((Number) values.get(i)).intValue());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取分组参与人数缓存失败，员工数将留空: {}", e.getMessage());
+        }
+        return counts;
+    }
+
+    /**
+     * 单条提案的指标贡献
+     */
+    static final class Outcome {
+        final boolean passed;
+        final boolean adopted;
+        final boolean closedInTime;
+        final boolean overdue;
+
+        private Outcome(boolean passed, boolean adopted, boolean closedInTime, boolean overdue) {
+            this.passed = passed;
+            this.adopted = adopted;
+            this.closedInTime = closedInTime;
+            this.overdue = overdue;
+        }
+    }
+
+    /**
+     * 单个 (周期, 分组) 的累加值
+     */
+    private static final class Totals {
+        private int proposalCount;
+        private int passedCount;
+        private int adoptedCount;
+        private int closedInTimeCount;
+        private int overdueCount;
+        private final Set<String> proposers = new HashSet<>();
+
+        private void add(String userId, Outcome outcome) {
+            proposalCount++;
+            if (userId != null) {
+                proposers.add(userId);
+            }
+            if (outcome.passed) {
+                passedCount++;
+            }
+            if (outcome.adopted) {
+                adoptedCount++;
+            }
+            if (outcome.closedInTime) {
+                closedInTimeCount++;
+            }
+            if (outcome.overdue) {
+                overdueCount++;
+            }
+        }
+    }
+
+    /**
+     * 部门统计分组索引：把发起部门映射为需要计入的分组（最近的分组及其全部上级分组）
+     * 同一部门可能出现在多个分区（区域/项目部/总部），每个分区各取离发起部门最近的一个分组
+     */
+    static final class GroupIndex {
+        private final Map<Long, DepartmentGroup> groups = new HashMap<>();
+        private final Map<Long, List<DepartmentGroup>> groupsByDeptId = new HashMap<>();
+        private final OrgTree orgTree;
+        private final Map<String, List<Long>> resolved = new HashMap<>();
+
+        GroupIndex(List<DepartmentGroup> groupList, OrgTree orgTree) {
+            this.orgTree = orgTree;
+            for (DepartmentGroup group : groupList) {
+                groups.put(group.getGroupId(), group);
+                if (group.getDeptId() != null) {
+                    groupsByDeptId.computeIfAbsent(group.getDeptId(), key -> new ArrayList<>()).add(group);
+                }
+            }
+        }
+
+        List<Long> groupsFor(String deptIdText) {
+            if (deptIdText == null) {
+                return Collections.emptyList();
+            }
+            return resolved.computeIfAbsent(deptIdText, this::resolve);
+        }
+
+        private List<Long> resolve(String deptIdText) {
+            Long deptId;
+            try {
+                deptId = Long.valueOf(deptIdText.trim());
+            } catch (NumberFormatException e) {
+                return Collections.emptyList();
+            }
+
+            // 自身及祖先部门，由近到远
+            List<Long> chain = new ArrayList<>();
+            chain.add(deptId);
+            if (orgTree != null) {
+                for (DepartmentSCD2 ancestor : orgTree.getAncestors(deptId)) {
+                    chain.add(ancestor.getDeptId());
+                }
+            }
+
+            Map<Long, Long> nearestBySection = new LinkedHashMap<>();
+            for (Long id : chain) {
+                for (DepartmentGroup group : groupsByDeptId.getOrDefault(id, Collections.emptyList())) {
+                    nearestBySection.putIfAbsent(sectionRootOf(group), group.getGroupId());
+                }
+            }
+
+            Set<Long> credited = new LinkedHashSet<>();
+            for (Long groupId : nearestBySection.values()) {
+                int steps = 0;
+                for (Long current = groupId; current != null && steps <= groups.size(); steps++) {
+                    DepartmentGroup group = groups.get(current);
+                    if (group == null || !credited.add(current)) {
+                        break;
+                    }
+                    current = group.getParentGroupId();
+                }
+            }
+            return credited.isEmpty() ? Collections.emptyList() : new ArrayList<>(credited);
+        }
+
+        private Long sectionRootOf(DepartmentGroup group) {
+            DepartmentGroup current = group;
+            for (int steps = 0; steps <= groups.size(); steps++) {
+                DepartmentGroup parent = current.getParentGroupId() != null ? groups.get(current.getParentGroupId()) : null;
+                if (parent == null) {
+                    break;
+                }
+                current = parent;
+            }
+            return current.getGroupId();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.dingding.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.dingding.entity.SyncCheckpoint;
+import com.example.dingding.mapper.SyncCheckpointMapper;
+import com.example.dingding.service.ISyncCheckpointService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 同步检查点服务实现类
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@Service
+public class SyncCheckpointServiceImpl extends ServiceImpl<SyncCheckpointMapper, SyncCheckpoint>
+        implements ISyncCheckpointService {
+
+    @Override
+    public Map<String, SyncCheckpoint> loadCheckpoints() {
+        Map<String, SyncCheckpoint> checkpoints = new HashMap<>();
+        for (SyncCheckpoint checkpoint : list()) {
+            checkpoints.put(ISyncCheckpointService.key(checkpoint.getProcessCode(), checkpoint.getDeptId()), checkpoint);
+        }
+        return checkpoints;
+    }
+
+    @Override
+    public void advance(String processCode, Long deptId, LocalDateTime lastCreateTime, String membersHash) {
+        baseMapper.upsertAdvance(processCode, deptId, lastCreateTime, membersHash);
+        log.debug("同步检查点推进: 表单{}, 部门{} -> {}", processCode, deptId, lastCreateTime);
+    }
+}
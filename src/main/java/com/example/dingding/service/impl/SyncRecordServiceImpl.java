@@ -46,6 +46,16 @@ public class SyncRecordServiceImpl extends ServiceImpl<SyncRecordMapper, SyncRec
         return syncRecord;
     }
 
+    @Override
+    public void updateProgress(SyncRecord syncRecord, Integer successCount, Integer failedCount) {
+        syncRecord.setSuccessCount(successCount != null ? successCount : 0);
+        syncRecord.setFailedCount(failedCount != null ? failedCount : 0);
+
+        updateById(syncRecord);
+        log.debug("同步进度: {}, 成功: {}, 失败: {}, 总数: {}",
+                syncRecord.getSyncType(), syncRecord.getSuccessCount(), syncRecord.getFailedCount(), syncRecord.getTotalCount());
+    }
+
     @Override
     public void completeSync(SyncRecord syncRecord, Integer successCount) {
         syncRecord.setSyncEndTime(LocalDateTime.now());
@@ -0,0 +1,83 @@
+package com.example.dingding.sync;
+
+import com.example.dingding.config.DingdingConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 钉钉接口令牌桶限流器
+ * 所有同步线程共享同一个令牌桶，按配置的QPS发放令牌，替代固定的Thread.sleep间隔
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class DingTalkRateLimiter {
+
+    @Autowired
+    private DingdingConfig dingdingConfig;
+
+    /**
+     * 每个令牌的补充间隔（纳秒）
+     */
+    private long nanosPerPermit;
+
+    /**
+     * 桶容量（允许的最大突发请求数）
+     */
+    private double maxPermits;
+
+    private double storedPermits;
+
+    private long lastRefillNanos;
+
+    @PostConstruct
+    public void init() {
+        int qps = Math.max(1, dingdingConfig.getApi().getQpsLimit());
+        this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / qps;
+        this.maxPermits = qps;
+        this.storedPermits = qps;
+        this.lastRefillNanos = System.nanoTime();
+        log.info("钉钉接口限流器初始化完成，QPS上限: {}", qps);
+    }
+
+    /**
+     * 获取一个令牌，令牌不足时阻塞等待
+     */
+    public void acquire() {
+        while (true) {
+            long waitNanos = tryAcquire();
+            if (waitNanos <= 0) {
+                return;
+            }
+            LockSupport.parkNanos(this, waitNanos);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待钉钉接口限流令牌时被中断");
+            }
+        }
+    }
+
+    /**
+     * 尝试扣减一个令牌
+     *
+     * @return 0表示获取成功，否则为下一个令牌可用前需要等待的纳秒数
+     */
+    private synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        storedPermits = Math.min(maxPermits, storedPermits + (double) (now - lastRefillNanos) / nanosPerPermit);
+        lastRefillNanos = now;
+
+        if (storedPermits >= 1) {
+            storedPermits -= 1;
+            return 0;
+        }
+        return (long) ((1 - storedPermits) * nanosPerPermit);
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.dingding.sync;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分阶段数据接入流水线
+ * 提交线程（ID分页） -> 有界队列 -> 详情获取/解析线程 -> 有界队列 -> 批量持久化线程
+ * 队列有界，生产速度超过下游时提交方阻塞，内存占用与数据总量无关
+ *
+ * @param <I> 输入项类型（如流程实例ID）
+ * @param <D> 获取/解析后的数据类型
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+public class IngestPipeline<I, D> implements AutoCloseable {
+
+    private static final long POLL_TIMEOUT_MILLIS = 200L;
+
+    /**
+     * 详情获取阶段
+     */
+    @FunctionalInterface
+    public interface Fetcher<I, D> {
+
+        /**
+         * 获取并解析单条数据
+         *
+         * @param item 输入项
+         * @return 解析结果，返回null视为获取失败
+         * @throws Exception 获取失败
+         */
+        D fetch(I item) throws Exception;
+    }
+
+    /**
+     * 批量持久化阶段
+     */
+    @FunctionalInterface
+    public interface Persister<D> {
+
+        /**
+         * 批量写入
+         *
+         * @param batch 待写入数据
+         * @return 成功写入的条数
+         * @throws Exception 整批写入失败
+         */
+        int persist(List<D> batch) throws Exception;
+    }
+
+    private final String name;
+    private final int batchSize;
+    private final Fetcher<I, D> fetcher;
+    private final Persister<D> persister;
+
+    private final BlockingQueue<I> fetchQueue;
+    private final BlockingQueue<D> persistQueue;
+    private final List<Thread> fetchThreads = new ArrayList<>();
+    private final Thread persistThread;
+
+    private volatile boolean closed;
+    private volatile boolean fetchFinished;
+
+    private final AtomicInteger submittedCount = new AtomicInteger();
+    private final AtomicInteger fetchFailedCount = new AtomicInteger();
+    private final AtomicInteger persistedCount = new AtomicInteger();
+    private final AtomicInteger persistFailedCount = new AtomicInteger();
+
+    public IngestPipeline(String name, int fetchThreadCount, int queueCapacity, int batchSize,
+                          Fetcher<I, D> fetcher, Persister<D> persister) {
+        this.name = name;
+        this.batchSize = Math.max(1, batchSize);
+        this.fetcher = fetcher;
+        this.persister = persister;
+        this.fetchQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.persistQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        for (int i = 1; i <= Math.max(1, fetchThreadCount); i++) {
+            Thread thread = new Thread(this::runFetcher, name + "-fetch-" + i);
+            thread.setDaemon(true);
+            fetchThreads.add(thread);
+            thread.start();
+        }
+        persistThread = new Thread(this::runPersister, name + "-persist");
+        persistThread.setDaemon(true);
+        persistThread.start();
+    }
+
+    /**
+     * 提交一条输入，队列满时阻塞
+     *
+     * @param item 输入项
+     */
+    public void submit(I item) {
+        if (closed) {
+            throw new IllegalStateException("流水线[" + name + "]已关闭，不能继续提交");
+        }
+        try {
+            fetchQueue.put(item);
+            submittedCount.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("提交到流水线[" + name + "]时被中断", e);
+        }
+    }
+
+    /**
+     * 停止接收新输入，等待已提交的数据全部处理完成
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            for (Thread thread : fetchThreads) {
+                thread.join();
+            }
+            fetchFinished = true;
+            persistThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("等待流水线[{}]结束时被中断", name);
+        }
+        log.info("流水线[{}]结束 - 提交: {}, 获取失败: {}, 写入成功: {}, 写入失败: {}",
+                name, getSubmittedCount(), getFetchFailedCount(), getPersistedCount(), getPersistFailedCount());
+    }
+
+    private void runFetcher() {
+        while (true) {
+            I item;
+            try {
+                item = fetchQueue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (item == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+
+            try {
+                D data = fetcher.fetch(item);
+                if (data == null) {
+                    fetchFailedCount.incrementAndGet();
+                } else {
+                    persistQueue.put(data);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                fetchFailedCount.incrementAndGet();
+                log.error("流水线[{}]获取数据失败: {}", name, item, e);
+            }
+        }
+    }
+
+    private void runPersister() {
+        List<D> batch = new ArrayList<>(batchSize);
+        while (true) {
+            D data;
+            try {
+                data = persistQueue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (data != null) {
+                batch.add(data);
+                if (batch.size() >= batchSize) {
+                    flush(batch);
+                }
+                continue;
+            }
+
+            // 队列空闲时写出不满一批的数据，避免尾部数据长时间滞留
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+            if (fetchFinished) {
+                persistQueue.drainTo(batch);
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                return;
+            }
+        }
+    }
+
+    private void flush(List<D> batch) {
+        int size = batch.size();
+        try {
+            int persisted = persister.persist(new ArrayList<>(batch));
+            persistedCount.addAndGet(persisted);
+            persistFailedCount.addAndGet(size - persisted);
+        } catch (Exception e) {
+            persistFailedCount.addAndGet(size);
+            log.error("流水线[{}]批量写入{}条数据失败", name, size, e);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    public int getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public int getFetchFailedCount() {
+        return fetchFailedCount.get();
+    }
+
+    public int getPersistedCount() {
+        return persistedCount.get();
+    }
+
+    public int getPersistFailedCount() {
+        return persistFailedCount.get();
+    }
+
+    public int getFailedCount() {
+        return getFetchFailedCount() + getPersistFailedCount();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.dingding.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * OA同步单元
+ * 一个 (表单, 部门, 用户批次, 时间段) 组合，是同步引擎调度的最小粒度
+ * 同一部门的用户按接口允许的上限合并为一批，一次分页查询覆盖整批用户
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class OaSyncUnit {
+
+    /**
+     * 表单ID（processCode）
+     */
+    private final String formId;
+
+    /**
+     * 用户所属部门ID
+     */
+    private final Long deptId;
+
+    /**
+     * 发起人用户ID批次（不超过接口允许的上限）
+     */
+    private final List<String> userIds;
+
+    /**
+     * 时间段开始（不超过3个月）
+     */
+    private final LocalDateTime startTime;
+
+    /**
+     * 时间段结束
+     */
+    private final LocalDateTime endTime;
+
+    /**
+     * 所属检查点时间窗口
+     */
+    @ToString.Exclude
+    private final SyncCheckpointTracker.Window window;
+}
@@ -0,0 +1,125 @@
+package com.example.dingding.sync;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.example.dingding.entity.FormComponentValue;
+import com.example.dingding.entity.ProcessInstance;
+import com.example.dingding.entity.ProposalFact;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 提案事实投影器
+ * 把流程实例的关键表单字段（isKeyField）解析为提案事实的强类型列：
+ * 经济效益转为数值，下拉选项同时保留选项编码和显示值，日期转为LocalDate；
+ * 解析失败的字段置空，不影响其他字段和流程实例入库
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+public final class ProposalFactProjector {
+
+    public static final String ECONOMIC_BENEFIT = "预计产生经济效益(元)";
+
+    public static final String IMPROVEMENT_LEVEL = "改善等级";
+
+    public static final String PROPOSAL_CATEGORY = "提案类别";
+
+    public static final String DECLARED_DATE = "申报日期";
+
+    private ProposalFactProjector() {
+    }
+
+    /**
+     * 生成提案事实，没有任何关键字段时也返回一行（按发起人汇总时需要计入）
+     *
+     * @param instance            流程实例
+     * @param formComponentValues 表单组件值
+     * @return 提案事实，流程实例ID为空时返回null
+     */
+    public static ProposalFact project(ProcessInstance instance, List<FormComponentValue> formComponentValues) {
+        if (instance == null || instance.getProcessInstanceId() == null) {
+            return null;
+        }
+        ProposalFact fact = new ProposalFact();
+        fact.setProcessInstanceId(instance.getProcessInstanceId());
+        fact.setProcessCode(instance.getProcessCode());
+        fact.setOriginatorUserid(instance.getOriginatorUserid());
+        fact.setCreateTime(instance.getCreateTime());
+        if (formComponentValues == null) {
+            return fact;
+        }
+
+        for (FormComponentValue fcv : formComponentValues) {
+            if (!Boolean.TRUE.equals(fcv.getIsKeyField()) || fcv.getComponentName() == null
+                    || !StringUtils.hasText(fcv.getValue())) {
+                continue;
+            }
+            String value = fcv.getValue().trim();
+            switch (fcv.getComponentName()) {
+                case ECONOMIC_BENEFIT:
+                    fact.setEconomicBenefit(parseDecimal(value, fcv));
+                    break;
+                case IMPROVEMENT_LEVEL:
+                    fact.setImprovementLevel(value);
+                    fact.setImprovementLevelCode(parseOptionKey(fcv.getExtValue()));
+                    break;
+                case PROPOSAL_CATEGORY:
+                    fact.setProposalCategory(value);
+                    fact.setProposalCategoryCode(parseOptionKey(fcv.getExtValue()));
+                    break;
+                case DECLARED_DATE:
+                    fact.setDeclaredDate(parseDate(value, fcv));
+                    break;
+                default:
+                    break;
+            }
+        }
+        return fact;
+    }
+
+    /**
+     * 解析金额，允许千分位逗号
+     */
+    private static BigDecimal parseDecimal(String value, FormComponentValue fcv) {
+        try {
+            return new BigDecimal(value.replace(",", "")).setScale(2, RoundingMode.HALF_UP);
+        } catch (NumberFormatException e) {
+            log.debug("经济效益不是有效数值，流程实例: {}, 值: {}", fcv.getProcessInstanceId(), value);
+            return null;
+        }
+    }
+
+    /**
+     * 解析日期组件值（yyyy-MM-dd，可能带时间部分）
+     */
+    private static LocalDate parseDate(String value, FormComponentValue fcv) {
+        try {
+            return LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value);
+        } catch (Exception e) {
+            log.debug("申报日期格式无效，流程实例: {}, 值: {}", fcv.getProcessInstanceId(), value);
+            return null;
+        }
+    }
+
+    /**
+     * 从下拉组件的extValue（{"label":"...","key":"option_1"}）中取选项编码
+     */
+    private static String parseOptionKey(String extValue) {
+        if (!StringUtils.hasText(extValue)) {
+            return null;
+        }
+        try {
+            JSONObject parsed = JSON.parseObject(extValue);
+            return parsed != null ? parsed.getString("key") : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.dingding.sync;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 同步检查点跟踪器（单次同步运行内使用）
+ * 每个检查范围 (表单, 部门) 按时间顺序拆分为若干时间窗口，窗口内所有同步单元列完ID、
+ * 且提交的实例全部写库成功后窗口才算完成；检查点只推进到从头开始连续完成的窗口末尾，
+ * 中途崩溃或失败时下次从第一个未完成窗口继续，已完成部分不会重扫
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+public class SyncCheckpointTracker {
+
+    /**
+     * 检查点推进回调
+     */
+    @FunctionalInterface
+    public interface Advancer {
+
+        /**
+         * 持久化新的检查点
+         *
+         * @param processCode    流程模板ID
+         * @param deptId         部门ID
+         * @param lastCreateTime 已同步完成的创建时间上限
+         */
+        void advance(String processCode, Long deptId, LocalDateTime lastCreateTime);
+    }
+
+    private final Advancer advancer;
+
+    private final Map<String, Scope> scopes = new LinkedHashMap<>();
+
+    public SyncCheckpointTracker(Advancer advancer) {
+        this.advancer = advancer;
+    }
+
+    /**
+     * 注册时间窗口，同一范围内必须按时间顺序注册，且需在同步开始前全部注册完毕
+     *
+     * @param processCode 流程模板ID
+     * @param deptId      部门ID
+     * @param endTime     窗口结束时间
+     * @param unitCount   窗口包含的同步单元数
+     * @return 时间窗口
+     */
+    public Window register(String processCode, Long deptId, LocalDateTime endTime, int unitCount) {
+        Scope scope = scopes.computeIfAbsent(processCode + ":" + deptId, key -> new Scope(processCode, deptId));
+        Window window = new Window(scope, endTime, unitCount);
+        scope.windows.add(window);
+        return window;
+    }
+
+    /**
+     * 检查范围：同一 (表单, 部门) 下按时间排序的窗口
+     */
+    private final class Scope {
+        private final String processCode;
+        private final Long deptId;
+        private final List<Window> windows = new ArrayList<>();
+        private int nextIndex;
+
+        private Scope(String processCode, Long deptId) {
+            this.processCode = processCode;
+            this.deptId = deptId;
+        }
+
+        /**
+         * 跳过连续完成的窗口，把检查点推进到最后一个完成窗口的结束时间
+         */
+        private synchronized void tryAdvance() {
+            LocalDateTime mark = null;
+            while (nextIndex < windows.size()) {
+                Window window = windows.get(nextIndex);
+                if (window.failed || !window.isDone()) {
+                    break;
+                }
+                mark = window.endTime;
+                nextIndex++;
+            }
+            if (mark == null) {
+                return;
+            }
+            try {
+                advancer.advance(processCode, deptId, mark);
+            } catch (Exception e) {
+                log.warn("写入同步检查点失败，表单: {}, 部门: {}, 时间: {}", processCode, deptId, mark, e);
+            }
+        }
+    }
+
+    /**
+     * 时间窗口：记录尚未列完ID的同步单元数和尚未写库的实例数
+     */
+    public final class Window {
+        private final Scope scope;
+        private final LocalDateTime endTime;
+        private final AtomicInteger pendingUnits;
+        private final AtomicInteger pendingItems = new AtomicInteger();
+        private volatile boolean failed;
+
+        private Window(Scope scope, LocalDateTime endTime, int unitCount) {
+            this.scope = scope;
+            this.endTime = endTime;
+            this.pendingUnits = new AtomicInteger(unitCount);
+        }
+
+        /**
+         * 有实例提交到详情流水线（需在所属单元结束前调用）
+         */
+        public void itemSubmitted() {
+            pendingItems.incrementAndGet();
+        }
+
+        /**
+         * 实例处理结束
+         *
+         * @param success 是否写库成功
+         */
+        public void itemDone(boolean success) {
+            if (!success) {
+                failed = true;
+            }
+            if (pendingItems.decrementAndGet() == 0 && pendingUnits.get() == 0) {
+                scope.tryAdvance();
+            }
+        }
+
+        /**
+         * 同步单元结束（ID已全部列出并提交）
+         *
+         * @param success 是否成功
+         */
+        public void unitDone(boolean success) {
+            if (!success) {
+                failed = true;
+            }
+            if (pendingUnits.decrementAndGet() == 0 && pendingItems.get() == 0) {
+                scope.tryAdvance();
+            }
+        }
+
+        private boolean isDone() {
+            return pendingUnits.get() == 0 && pendingItems.get() == 0;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.dingding.sync;
+
+import com.example.dingding.config.DingdingConfig;
+import com.example.dingding.entity.SyncRecord;
+import com.example.dingding.service.ISyncRecordService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 同步工作线程池
+ * 将同步单元分发到有界线程池并发执行，并把单元级进度写入ding_sync_records；
+ * mapAll使用独立的批处理线程池，同步单元内调用mapAll不会占用单元线程而饿死线程池，
+ * 在批处理线程内再次调用mapAll时直接在当前线程顺序执行
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class SyncWorkerPool {
+
+    @Autowired
+    private DingdingConfig dingdingConfig;
+
+    @Autowired
+    private ISyncRecordService syncRecordService;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * mapAll专用线程池
+     */
+    private ThreadPoolExecutor mapExecutor;
+
+    /**
+     * 标记当前线程正在执行mapAll的任务
+     */
+    private static final ThreadLocal<Boolean> IN_MAP_TASK = new ThreadLocal<>();
+
+    /**
+     * 同步单元处理器
+     *
+     * @param <T> 同步单元类型
+     */
+    @FunctionalInterface
+    public interface UnitHandler<T> {
+
+        /**
+         * 处理单个同步单元
+         *
+         * @param unit 同步单元
+         * @return 本单元处理的数据条数
+         * @throws Exception 处理失败时抛出，计入失败单元数
+         */
+        int handle(T unit) throws Exception;
+    }
+
+    @PostConstruct
+    public void init() {
+        DingdingConfig.Sync sync = dingdingConfig.getSync();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "oa-sync-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        // 有界队列 + CallerRunsPolicy：队列满时由提交线程执行，避免一次性堆积全部单元
+        executor = new ThreadPoolExecutor(
+                sync.getWorkerThreads(),
+                sync.getWorkerThreads(),
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(sync.getQueueCapacity()),
+                threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        // 批处理任务数受输入规模限制，使用无界队列，不会因拒绝策略回到调用线程执行
+        AtomicInteger mapThreadIndex = new AtomicInteger();
+        mapExecutor = new ThreadPoolExecutor(
+                sync.getMapThreads(),
+                sync.getMapThreads(),
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "oa-map-" + mapThreadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        log.info("同步工作线程池初始化完成，线程数: {}, 队列容量: {}, 批处理线程数: {}",
+                sync.getWorkerThreads(), sync.getQueueCapacity(), sync.getMapThreads());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (mapExecutor != null) {
+            mapExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 并发执行所有同步单元，阻塞直到全部完成
+     *
+     * @param syncType 同步类型（写入ding_sync_records.sync_type）
+     * @param units    同步单元列表
+     * @param handler  单元处理器
+     * @param <T>      同步单元类型
+     * @return 本次运行的同步记录
+     */
+    public <T> SyncRecord runAll(String syncType, List<T> units, UnitHandler<T> handler) {
+        SyncRecord syncRecord = syncRecordService.startSync(syncType, units.size());
+        int reportInterval = Math.max(1, dingdingConfig.getSync().getProgressReportInterval());
+
+        AtomicInteger successUnits = new AtomicInteger();
+        AtomicInteger failedUnits = new AtomicInteger();
+        AtomicInteger finishedUnits = new AtomicInteger();
+        AtomicLong totalItems = new AtomicLong();
+        CountDownLatch latch = new CountDownLatch(units.size());
+
+        for (T unit : units) {
+            executor.execute(() -> {
+                try {
+                    totalItems.addAndGet(handler.handle(unit));
+                    successUnits.incrementAndGet();
+                } catch (Exception e) {
+                    failedUnits.incrementAndGet();
+                    log.error("同步单元执行失败: {}", unit, e);
+                } finally {
+                    if (finishedUnits.incrementAndGet() % reportInterval == 0) {
+                        reportProgress(syncRecord, successUnits.get(), failedUnits.get());
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            syncRecordService.failSync(syncRecord, successUnits.get(), "同步被中断");
+            return syncRecord;
+        }
+
+        syncRecord.setExtraData(String.format("{\"items\":%d}", totalItems.get()));
+        if (failedUnits.get() == 0) {
+            syncRecordService.completeSync(syncRecord, successUnits.get());
+        } else {
+            syncRecordService.failSync(syncRecord, successUnits.get(),
+                    String.format("%d个同步单元执行失败", failedUnits.get()));
+        }
+
+        log.info("同步[{}]完成 - 单元总数: {}, 成功: {}, 失败: {}, 数据条数: {}",
+                syncType, units.size(), successUnits.get(), failedUnits.get(), totalItems.get());
+        return syncRecord;
+    }
+
+    /**
+     * 并发处理一组数据并按输入顺序返回结果，阻塞直到全部完成（不写同步记录）
+     * 在独立的批处理线程池中执行；从批处理任务内部嵌套调用时在当前线程顺序执行，避免等待自身线程池；
+     * 单项失败需由mapper自行处理，mapper抛出的异常会中止整个调用
+     *
+     * @param items  输入数据
+     * @param mapper 处理函数
+     * @param <T>    输入类型
+     * @param <R>    结果类型
+     * @return 与输入一一对应的结果
+     */
+    public <T, R> List<R> mapAll(List<T> items, Function<T, R> mapper) {
+        List<R> results = new ArrayList<>(items.size());
+        if (Boolean.TRUE.equals(IN_MAP_TASK.get())) {
+            for (T item : items) {
+                results.add(mapper.apply(item));
+            }
+            return results;
+        }
+
+        List<Callable<R>> tasks = new ArrayList<>(items.size());
+        for (T item : items) {
+            tasks.add(() -> {
+                IN_MAP_TASK.set(Boolean.TRUE);
+                try {
+                    return mapper.apply(item);
+                } finally {
+                    IN_MAP_TASK.remove();
+                }
+            });
+        }
+
+        try {
+            for (Future<R> future : mapExecutor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("并发任务被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("并发任务执行失败", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * 写入阶段性进度（多个工作线程共享同一条记录，需串行化写入）
+     */
+    private void reportProgress(SyncRecord syncRecord, int successCount, int failedCount) {
+        synchronized (syncRecord) {
+            try {
+                syncRecordService.updateProgress(syncRecord, successCount, failedCount);
+            } catch (Exception e) {
+                log.warn("写入同步进度失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.dingding.tree;
+
+import com.example.dingding.dto.DepartmentGroupTreeNodeDTO;
+import com.example.dingding.entity.DepartmentGroup;
+import com.example.dingding.enums.DepartmentGroupType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 部门统计分组树快照
+ * 包含不可变的树节点、序列化后的JSON和对应的ETag，以及加载时的统计表版本号，版本号不变时可一直复用
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public final class DepartmentGroupTree {
+
+    /**
+     * 同级节点排序：REGION -> DEPARTMENT -> 其他，同类型按名称
+     */
+    private static final Comparator<DepartmentGroup> SIBLING_ORDER = Comparator
+            .comparingInt((DepartmentGroup group) -> typeOrder(group.getGroupType()))
+            .thenComparing(DepartmentGroup::getGroupName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final List<DepartmentGroupTreeNodeDTO> roots;
+    private final byte[] json;
+    private final String etag;
+    private final Long version;
+
+    public DepartmentGroupTree(List<DepartmentGroupTreeNodeDTO> roots, byte[] json, String etag, Long version) {
+        this.roots = roots;
+        this.json = json;
+        this.etag = etag;
+        this.version = version;
+    }
+
+    /**
+     * 由统计表记录构建不可变树节点
+     * 先按父分组ID建立子节点索引并排序，再按层序的逆序自底向上创建节点，不使用递归
+     *
+     * @param groups 统计表记录
+     * @return 排序后的根节点（父分组不存在的节点也作为根节点）
+     */
+    public static List<DepartmentGroupTreeNodeDTO> buildNodes(List<DepartmentGroup> groups) {
+        Map<Long, DepartmentGroup> byId = new HashMap<>(groups.size() * 2);
+        for (DepartmentGroup group : groups) {
+            byId.putIfAbsent(group.getGroupId(), group);
+        }
+
+        List<DepartmentGroup> rootGroups = new ArrayList<>();
+        Map<Long, List<DepartmentGroup>> childrenByParent = new HashMap<>(byId.size() * 2);
+        for (DepartmentGroup group : byId.values()) {
+            Long parentId = group.getParentGroupId();
+            if (parentId == null || !byId.containsKey(parentId)) {
+                rootGroups.add(group);
+            } else {
+                childrenByParent.computeIfAbsent(parentId, key -> new ArrayList<>()).add(group);
+            }
+        }
+        rootGroups.sort(SIBLING_ORDER);
+        childrenByParent.values().forEach(children -> children.sort(SIBLING_ORDER));
+
+        // 层序遍历，父节点总在子节点之前
+        List<DepartmentGroup> levelOrder = new ArrayList<>(byId.size());
+        Deque<DepartmentGroup> queue = new ArrayDeque<>(rootGroups);
+        while (!queue.isEmpty()) {
+            DepartmentGroup group = queue.poll();
+            levelOrder.add(group);
+            queue.addAll(childrenByParent.getOrDefault(group.getGroupId(), Collections.emptyList()));
+        }
+
+        Map<Long, DepartmentGroupTreeNodeDTO> nodes = new HashMap<>(levelOrder.size() * 2);
+        for (int i = levelOrder.size() - 1; i >= 0; i--) {
+            DepartmentGroup group = levelOrder.get(i);
+            List<DepartmentGroup> childGroups = childrenByParent.getOrDefault(group.getGroupId(), Collections.emptyList());
+            List<DepartmentGroupTreeNodeDTO> children = new ArrayList<>(childGroups.size());
+            for (DepartmentGroup child : childGroups) {
+                children.add(nodes.get(child.getGroupId()));
+            }
+            nodes.put(group.getGroupId(), new DepartmentGroupTreeNodeDTO(
+                    group.getGroupId(),
+                    group.getDeptId(),
+                    group.getGroupName(),
+                    group.getGroupType() == null ? null : group.getGroupType().getCode(),
+                    group.getParentGroupId(),
+                    children));
+        }
+
+        List<DepartmentGroupTreeNodeDTO> result = new ArrayList<>(rootGroups.size());
+        for (DepartmentGroup root : rootGroups) {
+            result.add(nodes.get(root.getGroupId()));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static int typeOrder(DepartmentGroupType type) {
+        if (type == DepartmentGroupType.REGION) {
+            return 1;
+        } else if (type == DepartmentGroupType.DEPARTMENT) {
+            return 2;
+        }
+        return 3;
+    }
+
+    public List<DepartmentGroupTreeNodeDTO> getRoots() {
+        return roots;
+    }
+
+    /**
+     * 序列化后的JSON（共享数组，调用方不得修改）
+     */
+    public byte[] getJson() {
+        return json;
+    }
+
+    /**
+     * 强ETag（含双引号）
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * 加载时的统计表版本号，读取失败时为null
+     */
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.dingding.tree;
+
+import com.example.dingding.entity.DepartmentGroup;
+import com.example.dingding.entity.DepartmentSCD2;
+import com.example.dingding.enums.DepartmentGroupType;
+import com.example.dingding.util.LongHashSet;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 部门统计分组构建器
+ * 先按父部门ID为部门列表建立一次子部门索引，再从顶层部门迭代先序遍历，
+ * 每个部门只访问一次，整体O(n)，层级再深也不会栈溢出；区域、项目部、总部共用
+ *
+ * @author system
+ * @version 1.0.0
+ */
+@Slf4j
+public final class DepartmentGroupTreeBuilder {
+
+    private static final LocalDate VALID_TO = LocalDate.of(9999, 12, 31);
+
+    private DepartmentGroupTreeBuilder() {
+    }
+
+    /**
+     * 构建部门统计分组
+     *
+     * @param departments      参与构建的部门（顶层部门及其所有下级，按deptId去重，保留第一条）
+     * @param topLevel         顶层部门
+     * @param topParentGroupId 顶层分组的父分组ID（区域为null，项目部/总部为虚拟根节点ID）
+     * @param levelTypes       各层级的分组类型，下标0为顶层；超出部分的层级类型为null
+     * @return 分组列表，按先序排列（父分组总在子分组之前）
+     */
+    public static List<DepartmentGroup> build(List<DepartmentSCD2> departments, List<DepartmentSCD2> topLevel,
+                                              Long topParentGroupId, DepartmentGroupType... levelTypes) {
+        Map<Long, List<DepartmentSCD2>> childrenByParent = indexChildren(departments);
+
+        // 顶层部门预先标记，若某个顶层部门同时是另一个顶层部门的下级，只作为顶层输出一次
+        LongHashSet emitted = new LongHashSet(departments.size() + topLevel.size());
+        List<DepartmentSCD2> roots = new ArrayList<>(topLevel.size());
+        for (DepartmentSCD2 dept : topLevel) {
+            if (emitted.add(dept.getDeptId())) {
+                roots.add(dept);
+            }
+        }
+
+        LocalDate validFrom = LocalDate.now();
+        List<DepartmentGroup> result = new ArrayList<>(departments.size());
+        Deque<Node> stack = new ArrayDeque<>();
+        for (DepartmentSCD2 root : roots) {
+            stack.push(new Node(root, 0));
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                Long parentGroupId = node.level == 0 ? topParentGroupId : node.dept.getParentId();
+                DepartmentGroupType type = node.level < levelTypes.length ? levelTypes[node.level] : null;
+                result.add(toGroup(node.dept, parentGroupId, type, validFrom));
+
+                List<DepartmentSCD2> children = childrenByParent.getOrDefault(node.dept.getDeptId(), Collections.emptyList());
+                // 逆序入栈，保证出栈顺序与输入顺序一致
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    DepartmentSCD2 child = children.get(i);
+                    if (emitted.add(child.getDeptId())) {
+                        stack.push(new Node(child, node.level + 1));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按父部门ID建立子部门索引
+     */
+    private static Map<Long, List<DepartmentSCD2>> indexChildren(List<DepartmentSCD2> departments) {
+        Map<Long, List<DepartmentSCD2>> childrenByParent = new HashMap<>(departments.size() * 2);
+        LongHashSet seen = new LongHashSet(departments.size());
+        for (DepartmentSCD2 dept : departments) {
+            if (!seen.add(dept.getDeptId())) {
+                log.warn("部门 {} (ID: {}) 重复出现，跳过", dept.getName(), dept.getDeptId());
+                continue;
+            }
+            if (dept.getParentId() != null) {
+                childrenByParent.computeIfAbsent(dept.getParentId(), key -> new ArrayList<>()).add(dept);
+            }
+        }
+        return childrenByParent;
+    }
+
+    private static DepartmentGroup toGroup(DepartmentSCD2 dept, Long parentGroupId,
+                                           DepartmentGroupType type, LocalDate validFrom) {
+        DepartmentGroup group = new DepartmentGroup();
+        group.setGroupId(dept.getDeptId());      // 使用真实的dept_id
+        group.setDeptId(dept.getDeptId());       // 使用真实的dept_id
+        group.setGroupName(dept.getName());
+        group.setGroupType(type);
+        group.setParentGroupId(parentGroupId);
+        group.setCurrentVersion(true);
+        group.setValidFrom(validFrom);
+        group.setValidTo(VALID_TO);
+        group.setNum(dept.getNum());
+        return group;
+    }
+
+    /**
+     * 遍历栈中的部门及其相对顶层的层级
+     */
+    private static final class Node {
+        private final DepartmentSCD2 dept;
+        private final int level;
+
+        private Node(DepartmentSCD2 dept, int level) {
+            this.dept = dept;
+            this.level = level;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.dingding.tree;
+
+import com.example.dingding.dto.DepartmentTreeNodeDTO;
+import com.example.dingding.entity.DepartmentSCD2;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 不可变组织树
+ * 由某一日期有效的部门版本构建，构建后只读，可在多线程间共享和缓存；
+ * 构建时按先序遍历（Euler tour）为每个节点编号，子树中的节点在先序序列中连续，
+ * 子树查询为一次数组区间拷贝，祖先判断为O(1)的区间包含比较，无需递归查询数据库
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public final class OrgTree {
+
+    private static final int[] NO_CHILDREN = new int[0];
+
+    private final LocalDate asOf;
+    private final DepartmentSCD2[] versions;
+    private final int[] parents;
+    private final int[][] children;
+    private final int[] roots;
+    private final Map<Long, Integer> indexByDeptId;
+
+    /**
+     * 节点的先序编号、子树最后一个节点的先序编号、深度（根为0）
+     */
+    private final int[] pre;
+    private final int[] last;
+    private final int[] depth;
+
+    /**
+     * 先序序列：preOrder[先序编号] = 节点下标
+     */
+    private final int[] preOrder;
+
+    /**
+     * 从根可达的节点数，先序编号不小于该值的节点位于环上或环的下级
+     */
+    private final int reachableCount;
+
+    private OrgTree(LocalDate asOf, List<DepartmentSCD2> versionList) {
+        int size = versionList.size();
+        this.asOf = asOf;
+        this.versions = versionList.toArray(new DepartmentSCD2[0]);
+        this.indexByDeptId = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            indexByDeptId.put(versions[i].getDeptId(), i);
+        }
+
+        // 父部门不在树中（含根部门）的节点作为根
+        this.parents = new int[size];
+        int[] childCounts = new int[size];
+        int rootCount = 0;
+        for (int i = 0; i < size; i++) {
+            Long parentId = versions[i].getParentId();
+            Integer parent = parentId == null ? null : indexByDeptId.get(parentId);
+            if (parent == null || parent == i) {
+                parents[i] = -1;
+                rootCount++;
+            } else {
+                parents[i] = parent;
+                childCounts[parent]++;
+            }
+        }
+
+        this.children = new int[size][];
+        for (int i = 0; i < size; i++) {
+            children[i] = childCounts[i] == 0 ? NO_CHILDREN : new int[childCounts[i]];
+        }
+        this.roots = new int[rootCount];
+        int[] filled = new int[size];
+        int rootFilled = 0;
+        for (int i = 0; i < size; i++) {
+            if (parents[i] < 0) {
+                roots[rootFilled++] = i;
+            } else {
+                children[parents[i]][filled[parents[i]]++] = i;
+            }
+        }
+
+        this.pre = new int[size];
+        this.last = new int[size];
+        this.depth = new int[size];
+        this.preOrder = new int[size];
+        Arrays.fill(pre, -1);
+        int visited = number();
+        this.reachableCount = visited;
+        if (visited < size) {
+            // 存在环（数据异常），环上节点不可达，保持为无子树的孤立节点
+            for (int i = 0; i < size; i++) {
+                if (pre[i] < 0) {
+                    pre[i] = visited;
+                    last[i] = visited;
+                    preOrder[visited++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * 迭代先序遍历编号，避免层级很深时递归栈溢出
+     *
+     * @return 已编号的节点数
+     */
+    private int number() {
+        int counter = 0;
+        int[] stack = new int[versions.length];
+        int[] cursor = new int[versions.length];
+        for (int root : roots) {
+            int top = 0;
+            stack[0] = root;
+            cursor[root] = 0;
+            depth[root] = 0;
+            pre[root] = counter;
+            preOrder[counter++] = root;
+            while (top >= 0) {
+                int node = stack[top];
+                if (cursor[node] < children[node].length) {
+                    int child = children[node][cursor[node]++];
+                    cursor[child] = 0;
+                    depth[child] = depth[node] + 1;
+                    pre[child] = counter;
+                    preOrder[counter++] = child;
+                    stack[++top] = child;
+                } else {
+                    last[node] = counter - 1;
+                    top--;
+                }
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * 根据部门版本构建组织树
+     *
+     * @param asOf     版本有效日期
+     * @param versions 该日期有效的部门版本（每个部门一条）
+     * @return 组织树
+     */
+    public static OrgTree build(LocalDate asOf, List<DepartmentSCD2> versions) {
+        return new OrgTree(asOf, versions);
+    }
+
+    public LocalDate getAsOf() {
+        return asOf;
+    }
+
+    /**
+     * 部门总数
+     */
+    public int size() {
+        return versions.length;
+    }
+
+    /**
+     * 是否包含指定部门
+     */
+    public boolean contains(Long deptId) {
+        return indexByDeptId.containsKey(deptId);
+    }
+
+    /**
+     * 获取部门版本
+     *
+     * @param deptId 部门ID
+     * @return 部门版本，不存在时返回null
+     */
+    public DepartmentSCD2 get(Long deptId) {
+        Integer index = indexByDeptId.get(deptId);
+        return index == null ? null : versions[index];
+    }
+
+    /**
+     * 按名称查找部门
+     *
+     * @param names 部门名称
+     * @return 名称匹配的部门，按部门ID升序
+     */
+    public List<DepartmentSCD2> findByNames(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> nameSet = names instanceof Set ? (Set<String>) names : new HashSet<>(names);
+        List<DepartmentSCD2> result = new ArrayList<>();
+        for (DepartmentSCD2 version : versions) {
+            if (nameSet.contains(version.getName())) {
+                result.add(version);
+            }
+        }
+        result.sort((a, b) -> Long.compare(a.getDeptId(), b.getDeptId()));
+        return result;
+    }
+
+    /**
+     * 获取部门的直接下级部门
+     *
+     * @param deptId 部门ID
+     * @return 直接下级部门列表，部门不存在时返回空列表
+     */
+    public List<DepartmentSCD2> getChildren(Long deptId) {
+        Integer index = indexByDeptId.get(deptId);
+        if (index == null || children[index].length == 0) {
+            return Collections.emptyList();
+        }
+        List<DepartmentSCD2> result = new ArrayList<>(children[index].length);
+        for (int child : children[index]) {
+            result.add(versions[child]);
+        }
+        return result;
+    }
+
+    /**
+     * 获取部门的所有下级部门（不含自身），按先序排列，父部门总在子部门之前
+     *
+     * @param deptId 部门ID
+     * @return 下级部门列表，部门不存在时返回空列表
+     */
+    public List<DepartmentSCD2> getDescendants(Long deptId) {
+        Integer index = indexByDeptId.get(deptId);
+        if (index == null || last[index] == pre[index]) {
+            return Collections.emptyList();
+        }
+        List<DepartmentSCD2> result = new ArrayList<>(last[index] - pre[index]);
+        for (int p = pre[index] + 1; p <= last[index]; p++) {
+            result.add(versions[preOrder[p]]);
+        }
+        return result;
+    }
+
+    /**
+     * 获取下级部门数量（不含自身）
+     */
+    public int getDescendantCount(Long deptId) {
+        Integer index = indexByDeptId.get(deptId);
+        return index == null ? 0 : last[index] - pre[index];
+    }
+
+    /**
+     * 判断ancestorId是否为deptId的祖先部门（不含自身）
+     */
+    public boolean isAncestor(Long ancestorId, Long deptId) {
+        Integer a = indexByDeptId.get(ancestorId);
+        Integer d = indexByDeptId.get(deptId);
+        if (a == null || d == null || a.equals(d)) {
+            return false;
+        }
+        return pre[a] < pre[d] && pre[d] <= last[a];
+    }
+
+    /**
+     * 获取部门深度（根部门为0）
+     *
+     * @return 深度，部门不存在时返回-1
+     */
+    public int getDepth(Long deptId) {
+        Integer index = indexByDeptId.get(deptId);
+        return index == null ? -1 : depth[index];
+    }
+
+    /**
+     * 获取部门的祖先链（不含自身），从直接上级到根部门；环上的异常节点没有祖先链
+     */
+    public List<DepartmentSCD2> getAncestors(Long deptId) {
+        Integer index = indexByDeptId.get(deptId);
+        if (index == null || parents[index] < 0 || pre[index] >= reachableCount) {
+            return Collections.emptyList();
+        }
+        List<DepartmentSCD2> result = new ArrayList<>(depth[index]);
+        for (int p = parents[index]; p >= 0; p = parents[p]) {
+            result.add(versions[p]);
+        }
+        return result;
+    }
+
+    /**
+     * 转换为嵌套的树节点，每次调用返回新的对象，调用方可自由修改
+     *
+     * @return 根节点列表
+     */
+    public List<DepartmentTreeNodeDTO> toTreeNodes() {
+        if (roots.length == 0) {
+            return Collections.emptyList();
+        }
+        // 按先序逆序创建节点，子节点总是先于父节点创建完毕
+        DepartmentTreeNodeDTO[] nodes = new DepartmentTreeNodeDTO[versions.length];
+        for (int p = preOrder.length - 1; p >= 0; p--) {
+            int index = preOrder[p];
+            DepartmentSCD2 version = versions[index];
+            DepartmentTreeNodeDTO node = new DepartmentTreeNodeDTO()
+                    .setDeptId(version.getDeptId())
+                    .setParentId(version.getParentId())
+                    .setName(version.getName())
+                    .setNum(version.getNum());
+            for (int child : children[index]) {
+                // 环上的异常节点可能尚未创建，直接跳过
+                if (nodes[child] != null) {
+                    node.getChildren().add(nodes[child]);
+                }
+            }
+            nodes[index] = node;
+        }
+        List<DepartmentTreeNodeDTO> result = new ArrayList<>(roots.length);
+        for (int root : roots) {
+            result.add(nodes[root]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.dingding.util;
+
+/**
+ * long类型开放寻址哈希集合
+ * 直接存储基本类型，避免List&lt;Long&gt;.contains的线性查找和Long装箱开销；
+ * 仅支持添加和查询，适用于一次构建、多次查询的ID集合
+ *
+ * @author system
+ * @version 1.0.0
+ */
+public class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new long[capacity];
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param key 元素
+     * @return 集合中原本不存在该元素时返回true
+     */
+    public boolean add(long key) {
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        int index = indexOf(key);
+        if (used[index]) {
+            return false;
+        }
+        keys[index] = key;
+        used[index] = true;
+        size++;
+        return true;
+    }
+
+    /**
+     * 判断元素是否存在
+     *
+     * @param key 元素
+     * @return 是否存在
+     */
+    public boolean contains(long key) {
+        return used[indexOf(key)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 线性探测查找元素所在槽位，不存在时返回第一个空槽
+     */
+    private int indexOf(long key) {
+        int index = mix(key) & mask;
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length << 1];
+        used = new boolean[oldUsed.length << 1];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                used[index] = true;
+            }
+        }
+    }
+
+    /**
+     * 打散高低位，避免连续ID聚集在相邻槽位
+     */
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -10,11 +10,14 @@ CREATE TABLE `dim_department_jy` (
     `dept_id` BIGINT NOT NULL COMMENT '钉钉部门ID（业务键）',
     `parent_id` BIGINT DEFAULT NULL COMMENT '父部门ID',
     `name` VARCHAR(255) NOT NULL COMMENT '部门名称',
+    `num` INT DEFAULT NULL COMMENT '部门下的员工数量',
+    `row_hash` BIGINT DEFAULT NULL COMMENT '跟踪属性（父部门、名称、人数）的内容哈希',
 
     -- SCD2 字段
     `valid_from` DATE NOT NULL COMMENT '版本生效日期',
     `valid_to` DATE NOT NULL COMMENT '版本失效日期',
     `is_current` TINYINT(1) NOT NULL DEFAULT 1 COMMENT '是否当前版本（1=是，0=否）',
+    `current_dept_id` BIGINT AS (IF(`is_current` = 1, `dept_id`, NULL)) STORED COMMENT '当前版本的部门ID，历史版本为NULL（生成列）',
 
     -- 审计字段
     `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -22,8 +25,8 @@ CREATE TABLE `dim_department_jy` (
 
     PRIMARY KEY (`id`),
 
-    -- 同一部门只能有一个当前版本
-    UNIQUE KEY `uk_dept_current` (`dept_id`, `is_current`),
+    -- 同一部门只能有一个当前版本；历史版本的生成列为NULL，可保留任意多个
+    UNIQUE KEY `uk_dept_current` (`current_dept_id`),
 
     -- 索引优化
     KEY `idx_dept_id` (`dept_id`),
@@ -36,4 +39,6 @@ CREATE TABLE `dim_department_jy` (
   COMMENT='部门维度表（SCD2，保存部门历史版本）';
 
 -- 初始化9999-12-31的特殊日期处理（可选，用于默认值）
--- 实际应用中会在插入时动态设置
\ No newline at end of file
+-- 实际应用中会在插入时动态设置
+
+-- 已有表升级（row_hash 列、current_dept_id 生成列及唯一键）见 migration-department-scd2.sql
@@ -0,0 +1,16 @@
+-- 已有库升级：部门维度表增加内容哈希列，并把当前版本唯一键改为生成列
+-- 全新安装执行department-scd2-schema.sql即可，无需执行本脚本
+-- 本脚本执行前，部门同步的批量合并在同一部门第二次关闭版本时违反(dept_id, is_current)唯一键，
+-- 整批回退到逐个合并；需MySQL 5.7以上（生成列）
+
+USE dingding_lean;
+
+-- 1. 增加内容哈希列（历史行为NULL，变更检测时按当前属性计算，新版本写入时自动填充）
+ALTER TABLE `dim_department_jy`
+    ADD COLUMN `row_hash` BIGINT DEFAULT NULL COMMENT '跟踪属性（父部门、名称、人数）的内容哈希' AFTER `num`;
+
+-- 2. 原(dept_id, is_current)唯一键改为只约束当前版本的生成列，历史版本可保留任意多个
+ALTER TABLE `dim_department_jy`
+    DROP INDEX `uk_dept_current`,
+    ADD COLUMN `current_dept_id` BIGINT AS (IF(`is_current` = 1, `dept_id`, NULL)) STORED COMMENT '当前版本的部门ID，历史版本为NULL（生成列）' AFTER `is_current`,
+    ADD UNIQUE KEY `uk_dept_current` (`current_dept_id`);
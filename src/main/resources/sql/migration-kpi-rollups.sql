@@ -0,0 +1,32 @@
+-- 已有库升级：新增提案指标汇总表并回填历史数据
+-- 全新安装执行schema.sql即可，无需执行本脚本
+-- 本脚本执行前，汇总指标接口（/api/kpi/rollups）返回空列表；
+-- 上线后新同步的流程实例会由同步流程按脏日期增量汇总
+
+USE dingding_lean;
+
+-- 1. 创建提案指标汇总表（与schema.sql第8节一致）
+CREATE TABLE IF NOT EXISTS ding_proposal_kpi_rollups (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    period_type VARCHAR(10) NOT NULL COMMENT '统计周期(DAY/MONTH)',
+    period_start DATE NOT NULL COMMENT '周期开始日期（月汇总为当月1日）',
+    group_id BIGINT NOT NULL COMMENT '分组ID（dim_department_group_jy.group_id）',
+    parent_group_id BIGINT COMMENT '父分组ID',
+    group_type VARCHAR(20) COMMENT '分组类型',
+    group_name VARCHAR(200) COMMENT '分组名称',
+    proposal_count INT NOT NULL DEFAULT 0 COMMENT '提案总数',
+    proposer_count INT NOT NULL DEFAULT 0 COMMENT '提案人数（去重）',
+    passed_count INT NOT NULL DEFAULT 0 COMMENT '审批通过数',
+    adopted_count INT NOT NULL DEFAULT 0 COMMENT '采纳数（立项数）',
+    closed_in_time_count INT NOT NULL DEFAULT 0 COMMENT '采纳后按期结案数',
+    overdue_count INT NOT NULL DEFAULT 0 COMMENT '采纳后超期数',
+    employee_count INT COMMENT '汇总时的分组员工数',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+
+    UNIQUE KEY uk_period_group (period_type, period_start, group_id),
+    INDEX idx_parent_period (parent_group_id, period_type, period_start)
+) COMMENT='提案指标汇总表';
+
+-- 2. 历史数据回填：汇总口径（分组归属、按期结案）由应用计算，建表后调用重算接口，按需分段执行
+-- curl -X POST 'http://localhost:8081/api/kpi/rollups/refresh?from=2024-01-01&to=2024-12-31'
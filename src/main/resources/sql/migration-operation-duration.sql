@@ -0,0 +1,21 @@
+-- 已有库升级：操作记录表增加环节耗时列和流程效率统计索引，并回填历史数据
+-- 全新安装执行schema.sql即可，无需执行本脚本
+-- 本脚本执行前，流程效率统计（平均环节耗时）对历史数据返回空值；需MySQL 8.0以上（窗口函数）
+
+USE dingding_lean;
+
+-- 1. 新增列和覆盖索引
+ALTER TABLE ding_operation_records
+    ADD COLUMN duration_seconds BIGINT COMMENT '环节耗时(秒)，到下一个更晚操作的时间差' AFTER task_id,
+    ADD INDEX idx_type_date_step (operation_type, operation_date, show_name, duration_seconds);
+
+-- 2. 历史数据回填：用窗口函数一次性计算已入库操作记录的环节耗时
+-- 耗时为到同一流程实例下一个更晚操作的时间差，最后一个操作为NULL；重复执行结果相同
+UPDATE ding_operation_records o
+JOIN (
+    SELECT id,
+        MIN(operation_date) OVER (PARTITION BY process_instance_id ORDER BY operation_date
+            RANGE BETWEEN INTERVAL 1 SECOND FOLLOWING AND UNBOUNDED FOLLOWING) AS next_operation_date
+    FROM ding_operation_records
+) n ON o.id = n.id
+SET o.duration_seconds = TIMESTAMPDIFF(SECOND, o.operation_date, n.next_operation_date);
@@ -0,0 +1,61 @@
+-- 已有库升级：新增提案事实表并回填历史数据
+-- 全新安装执行schema.sql即可，无需执行本脚本
+-- 本脚本执行前，按提案事实表统计的看板（改善等级、提案类别、经济效益等）历史数据显示为0；
+-- 上线后新同步的流程实例会由同步流程自动写入提案事实
+
+USE dingding_lean;
+
+-- 1. 创建提案事实表（与schema.sql第9节一致）
+CREATE TABLE IF NOT EXISTS ding_proposal_facts (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    process_instance_id VARCHAR(100) NOT NULL COMMENT '流程实例ID',
+    process_code VARCHAR(100) COMMENT '流程模板ID',
+    originator_userid VARCHAR(50) COMMENT '发起人用户ID',
+    create_time DATETIME COMMENT '流程创建时间',
+    economic_benefit DECIMAL(14,2) COMMENT '预计产生经济效益(元)',
+    improvement_level_code VARCHAR(64) COMMENT '改善等级选项编码',
+    improvement_level VARCHAR(50) COMMENT '改善等级',
+    proposal_category_code VARCHAR(64) COMMENT '提案类别选项编码',
+    proposal_category VARCHAR(100) COMMENT '提案类别',
+    declared_date DATE COMMENT '申报日期',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+
+    UNIQUE KEY uk_process_instance (process_instance_id),
+    INDEX idx_create_level (create_time, improvement_level),
+    INDEX idx_create_category (create_time, proposal_category),
+    INDEX idx_create_originator_benefit (create_time, originator_userid, economic_benefit),
+    INDEX idx_declared_date (declared_date)
+) COMMENT='提案事实表';
+
+-- 2. 外键约束（表已存在且已有该约束时跳过本语句）
+ALTER TABLE ding_proposal_facts
+ADD CONSTRAINT fk_pf_process_instance
+FOREIGN KEY (process_instance_id) REFERENCES ding_process_instances(process_instance_id) ON DELETE CASCADE;
+
+-- 3. 历史数据回填：已入库的流程实例按表单组件值生成提案事实
+-- 按流程实例ID去重，重复执行不会覆盖同步流程已写入的数据
+INSERT INTO ding_proposal_facts (process_instance_id, process_code, originator_userid, create_time,
+    economic_benefit, improvement_level_code, improvement_level, proposal_category_code, proposal_category, declared_date)
+SELECT dpi.process_instance_id, dpi.process_code, dpi.originator_userid, dpi.create_time,
+    CASE WHEN REPLACE(fcv_economic.value, ',', '') REGEXP '^-?[0-9]+(\\.[0-9]+)?$'
+         THEN CAST(REPLACE(fcv_economic.value, ',', '') AS DECIMAL(14,2)) END,
+    JSON_UNQUOTE(JSON_EXTRACT(CASE WHEN JSON_VALID(fcv_level.ext_value) THEN fcv_level.ext_value END, '$.key')),
+    NULLIF(TRIM(fcv_level.value), ''),
+    JSON_UNQUOTE(JSON_EXTRACT(CASE WHEN JSON_VALID(fcv_category.ext_value) THEN fcv_category.ext_value END, '$.key')),
+    NULLIF(TRIM(fcv_category.value), ''),
+    CASE WHEN fcv_date.value REGEXP '^[0-9]{4}-[0-9]{2}-[0-9]{2}' THEN CAST(LEFT(fcv_date.value, 10) AS DATE) END
+FROM ding_process_instances dpi
+LEFT JOIN ding_form_component_values fcv_economic ON
+    dpi.process_instance_id = fcv_economic.process_instance_id
+    AND fcv_economic.component_name = '预计产生经济效益(元)'
+LEFT JOIN ding_form_component_values fcv_level ON
+    dpi.process_instance_id = fcv_level.process_instance_id
+    AND fcv_level.component_name = '改善等级'
+LEFT JOIN ding_form_component_values fcv_category ON
+    dpi.process_instance_id = fcv_category.process_instance_id
+    AND fcv_category.component_name = '提案类别'
+LEFT JOIN ding_form_component_values fcv_date ON
+    dpi.process_instance_id = fcv_date.process_instance_id
+    AND fcv_date.component_name = '申报日期'
+ON DUPLICATE KEY UPDATE process_instance_id = ding_proposal_facts.process_instance_id;
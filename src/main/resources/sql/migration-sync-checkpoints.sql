@@ -0,0 +1,22 @@
+-- 已有库升级：新增同步检查点表
+-- 全新安装执行schema.sql即可，无需执行本脚本
+-- 本脚本执行前，增量同步无法读写检查点；执行后首次同步按 initial-lookback-days 回溯，之后从检查点继续
+
+USE dingding_lean;
+
+-- 1. 创建同步检查点表（与schema.sql第7节一致）
+CREATE TABLE IF NOT EXISTS ding_sync_checkpoints (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    process_code VARCHAR(100) NOT NULL COMMENT '流程模板ID',
+    dept_id BIGINT NOT NULL COMMENT '发起人部门ID',
+    last_create_time DATETIME NOT NULL COMMENT '已同步完成的创建时间上限（不含）',
+    members_hash CHAR(32) COMMENT '推进检查点时的部门成员指纹，成员变化后检查点失效',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+
+    UNIQUE KEY uk_process_dept (process_code, dept_id)
+) COMMENT='同步检查点表';
+
+-- 2. 检查点表已由早期版本创建（无成员指纹列）时补列；已有检查点的指纹为NULL，下次同步按回溯起点重扫一次
+-- ALTER TABLE ding_sync_checkpoints
+--     ADD COLUMN members_hash CHAR(32) COMMENT '推进检查点时的部门成员指纹，成员变化后检查点失效' AFTER last_create_time;
@@ -71,10 +71,12 @@ CREATE TABLE ding_operation_records (
     remark TEXT COMMENT '评论内容',
     images JSON COMMENT '操作图片',
     task_id BIGINT COMMENT '任务ID',
+    duration_seconds BIGINT COMMENT '环节耗时(秒)，到下一个更晚操作的时间差',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
 
     INDEX idx_process_instance (process_instance_id),
     INDEX idx_operation_date (operation_date),
+    INDEX idx_type_date_step (operation_type, operation_date, show_name, duration_seconds),
     INDEX idx_user_id (user_id),
     INDEX idx_operation_type (operation_type),
     INDEX idx_result (result),
@@ -124,7 +126,7 @@ CREATE TABLE ding_form_templates (
 -- 6. 数据同步记录表
 CREATE TABLE ding_sync_records (
     id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
-    sync_type VARCHAR(50) NOT NULL COMMENT '同步类型(INSTANCE_IDS/PROCESS_DETAILS)',
+    sync_type VARCHAR(50) NOT NULL COMMENT '同步类型(INSTANCE_IDS/PROCESS_DETAILS/PROCESS_REFRESH)',
     sync_start_time DATETIME NOT NULL COMMENT '同步开始时间',
     sync_end_time DATETIME COMMENT '同步结束时间',
     sync_status VARCHAR(20) NOT NULL COMMENT '同步状态(SUCCESS/FAILED/PARTIAL)',
@@ -140,6 +142,65 @@ CREATE TABLE ding_sync_records (
     INDEX idx_sync_start_time (sync_start_time)
 ) COMMENT='数据同步记录表';
 
+-- 7. 同步检查点表（按表单+部门记录已同步完成的高水位）
+CREATE TABLE ding_sync_checkpoints (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    process_code VARCHAR(100) NOT NULL COMMENT '流程模板ID',
+    dept_id BIGINT NOT NULL COMMENT '发起人部门ID',
+    last_create_time DATETIME NOT NULL COMMENT '已同步完成的创建时间上限（不含）',
+    members_hash CHAR(32) COMMENT '推进检查点时的部门成员指纹，成员变化后检查点失效',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+
+    UNIQUE KEY uk_process_dept (process_code, dept_id)
+) COMMENT='同步检查点表';
+
+-- 8. 提案指标汇总表（按日/月和部门统计分组预先汇总，由同步流程增量维护）
+CREATE TABLE ding_proposal_kpi_rollups (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    period_type VARCHAR(10) NOT NULL COMMENT '统计周期(DAY/MONTH)',
+    period_start DATE NOT NULL COMMENT '周期开始日期（月汇总为当月1日）',
+    group_id BIGINT NOT NULL COMMENT '分组ID（dim_department_group_jy.group_id）',
+    parent_group_id BIGINT COMMENT '父分组ID',
+    group_type VARCHAR(20) COMMENT '分组类型',
+    group_name VARCHAR(200) COMMENT '分组名称',
+    proposal_count INT NOT NULL DEFAULT 0 COMMENT '提案总数',
+    proposer_count INT NOT NULL DEFAULT 0 COMMENT '提案人数（去重）',
+    passed_count INT NOT NULL DEFAULT 0 COMMENT '审批通过数',
+    adopted_count INT NOT NULL DEFAULT 0 COMMENT '采纳数（立项数）',
+    closed_in_time_count INT NOT NULL DEFAULT 0 COMMENT '采纳后按期结案数',
+    overdue_count INT NOT NULL DEFAULT 0 COMMENT '采纳后超期数',
+    employee_count INT COMMENT '汇总时的分组员工数',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+
+    UNIQUE KEY uk_period_group (period_type, period_start, group_id),
+    INDEX idx_parent_period (parent_group_id, period_type, period_start)
+) COMMENT='提案指标汇总表';
+
+-- 9. 提案事实表（关键表单字段解析后的强类型列，每个流程实例一行）
+CREATE TABLE ding_proposal_facts (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    process_instance_id VARCHAR(100) NOT NULL COMMENT '流程实例ID',
+    process_code VARCHAR(100) COMMENT '流程模板ID',
+    originator_userid VARCHAR(50) COMMENT '发起人用户ID',
+    create_time DATETIME COMMENT '流程创建时间',
+    economic_benefit DECIMAL(14,2) COMMENT '预计产生经济效益(元)',
+    improvement_level_code VARCHAR(64) COMMENT '改善等级选项编码',
+    improvement_level VARCHAR(50) COMMENT '改善等级',
+    proposal_category_code VARCHAR(64) COMMENT '提案类别选项编码',
+    proposal_category VARCHAR(100) COMMENT '提案类别',
+    declared_date DATE COMMENT '申报日期',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+
+    UNIQUE KEY uk_process_instance (process_instance_id),
+    INDEX idx_create_level (create_time, improvement_level),
+    INDEX idx_create_category (create_time, proposal_category),
+    INDEX idx_create_originator_benefit (create_time, originator_userid, economic_benefit),
+    INDEX idx_declared_date (declared_date)
+) COMMENT='提案事实表';
+
 -- 添加外键约束
 ALTER TABLE ding_form_component_values
 ADD CONSTRAINT fk_fcv_process_instance
@@ -153,6 +214,10 @@ ALTER TABLE ding_tasks
 ADD CONSTRAINT fk_tasks_process_instance
 FOREIGN KEY (process_instance_id) REFERENCES ding_process_instances(process_instance_id) ON DELETE CASCADE;
 
+ALTER TABLE ding_proposal_facts
+ADD CONSTRAINT fk_pf_process_instance
+FOREIGN KEY (process_instance_id) REFERENCES ding_process_instances(process_instance_id) ON DELETE CASCADE;
+
 -- 初始化表单模板数据
 INSERT INTO ding_form_templates (process_code, template_name, description) VALUES
 ('PROC-FD7C69D9-67AA-4C09-8DB1-3D1A40FC8679', '合理化建议【提给别的部门，提这个，无积分】', '跨部门合理化建议表单'),
@@ -0,0 +1,60 @@
+package com.example.dingding.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 部门SCD2实体内容哈希单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class DepartmentSCD2Test {
+
+    @Test
+    void rowHashIgnoresSurroundingWhitespaceInName() {
+        assertEquals(DepartmentSCD2.computeRowHash(1L, "研发部", 10),
+                DepartmentSCD2.computeRowHash(1L, "  研发部 ", 10));
+    }
+
+    @Test
+    void rowHashChangesWithEachTrackedAttribute() {
+        long base = DepartmentSCD2.computeRowHash(1L, "研发部", 10);
+
+        assertNotEquals(base, DepartmentSCD2.computeRowHash(2L, "研发部", 10));
+        assertNotEquals(base, DepartmentSCD2.computeRowHash(1L, "测试部", 10));
+        assertNotEquals(base, DepartmentSCD2.computeRowHash(1L, "研发部", 11));
+        assertNotEquals(base, DepartmentSCD2.computeRowHash(1L, "研发部", null));
+    }
+
+    @Test
+    void rowHashSeparatesFieldBoundaries() {
+        // 父部门ID与名称拼接相同但字段不同，不能算作同一内容
+        assertNotEquals(DepartmentSCD2.computeRowHash(12L, "3部", 1),
+                DepartmentSCD2.computeRowHash(1L, "23部", 1));
+    }
+
+    @Test
+    void newVersionCarriesRowHashAndIsOpenEnded() {
+        LocalDate effectiveDate = LocalDate.of(2024, 5, 1);
+
+        DepartmentSCD2 dept = DepartmentSCD2.createNewVersion(100L, 1L, "研发部", 10, effectiveDate);
+
+        assertEquals(DepartmentSCD2.computeRowHash(1L, "研发部", 10), dept.getRowHash());
+        assertEquals(effectiveDate, dept.getValidFrom());
+        assertEquals(LocalDate.of(9999, 12, 31), dept.getValidTo());
+        assertTrue(dept.isCurrentVersion());
+    }
+
+    @Test
+    void effectiveRowHashFallsBackToAttributesForLegacyRows() {
+        DepartmentSCD2 legacy = new DepartmentSCD2().setDeptId(100L).setParentId(1L).setName("研发部").setNum(10);
+
+        assertEquals(DepartmentSCD2.computeRowHash(1L, "研发部", 10), legacy.effectiveRowHash());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.dingding.excel;
+
+import com.alibaba.excel.EasyExcel;
+import com.example.dingding.dto.ExcelImportResultDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 流式Excel导入单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class ExcelImporterTest {
+
+    /**
+     * 生成单表头的xlsx，每行为 (序号, 名称, 值)
+     */
+    static InputStream workbook(List<List<String>> rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<List<String>> head = Arrays.asList(
+                Collections.singletonList("序号"), Collections.singletonList("名称"), Collections.singletonList("值"));
+        EasyExcel.write(out).head(head).sheet().doWrite(rows);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static List<String> row(String name, String value) {
+        return Arrays.asList("1", name, value);
+    }
+
+    /**
+     * 名称为空时报错、名称为"skip"时忽略，记录每次写入的批次
+     */
+    private static final class RecordingHandler implements ExcelRowHandler<String> {
+        private final List<List<String>> batches = new ArrayList<>();
+        private final String failOn;
+
+        private RecordingHandler(String failOn) {
+            this.failOn = failOn;
+        }
+
+        @Override
+        public String parse(Map<Integer, String> row) {
+            String name = row.get(1);
+            if (name == null) {
+                throw new IllegalArgumentException("名称不能为空");
+            }
+            return "skip".equals(name) ? null : name;
+        }
+
+        @Override
+        public int write(List<String> batch) {
+            if (batch.contains(failOn)) {
+                throw new IllegalStateException("写库失败");
+            }
+            batches.add(new ArrayList<>(batch));
+            return batch.size() * 2;
+        }
+    }
+
+    @Test
+    void rowsAreWrittenInBatchesOfConfiguredSize() {
+        RecordingHandler handler = new RecordingHandler(null);
+
+        ExcelImportResultDTO result = ExcelImporter.importFirstSheet(workbook(Arrays.asList(
+                row("a", "1"), row("b", "2"), row("c", "3"), row("d", "4"), row("e", "5"))), 1, 2, handler);
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"), Collections.singletonList("e")),
+                handler.batches);
+        assertEquals(5, result.getTotalRows());
+        assertEquals(5, result.getImportedRows());
+        assertEquals(10, result.getAffectedRecords());
+        assertEquals(0, result.getErrorCount());
+    }
+
+    @Test
+    void parseErrorsAreReportedWithSheetRowNumberAndIgnoredRowsAreSkipped() {
+        RecordingHandler handler = new RecordingHandler(null);
+
+        ExcelImportResultDTO result = ExcelImporter.importFirstSheet(workbook(Arrays.asList(
+                row("a", "1"), row(null, "2"), row("skip", "3"), row("b", "4"))), 1, 10, handler);
+
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), handler.batches);
+        assertEquals(4, result.getTotalRows());
+        assertEquals(2, result.getImportedRows());
+        assertEquals(1, result.getErrorCount());
+        // 表头占第1行，第二条数据在第3行
+        assertEquals(3, result.getErrors().get(0).getRowNumber());
+        assertEquals("名称不能为空", result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void failedBatchMarksEveryRowAndLaterBatchesContinue() {
+        RecordingHandler handler = new RecordingHandler("c");
+
+        ExcelImportResultDTO result = ExcelImporter.importFirstSheet(workbook(Arrays.asList(
+                row("a", "1"), row("b", "2"), row("c", "3"), row("d", "4"), row("e", "5"))), 1, 2, handler);
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Collections.singletonList("e")), handler.batches);
+        assertEquals(3, result.getImportedRows());
+        assertEquals(2, result.getErrorCount());
+        assertEquals(4, result.getErrors().get(0).getRowNumber());
+        assertEquals(5, result.getErrors().get(1).getRowNumber());
+    }
+}
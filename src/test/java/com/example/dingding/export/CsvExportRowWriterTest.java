@@ -0,0 +1,55 @@
+package com.example.dingding.export;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV导出写入器单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class CsvExportRowWriterTest {
+
+    @Test
+    void formulaPrefixesAreDetected() {
+        assertTrue(CsvExportRowWriter.isFormulaLike("=SUM(A1:A2)"));
+        assertTrue(CsvExportRowWriter.isFormulaLike("+cmd|' /C calc'!A0"));
+        assertTrue(CsvExportRowWriter.isFormulaLike("-2+3"));
+        assertTrue(CsvExportRowWriter.isFormulaLike("@SUM(A1)"));
+        assertTrue(CsvExportRowWriter.isFormulaLike("\t=1"));
+        assertTrue(CsvExportRowWriter.isFormulaLike("\r=1"));
+        assertTrue(CsvExportRowWriter.isFormulaLike("-"));
+    }
+
+    @Test
+    void plainTextAndSignedNumbersAreNotFormulas() {
+        assertFalse(CsvExportRowWriter.isFormulaLike("改善提案"));
+        assertFalse(CsvExportRowWriter.isFormulaLike("a=b"));
+        assertFalse(CsvExportRowWriter.isFormulaLike("-1500.50"));
+        assertFalse(CsvExportRowWriter.isFormulaLike("+42"));
+        assertFalse(CsvExportRowWriter.isFormulaLike("12"));
+    }
+
+    @Test
+    void writtenCellsAreNeutralisedThenQuoted() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvExportRowWriter writer = new CsvExportRowWriter(out);
+
+        writer.writeHeader(Collections.singletonList("标题"));
+        writer.writeRow(Arrays.asList("=HYPERLINK(\"x\",\"y\")", "-100", null, "a,b"));
+        writer.close();
+
+        assertEquals("\uFEFF标题\r\n\"'=HYPERLINK(\"\"x\"\",\"\"y\"\")\",-100,,\"a,b\"\r\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.dingding.service.impl;
+
+import com.alibaba.excel.EasyExcel;
+import com.example.dingding.config.UnifiedDepartmentConfig;
+import com.example.dingding.dto.ExcelImportResultDTO;
+import com.example.dingding.entity.DepartmentGroup;
+import com.example.dingding.entity.DepartmentSCD2;
+import com.example.dingding.mapper.DepartmentGroupMapper;
+import com.example.dingding.service.IOrgTreeService;
+import com.example.dingding.tree.OrgTree;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 部门统计分组增量差异计算单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class DepartmentGroupServiceImplTest {
+
+    private static final LocalDate VALID_FROM = LocalDate.of(2024, 1, 1);
+
+    private static final Long PROJECT_VIRTUAL_ID = 900000001L;
+
+    private static final Long HEADQUARTER_VIRTUAL_ID = 900000002L;
+
+    private IOrgTreeService orgTreeService;
+
+    private DepartmentGroupMapper mapper;
+
+    private DepartmentGroupServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        UnifiedDepartmentConfig.DepartmentConfig project = new UnifiedDepartmentConfig.DepartmentConfig();
+        project.setGroupName("项目部");
+        project.setVirtualId(PROJECT_VIRTUAL_ID);
+        project.setTargetDepartments(Collections.singletonList("项目中心"));
+        UnifiedDepartmentConfig.DepartmentConfig headquarter = new UnifiedDepartmentConfig.DepartmentConfig();
+        headquarter.setGroupName("总部");
+        headquarter.setVirtualId(HEADQUARTER_VIRTUAL_ID);
+        headquarter.setTargetDepartments(Collections.singletonList("总经办"));
+        UnifiedDepartmentConfig unifiedConfig = new UnifiedDepartmentConfig();
+        unifiedConfig.setProject(project);
+        unifiedConfig.setHeadquarter(headquarter);
+
+        mapper = mock(DepartmentGroupMapper.class);
+        when(mapper.checkRootNodeExists(anyString())).thenReturn(true);
+        orgTreeService = mock(IOrgTreeService.class);
+
+        // 参与人数计算在Redis端执行：管道按SUNIONSTORE条数返回空结果
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        SetOperations<String, Object> setOps = mock(SetOperations.class);
+        AtomicInteger unions = new AtomicInteger();
+        when(operations.opsForSet()).thenReturn(setOps);
+        when(operations.opsForValue()).thenReturn(mock(ValueOperations.class));
+        when(redisTemplate.opsForValue()).thenReturn(mock(ValueOperations.class));
+        when(setOps.unionAndStore(anyString(), anyCollection(), anyString())).thenAnswer(invocation -> {
+            unions.incrementAndGet();
+            return null;
+        });
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            unions.set(0);
+            invocation.<SessionCallback<Object>>getArgument(0).execute(operations);
+            return new ArrayList<>(Collections.nCopies(unions.get(), null));
+        });
+
+        service = new DepartmentGroupServiceImpl();
+        ReflectionTestUtils.setField(service, "departmentGroupMapper", mapper);
+        ReflectionTestUtils.setField(service, "unifiedDepartmentConfig", unifiedConfig);
+        ReflectionTestUtils.setField(service, "orgTreeService", orgTreeService);
+        ReflectionTestUtils.setField(service, "redisTemplate", redisTemplate);
+    }
+
+    private static DepartmentSCD2 dept(long deptId, Long parentId, String name) {
+        return DepartmentSCD2.createNewVersion(deptId, parentId, name, 1, VALID_FROM);
+    }
+
+    /**
+     * 区域管理部(1) 下有区域10、20；项目中心(50)和总经办(60)在根部门外
+     */
+    private static List<DepartmentSCD2> baseline() {
+        return new ArrayList<>(Arrays.asList(
+                dept(1L, null, "区域管理部"),
+                dept(10L, 1L, "华东区域"),
+                dept(11L, 10L, "上海分部"),
+                dept(20L, 1L, "华南区域"),
+                dept(21L, 20L, "深圳分部"),
+                dept(50L, null, "项目中心"),
+                dept(51L, 50L, "一号项目"),
+                dept(60L, null, "总经办")));
+    }
+
+    private void useTree(List<DepartmentSCD2> departments) {
+        when(orgTreeService.getCurrentTree()).thenReturn(OrgTree.build(LocalDate.now(), departments));
+    }
+
+    private Object computeChanges(Set<Long> changedDeptIds, Map<Long, DepartmentGroup> existing) {
+        return ReflectionTestUtils.invokeMethod(service, "computeChanges", changedDeptIds, existing);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<DepartmentGroup> inserts(Object changes) {
+        return (List<DepartmentGroup>) ReflectionTestUtils.getField(changes, "inserts");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<DepartmentGroup> updates(Object changes) {
+        return (List<DepartmentGroup>) ReflectionTestUtils.getField(changes, "updates");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> deletes(Object changes) {
+        return (List<Long>) ReflectionTestUtils.getField(changes, "deletes");
+    }
+
+    private static Set<Long> groupIds(List<DepartmentGroup> groups) {
+        Set<Long> ids = new HashSet<>();
+        for (DepartmentGroup group : groups) {
+            ids.add(group.getGroupId());
+        }
+        return ids;
+    }
+
+    /**
+     * 以基线组织树计算全部分组作为统计表现有记录
+     */
+    private Map<Long, DepartmentGroup> existingFromBaseline() {
+        useTree(baseline());
+        Set<Long> allDeptIds = new HashSet<>();
+        for (DepartmentSCD2 dept : baseline()) {
+            allDeptIds.add(dept.getDeptId());
+        }
+        Map<Long, DepartmentGroup> existing = new LinkedHashMap<>();
+        for (DepartmentGroup group : inserts(computeChanges(allDeptIds, new HashMap<>()))) {
+            existing.put(group.getGroupId(), group);
+        }
+        return existing;
+    }
+
+    @Test
+    void baselineCoversRegionsProjectAndHeadquarter() {
+        Set<Long> ids = existingFromBaseline().keySet();
+
+        assertEquals(new HashSet<>(Arrays.asList(10L, 11L, 20L, 21L,
+                PROJECT_VIRTUAL_ID, 50L, 51L, HEADQUARTER_VIRTUAL_ID, 60L)), ids);
+    }
+
+    @Test
+    void renameUpdatesOnlyThatGroup() {
+        Map<Long, DepartmentGroup> existing = existingFromBaseline();
+        List<DepartmentSCD2> tree = baseline();
+        tree.set(2, dept(11L, 10L, "上海分公司"));
+        useTree(tree);
+
+        Object changes = computeChanges(Collections.singleton(11L), existing);
+
+        assertEquals(Collections.singleton(11L), groupIds(updates(changes)));
+        assertEquals("上海分公司", updates(changes).get(0).getGroupName());
+        assertTrue(inserts(changes).isEmpty());
+        assertTrue(deletes(changes).isEmpty());
+    }
+
+    @Test
+    void moveBetweenRegionsReparentsGroup() {
+        Map<Long, DepartmentGroup> existing = existingFromBaseline();
+        List<DepartmentSCD2> tree = baseline();
+        tree.set(4, dept(21L, 10L, "深圳分部"));
+        useTree(tree);
+
+        Object changes = computeChanges(Collections.singleton(21L), existing);
+
+        assertEquals(Collections.singleton(21L), groupIds(updates(changes)));
+        assertEquals(Long.valueOf(10L), updates(changes).get(0).getParentGroupId());
+        assertTrue(inserts(changes).isEmpty());
+        assertTrue(deletes(changes).isEmpty());
+    }
+
+    @Test
+    void deletedDepartmentIsRemovedFromItsOldRegion() {
+        Map<Long, DepartmentGroup> existing = existingFromBaseline();
+        List<DepartmentSCD2> tree = baseline();
+        tree.remove(4);
+        useTree(tree);
+
+        Object changes = computeChanges(Collections.singleton(21L), existing);
+
+        assertEquals(Collections.singletonList(21L), deletes(changes));
+        assertTrue(inserts(changes).isEmpty());
+        assertTrue(updates(changes).isEmpty());
+    }
+
+    @Test
+    void newProjectDepartmentIsInsertedUnderItsParent() {
+        Map<Long, DepartmentGroup> existing = existingFromBaseline();
+        List<DepartmentSCD2> tree = baseline();
+        tree.add(dept(52L, 51L, "一号项目工区"));
+        useTree(tree);
+
+        Object changes = computeChanges(Collections.singleton(52L), existing);
+
+        assertEquals(Collections.singleton(52L), groupIds(inserts(changes)));
+        assertEquals(Long.valueOf(51L), inserts(changes).get(0).getParentGroupId());
+        assertTrue(updates(changes).isEmpty());
+        assertTrue(deletes(changes).isEmpty());
+    }
+
+    /**
+     * 生成简称导入表：第2列部门名称，第3列简称
+     */
+    private static InputStream shortNameSheet(String[]... rows) {
+        List<List<String>> data = new ArrayList<>();
+        for (String[] row : rows) {
+            data.add(Arrays.asList("1", row[0], row[1]));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EasyExcel.write(out).head(Arrays.asList(Collections.singletonList("序号"),
+                Collections.singletonList("部门名称"), Collections.singletonList("简称"))).sheet().doWrite(data);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shortNameImportResetsOnlyGroupsMissingFromSheet() {
+        when(mapper.updateShortNameByGroupName(anyCollection(), anyList())).thenReturn(2);
+        when(mapper.resetShortNamesExcept(anyCollection(), anyList())).thenReturn(3);
+
+        ExcelImportResultDTO result = service.updateShortNameFromExcel(shortNameSheet(
+                new String[]{"华东区域", "华东"}, new String[]{"华南区域", "华南"}));
+
+        ArgumentCaptor<Collection<String>> kept = ArgumentCaptor.forClass(Collection.class);
+        verify(mapper).resetShortNamesExcept(kept.capture(), anyList());
+        assertEquals(new HashSet<>(Arrays.asList("华东区域", "华南区域")), new HashSet<>(kept.getValue()));
+        assertEquals(5, result.getAffectedRecords());
+    }
+
+    @Test
+    void shortNameImportWithRowErrorsKeepsOtherShortNames() {
+        when(mapper.updateShortNameByGroupName(anyCollection(), anyList())).thenReturn(1);
+
+        ExcelImportResultDTO result = service.updateShortNameFromExcel(shortNameSheet(
+                new String[]{"华东区域", "华东"}, new String[]{"华南区域", null}));
+
+        assertEquals(1, result.getErrorCount());
+        verify(mapper, never()).resetShortNamesExcept(anyCollection(), anyList());
+    }
+
+    @Test
+    void shortNameImportOfWrongSheetKeepsAllShortNames() {
+        ExcelImportResultDTO result = service.updateShortNameFromExcel(shortNameSheet());
+
+        assertEquals(0, result.getImportedRows());
+        assertEquals(0, result.getAffectedRecords());
+        verify(mapper, never()).updateShortNameByGroupName(anyCollection(), anyList());
+        verify(mapper, never()).resetShortNamesExcept(anyCollection(), anyList());
+    }
+}
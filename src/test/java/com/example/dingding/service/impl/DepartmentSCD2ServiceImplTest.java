@@ -0,0 +1,138 @@
+package com.example.dingding.service.impl;
+
+import com.example.dingding.dto.DepartmentDTO;
+import com.example.dingding.dto.DepartmentSyncResultDTO;
+import com.example.dingding.entity.DepartmentSCD2;
+import com.example.dingding.mapper.DepartmentSCD2Mapper;
+import com.example.dingding.service.IOrgTreeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 部门SCD2批量合并单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class DepartmentSCD2ServiceImplTest {
+
+    private static final LocalDate SYNC_DATE = LocalDate.of(2024, 5, 1);
+
+    private DepartmentSCD2Mapper mapper;
+
+    private DepartmentSCD2ServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        mapper = mock(DepartmentSCD2Mapper.class);
+        service = spy(new DepartmentSCD2ServiceImpl());
+        ReflectionTestUtils.setField(service, "baseMapper", mapper);
+        ReflectionTestUtils.setField(service, "orgTreeService", mock(IOrgTreeService.class));
+        ReflectionTestUtils.setField(service, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        // 当前版本：10 未变化，20 人数变化，30 在钉钉中已删除；40 为新增部门
+        when(mapper.findAllCurrent()).thenReturn(Arrays.asList(
+                current(10L, "研发部", 5),
+                current(20L, "测试部", 3),
+                current(30L, "已撤销部门", 1)));
+    }
+
+    private static DepartmentSCD2 current(long deptId, String name, int num) {
+        return DepartmentSCD2.createNewVersion(deptId, 1L, name, num, LocalDate.of(2024, 1, 1));
+    }
+
+    private static DepartmentDTO dto(long deptId, String name, int num) {
+        return new DepartmentDTO().setDeptId(deptId).setParentId(1L).setName(name).setNum(num);
+    }
+
+    private static List<DepartmentDTO> fetched() {
+        return Arrays.asList(dto(10L, "研发部", 5), dto(20L, "测试部", 4), dto(40L, "新部门", 2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchMergeClosesChangedAndDeletedAndInsertsNewVersions() {
+        doReturn(true).when(service).saveBatch(anyCollection(), anyInt());
+
+        DepartmentSyncResultDTO result = service.syncDepartments(fetched(), SYNC_DATE);
+
+        ArgumentCaptor<List<Long>> closed = ArgumentCaptor.forClass(List.class);
+        verify(mapper).batchCloseOldVersions(closed.capture(), eq(SYNC_DATE.minusDays(1)));
+        assertEquals(new HashSet<>(Arrays.asList(20L, 30L)), new HashSet<>(closed.getValue()));
+
+        ArgumentCaptor<Collection<DepartmentSCD2>> inserted = ArgumentCaptor.forClass(Collection.class);
+        verify(service).saveBatch(inserted.capture(), anyInt());
+        List<Long> insertedIds = new ArrayList<>();
+        for (DepartmentSCD2 dept : inserted.getValue()) {
+            insertedIds.add(dept.getDeptId());
+            assertEquals(SYNC_DATE, dept.getValidFrom());
+            assertEquals(DepartmentSCD2.computeRowHash(dept.getParentId(), dept.getName(), dept.getNum()),
+                    dept.getRowHash());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(20L, 40L)), new HashSet<>(insertedIds));
+
+        assertEquals(1, result.getNewCount());
+        assertEquals(2, result.getChangedCount());
+        assertEquals(1, result.getUnchangedCount());
+        assertEquals(0, result.getFailedCount());
+        assertEquals(new HashSet<>(Arrays.asList(20L, 30L, 40L)), new HashSet<>(result.getChangedDeptIds()));
+        assertNull(result.getErrorMessage());
+    }
+
+    @Test
+    void legacyRowsWithoutHashAreComparedByAttributes() {
+        DepartmentSCD2 legacy = current(10L, "研发部", 5).setRowHash(null);
+        when(mapper.findAllCurrent()).thenReturn(Arrays.asList(legacy));
+
+        DepartmentSyncResultDTO result = service.syncDepartments(Arrays.asList(dto(10L, " 研发部 ", 5)), SYNC_DATE);
+
+        assertEquals(1, result.getUnchangedCount());
+        verify(mapper, never()).batchCloseOldVersions(any(), any());
+        verify(service, never()).saveBatch(anyCollection(), anyInt());
+    }
+
+    @Test
+    void failedBatchFallsBackToPerDepartmentMerge() {
+        doThrow(new IllegalStateException("duplicate key")).when(service).saveBatch(anyCollection(), anyInt());
+        when(mapper.insert(any(DepartmentSCD2.class))).thenReturn(1);
+        when(mapper.closeOldVersion(anyLong(), any())).thenReturn(1);
+
+        DepartmentSyncResultDTO result = service.syncDepartments(fetched(), SYNC_DATE);
+
+        verify(mapper).closeOldVersion(20L, SYNC_DATE.minusDays(1));
+        verify(mapper).closeOldVersion(30L, SYNC_DATE.minusDays(1));
+        verify(mapper, never()).closeOldVersion(eq(10L), any());
+        verify(mapper, never()).closeOldVersion(eq(40L), any());
+        assertEquals(1, result.getNewCount());
+        assertEquals(2, result.getChangedCount());
+        assertEquals(1, result.getUnchangedCount());
+        assertEquals(0, result.getFailedCount());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.dingding.service.impl;
+
+import com.example.dingding.entity.OperationRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * OA同步：操作记录环节耗时计算单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class DingTalkOAServiceImplTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    private static OperationRecord record(LocalDateTime operationDate) {
+        OperationRecord record = new OperationRecord();
+        record.setOperationDate(operationDate);
+        return record;
+    }
+
+    @Test
+    void durationIsTimeToNextLaterOperationAndLastIsNull() {
+        OperationRecord start = record(T0);
+        OperationRecord approve = record(T0.plusMinutes(5));
+        OperationRecord finish = record(T0.plusHours(1));
+
+        // 输入顺序与时间顺序无关
+        DingTalkOAServiceImpl.fillStepDurations(Arrays.asList(finish, start, approve));
+
+        assertEquals(Long.valueOf(300), start.getDurationSeconds());
+        assertEquals(Long.valueOf(3300), approve.getDurationSeconds());
+        assertNull(finish.getDurationSeconds());
+    }
+
+    @Test
+    void operationsAtSameTimeShareDurationToNextLaterTime() {
+        OperationRecord start = record(T0);
+        OperationRecord tieA = record(T0.plusMinutes(1));
+        OperationRecord tieB = record(T0.plusMinutes(1));
+        OperationRecord finish = record(T0.plusMinutes(3));
+
+        DingTalkOAServiceImpl.fillStepDurations(Arrays.asList(start, tieA, tieB, finish));
+
+        assertEquals(Long.valueOf(60), start.getDurationSeconds());
+        assertEquals(Long.valueOf(120), tieA.getDurationSeconds());
+        assertEquals(Long.valueOf(120), tieB.getDurationSeconds());
+        assertNull(finish.getDurationSeconds());
+    }
+
+    @Test
+    void operationsTiedAtLastTimeAreAllNull() {
+        OperationRecord start = record(T0);
+        OperationRecord lastA = record(T0.plusMinutes(2));
+        OperationRecord lastB = record(T0.plusMinutes(2));
+
+        DingTalkOAServiceImpl.fillStepDurations(Arrays.asList(lastA, start, lastB));
+
+        assertEquals(Long.valueOf(120), start.getDurationSeconds());
+        assertNull(lastA.getDurationSeconds());
+        assertNull(lastB.getDurationSeconds());
+    }
+
+    @Test
+    void recordsWithoutDateAreSkipped() {
+        OperationRecord undated = record(null);
+        OperationRecord only = record(T0);
+        List<OperationRecord> records = new ArrayList<>(Arrays.asList(undated, only));
+
+        DingTalkOAServiceImpl.fillStepDurations(records);
+        DingTalkOAServiceImpl.fillStepDurations(Collections.emptyList());
+
+        assertNull(undated.getDurationSeconds());
+        assertNull(only.getDurationSeconds());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.dingding.service.impl;
+
+import com.example.dingding.config.JyOaConstants;
+import com.example.dingding.entity.DepartmentSCD2;
+import com.example.dingding.mapper.DepartmentSCD2Mapper;
+import com.example.dingding.tree.OrgTree;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 组织树服务共享版本号单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class OrgTreeServiceImplTest {
+
+    private DepartmentSCD2Mapper mapper;
+
+    private ValueOperations<String, Object> valueOps;
+
+    private OrgTreeServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mapper = mock(DepartmentSCD2Mapper.class);
+        valueOps = mock(ValueOperations.class);
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+
+        service = new OrgTreeServiceImpl();
+        ReflectionTestUtils.setField(service, "departmentSCD2Mapper", mapper);
+        ReflectionTestUtils.setField(service, "redisTemplate", redisTemplate);
+
+        when(mapper.findAllCurrent()).thenReturn(Collections.singletonList(
+                DepartmentSCD2.createNewVersion(1L, null, "根部门", 10, LocalDate.of(2024, 1, 1))));
+    }
+
+    @Test
+    void reusesTreeWhileVersionIsUnchanged() {
+        when(valueOps.get(JyOaConstants.ORG_TREE_VERSION)).thenReturn(3L);
+
+        OrgTree first = service.getCurrentTree();
+
+        assertSame(first, service.getCurrentTree());
+        verify(mapper, times(1)).findAllCurrent();
+    }
+
+    @Test
+    void reloadsWhenAnotherInstanceBumpedVersion() {
+        when(valueOps.get(JyOaConstants.ORG_TREE_VERSION)).thenReturn(3L);
+        OrgTree first = service.getCurrentTree();
+
+        when(mapper.findAllCurrent()).thenReturn(Arrays.asList(
+                DepartmentSCD2.createNewVersion(1L, null, "根部门", 10, LocalDate.of(2024, 1, 1)),
+                DepartmentSCD2.createNewVersion(2L, 1L, "研发部", 5, LocalDate.of(2024, 5, 1))));
+        when(valueOps.get(JyOaConstants.ORG_TREE_VERSION)).thenReturn(4L);
+        OrgTree second = service.getCurrentTree();
+
+        assertNotSame(first, second);
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    void refreshBumpsSharedVersionAndKeepsTreeForThatVersion() {
+        when(valueOps.increment(JyOaConstants.ORG_TREE_VERSION)).thenReturn(5L);
+        OrgTree refreshed = service.refreshCurrentTree();
+
+        when(valueOps.get(JyOaConstants.ORG_TREE_VERSION)).thenReturn(5L);
+
+        assertSame(refreshed, service.getCurrentTree());
+        verify(valueOps).increment(JyOaConstants.ORG_TREE_VERSION);
+        verify(mapper, times(1)).findAllCurrent();
+    }
+
+    @Test
+    void keepsCachedTreeWhenRedisIsUnavailable() {
+        when(valueOps.get(JyOaConstants.ORG_TREE_VERSION)).thenReturn(3L);
+        OrgTree first = service.getCurrentTree();
+
+        when(valueOps.get(JyOaConstants.ORG_TREE_VERSION)).thenThrow(new RedisConnectionFailureException("down"));
+
+        assertSame(first, service.getCurrentTree());
+        verify(mapper, times(1)).findAllCurrent();
+    }
+}
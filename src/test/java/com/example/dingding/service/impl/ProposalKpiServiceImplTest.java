@@ -0,0 +1,142 @@
+package com.example.dingding.service.impl;
+
+import com.example.dingding.entity.DepartmentGroup;
+import com.example.dingding.entity.DepartmentSCD2;
+import com.example.dingding.mapper.ProcessInstanceMapper;
+import com.example.dingding.tree.OrgTree;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 提案指标汇总：分组归属和单条提案指标贡献单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class ProposalKpiServiceImplTest {
+
+    private static final LocalDate VALID_FROM = LocalDate.of(2024, 1, 1);
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    private static final int CLOSE_WITHIN_DAYS = 30;
+
+    private static DepartmentSCD2 dept(long deptId, Long parentId) {
+        return DepartmentSCD2.createNewVersion(deptId, parentId, "部门" + deptId, 1, VALID_FROM);
+    }
+
+    private static DepartmentGroup group(long groupId, long deptId, Long parentGroupId) {
+        return new DepartmentGroup().setGroupId(groupId).setDeptId(deptId).setParentGroupId(parentGroupId);
+    }
+
+    /**
+     * 组织树：1 -> 10 -> 11 -> 12；50 -> 51
+     * 区域分区：10 -> 11（12没有自己的分组）；项目部分区：虚拟根900 -> 50；总部分区：虚拟根901 -> 11（另一分组）
+     */
+    private static ProposalKpiServiceImpl.GroupIndex index() {
+        OrgTree orgTree = OrgTree.build(VALID_FROM, Arrays.asList(
+                dept(1L, null), dept(10L, 1L), dept(11L, 10L), dept(12L, 11L), dept(50L, null), dept(51L, 50L)));
+        List<DepartmentGroup> groups = Arrays.asList(
+                group(10L, 10L, null), group(11L, 11L, 10L),
+                group(900L, 900L, null), group(50L, 50L, 900L),
+                group(901L, 901L, null), group(9011L, 11L, 901L));
+        return new ProposalKpiServiceImpl.GroupIndex(groups, orgTree);
+    }
+
+    private static ProcessInstanceMapper.KpiFact fact(String result, Boolean adopted, LocalDateTime finishTime) {
+        ProcessInstanceMapper.KpiFact fact = new ProcessInstanceMapper.KpiFact();
+        fact.setResult(result);
+        fact.setAdopted(adopted);
+        fact.setCreateTime(CREATED);
+        fact.setFinishTime(finishTime);
+        return fact;
+    }
+
+    @Test
+    void departmentWithoutGroupIsCreditedToNearestAncestorGroupAndItsParents() {
+        assertEquals(new HashSet<>(Arrays.asList(11L, 10L, 9011L, 901L)),
+                new HashSet<>(index().groupsFor("12")));
+    }
+
+    @Test
+    void eachSectionCreditsItsOwnChain() {
+        ProposalKpiServiceImpl.GroupIndex index = index();
+
+        assertEquals(Arrays.asList(50L, 900L), index.groupsFor("51"));
+        assertEquals(Arrays.asList(10L), index.groupsFor("10"));
+    }
+
+    @Test
+    void unknownOrMalformedDepartmentIsUnassigned() {
+        ProposalKpiServiceImpl.GroupIndex index = index();
+
+        assertTrue(index.groupsFor(null).isEmpty());
+        assertTrue(index.groupsFor("abc").isEmpty());
+        assertTrue(index.groupsFor("999").isEmpty());
+        assertEquals(index.groupsFor("11"), index.groupsFor(" 11 "));
+    }
+
+    @Test
+    void cyclicParentGroupsDoNotLoop() {
+        ProposalKpiServiceImpl.GroupIndex index = new ProposalKpiServiceImpl.GroupIndex(
+                Arrays.asList(group(1L, 1L, 2L), group(2L, 2L, 1L)), null);
+
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), new HashSet<>(index.groupsFor("1")));
+    }
+
+    @Test
+    void notAdoptedProposalOnlyCountsApproval() {
+        ProposalKpiServiceImpl.Outcome outcome = ProposalKpiServiceImpl.evaluate(
+                fact("AGREE", false, null), CLOSE_WITHIN_DAYS, CREATED.plusDays(90));
+
+        assertTrue(outcome.passed);
+        assertFalse(outcome.adopted);
+        assertFalse(outcome.closedInTime);
+        assertFalse(outcome.overdue);
+    }
+
+    @Test
+    void adoptedProposalFinishedByDeadlineIsClosedInTime() {
+        LocalDateTime deadline = CREATED.plusDays(CLOSE_WITHIN_DAYS);
+
+        ProposalKpiServiceImpl.Outcome outcome = ProposalKpiServiceImpl.evaluate(
+                fact("refuse", true, deadline), CLOSE_WITHIN_DAYS, CREATED.plusDays(90));
+
+        assertFalse(outcome.passed);
+        assertTrue(outcome.adopted);
+        assertTrue(outcome.closedInTime);
+        assertFalse(outcome.overdue);
+    }
+
+    @Test
+    void adoptedProposalFinishedAfterDeadlineIsOverdue() {
+        ProposalKpiServiceImpl.Outcome outcome = ProposalKpiServiceImpl.evaluate(
+                fact("agree", true, CREATED.plusDays(CLOSE_WITHIN_DAYS).plusSeconds(1)), CLOSE_WITHIN_DAYS, CREATED);
+
+        assertFalse(outcome.closedInTime);
+        assertTrue(outcome.overdue);
+    }
+
+    @Test
+    void unfinishedAdoptedProposalIsOverdueOnlyAfterDeadline() {
+        ProposalKpiServiceImpl.Outcome pending = ProposalKpiServiceImpl.evaluate(
+                fact("agree", true, null), CLOSE_WITHIN_DAYS, CREATED.plusDays(CLOSE_WITHIN_DAYS));
+        ProposalKpiServiceImpl.Outcome late = ProposalKpiServiceImpl.evaluate(
+                fact("agree", true, null), CLOSE_WITHIN_DAYS, CREATED.plusDays(CLOSE_WITHIN_DAYS).plusMinutes(1));
+
+        assertFalse(pending.closedInTime);
+        assertFalse(pending.overdue);
+        assertFalse(late.closedInTime);
+        assertTrue(late.overdue);
+    }
+}
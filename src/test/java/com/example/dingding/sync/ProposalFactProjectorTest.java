@@ -0,0 +1,97 @@
+package com.example.dingding.sync;
+
+import com.example.dingding.entity.FormComponentValue;
+import com.example.dingding.entity.ProcessInstance;
+import com.example.dingding.entity.ProposalFact;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 提案事实投影器单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class ProposalFactProjectorTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    private static ProcessInstance instance() {
+        ProcessInstance instance = new ProcessInstance();
+        instance.setProcessInstanceId("PI-1");
+        instance.setProcessCode("PROC-1");
+        instance.setOriginatorUserid("u1");
+        instance.setCreateTime(CREATED);
+        return instance;
+    }
+
+    private static FormComponentValue field(String name, String value, String extValue, boolean keyField) {
+        FormComponentValue fcv = new FormComponentValue();
+        fcv.setProcessInstanceId("PI-1");
+        fcv.setComponentName(name);
+        fcv.setValue(value);
+        fcv.setExtValue(extValue);
+        fcv.setIsKeyField(keyField);
+        return fcv;
+    }
+
+    @Test
+    void projectsKeyFieldsIntoTypedColumns() {
+        ProposalFact fact = ProposalFactProjector.project(instance(), Arrays.asList(
+                field(ProposalFactProjector.ECONOMIC_BENEFIT, " 12,345.678 ", null, true),
+                field(ProposalFactProjector.IMPROVEMENT_LEVEL, "A级", "{\"label\":\"A级\",\"key\":\"option_1\"}", true),
+                field(ProposalFactProjector.PROPOSAL_CATEGORY, "安全", "{\"label\":\"安全\",\"key\":\"option_3\"}", true),
+                field(ProposalFactProjector.DECLARED_DATE, "2024-02-28 00:00", null, true)));
+
+        assertEquals("PI-1", fact.getProcessInstanceId());
+        assertEquals("PROC-1", fact.getProcessCode());
+        assertEquals("u1", fact.getOriginatorUserid());
+        assertEquals(CREATED, fact.getCreateTime());
+        assertEquals(new BigDecimal("12345.68"), fact.getEconomicBenefit());
+        assertEquals("A级", fact.getImprovementLevel());
+        assertEquals("option_1", fact.getImprovementLevelCode());
+        assertEquals("安全", fact.getProposalCategory());
+        assertEquals("option_3", fact.getProposalCategoryCode());
+        assertEquals(LocalDate.of(2024, 2, 28), fact.getDeclaredDate());
+    }
+
+    @Test
+    void invalidValuesAreLeftEmptyWithoutAffectingOtherFields() {
+        ProposalFact fact = ProposalFactProjector.project(instance(), Arrays.asList(
+                field(ProposalFactProjector.ECONOMIC_BENEFIT, "约一万元", null, true),
+                field(ProposalFactProjector.IMPROVEMENT_LEVEL, "B级", "not json", true),
+                field(ProposalFactProjector.DECLARED_DATE, "2月28日", null, true)));
+
+        assertNull(fact.getEconomicBenefit());
+        assertEquals("B级", fact.getImprovementLevel());
+        assertNull(fact.getImprovementLevelCode());
+        assertNull(fact.getDeclaredDate());
+    }
+
+    @Test
+    void nonKeyAndBlankFieldsAreIgnored() {
+        ProposalFact fact = ProposalFactProjector.project(instance(), Arrays.asList(
+                field(ProposalFactProjector.ECONOMIC_BENEFIT, "100", null, false),
+                field(ProposalFactProjector.PROPOSAL_CATEGORY, "  ", null, true)));
+
+        assertNull(fact.getEconomicBenefit());
+        assertNull(fact.getProposalCategory());
+    }
+
+    @Test
+    void instanceWithoutFieldsStillProjectsARow() {
+        ProposalFact fact = ProposalFactProjector.project(instance(), Collections.emptyList());
+
+        assertEquals("PI-1", fact.getProcessInstanceId());
+        assertNull(ProposalFactProjector.project(new ProcessInstance(), Collections.emptyList()));
+        assertEquals("PI-1", ProposalFactProjector.project(instance(), null).getProcessInstanceId());
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.dingding.sync;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 同步检查点跟踪器单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class SyncCheckpointTrackerTest {
+
+    private static final String PROCESS_CODE = "PROC-1";
+
+    private static final LocalDateTime T1 = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime T2 = LocalDateTime.of(2024, 2, 1, 0, 0);
+    private static final LocalDateTime T3 = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private final List<String> advances = Collections.synchronizedList(new ArrayList<>());
+
+    private final SyncCheckpointTracker tracker = new SyncCheckpointTracker(
+            (processCode, deptId, lastCreateTime) -> advances.add(processCode + ":" + deptId + "@" + lastCreateTime));
+
+    private static String mark(long deptId, LocalDateTime time) {
+        return PROCESS_CODE + ":" + deptId + "@" + time;
+    }
+
+    @Test
+    void windowWithoutItemsAdvancesWhenUnitsDone() {
+        SyncCheckpointTracker.Window window = tracker.register(PROCESS_CODE, 1L, T1, 2);
+
+        window.unitDone(true);
+        assertTrue(advances.isEmpty());
+        window.unitDone(true);
+
+        assertEquals(Collections.singletonList(mark(1L, T1)), advances);
+    }
+
+    @Test
+    void waitsForSubmittedItems() {
+        SyncCheckpointTracker.Window window = tracker.register(PROCESS_CODE, 1L, T1, 1);
+
+        window.itemSubmitted();
+        window.itemSubmitted();
+        window.unitDone(true);
+        window.itemDone(true);
+        assertTrue(advances.isEmpty());
+        window.itemDone(true);
+
+        assertEquals(Collections.singletonList(mark(1L, T1)), advances);
+    }
+
+    @Test
+    void laterWindowWaitsForEarlierWindow() {
+        SyncCheckpointTracker.Window first = tracker.register(PROCESS_CODE, 1L, T1, 1);
+        SyncCheckpointTracker.Window second = tracker.register(PROCESS_CODE, 1L, T2, 1);
+        SyncCheckpointTracker.Window third = tracker.register(PROCESS_CODE, 1L, T3, 1);
+
+        // 后面的窗口先完成时不推进，前面的窗口完成后一次推进到最后一个连续完成的窗口
+        third.unitDone(true);
+        second.unitDone(true);
+        assertTrue(advances.isEmpty());
+        first.unitDone(true);
+
+        assertEquals(Collections.singletonList(mark(1L, T3)), advances);
+    }
+
+    @Test
+    void failedWindowStopsAdvance() {
+        SyncCheckpointTracker.Window first = tracker.register(PROCESS_CODE, 1L, T1, 1);
+        SyncCheckpointTracker.Window second = tracker.register(PROCESS_CODE, 1L, T2, 1);
+        SyncCheckpointTracker.Window third = tracker.register(PROCESS_CODE, 1L, T3, 1);
+
+        first.unitDone(true);
+        second.itemSubmitted();
+        second.unitDone(true);
+        second.itemDone(false);
+        third.unitDone(true);
+
+        assertEquals(Collections.singletonList(mark(1L, T1)), advances);
+    }
+
+    @Test
+    void scopesAdvanceIndependently() {
+        SyncCheckpointTracker.Window dept1 = tracker.register(PROCESS_CODE, 1L, T2, 1);
+        SyncCheckpointTracker.Window dept2First = tracker.register(PROCESS_CODE, 2L, T1, 1);
+        SyncCheckpointTracker.Window dept2Second = tracker.register(PROCESS_CODE, 2L, T2, 1);
+
+        dept2Second.unitDone(true);
+        dept1.unitDone(true);
+        assertEquals(Collections.singletonList(mark(1L, T2)), advances);
+        dept2First.unitDone(true);
+
+        assertEquals(2, advances.size());
+        assertEquals(mark(2L, T2), advances.get(1));
+    }
+
+    @Test
+    void advancerFailureDoesNotPropagate() {
+        SyncCheckpointTracker failing = new SyncCheckpointTracker((processCode, deptId, lastCreateTime) -> {
+            throw new IllegalStateException("写库失败");
+        });
+        SyncCheckpointTracker.Window window = failing.register(PROCESS_CODE, 1L, T1, 1);
+
+        window.unitDone(true);
+    }
+
+    @Test
+    void concurrentCompletionAdvancesOnce() throws InterruptedException {
+        int windowCount = 50;
+        int itemsPerWindow = 20;
+        List<SyncCheckpointTracker.Window> windows = new ArrayList<>();
+        for (int i = 0; i < windowCount; i++) {
+            SyncCheckpointTracker.Window window = tracker.register(PROCESS_CODE, 1L, T1.plusDays(i), 1);
+            for (int j = 0; j < itemsPerWindow; j++) {
+                window.itemSubmitted();
+            }
+            window.unitDone(true);
+            windows.add(window);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (SyncCheckpointTracker.Window window : windows) {
+            for (int j = 0; j < itemsPerWindow; j++) {
+                executor.execute(() -> window.itemDone(true));
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // 推进次数不超过窗口数，最终推进到最后一个窗口
+        assertTrue(!advances.isEmpty() && advances.size() <= windowCount);
+        assertEquals(mark(1L, T1.plusDays(windowCount - 1)), advances.get(advances.size() - 1));
+    }
+}
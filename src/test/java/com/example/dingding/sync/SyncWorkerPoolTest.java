@@ -0,0 +1,70 @@
+package com.example.dingding.sync;
+
+import com.example.dingding.config.DingdingConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 同步工作线程池单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class SyncWorkerPoolTest {
+
+    private SyncWorkerPool pool;
+
+    @BeforeEach
+    void setUp() {
+        DingdingConfig config = new DingdingConfig();
+        config.getSync().setWorkerThreads(1);
+        config.getSync().setQueueCapacity(1);
+        config.getSync().setMapThreads(1);
+        pool = new SyncWorkerPool();
+        ReflectionTestUtils.setField(pool, "dingdingConfig", config);
+        pool.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void resultsKeepInputOrder() {
+        List<Integer> results = pool.mapAll(Arrays.asList(3, 1, 2), value -> value * 10);
+
+        assertEquals(Arrays.asList(30, 10, 20), results);
+        assertTrue(pool.mapAll(Collections.<Integer>emptyList(), value -> value).isEmpty());
+    }
+
+    @Test
+    void nestedMapAllDoesNotStarveSingleThreadPool() {
+        // 批处理线程池只有一个线程，嵌套调用若再提交到同一线程池会永久等待
+        List<Integer> results = assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                pool.mapAll(Arrays.asList(1, 2), outer ->
+                        pool.mapAll(Arrays.asList(outer, outer), inner -> inner).stream()
+                                .mapToInt(Integer::intValue).sum()));
+
+        assertEquals(Arrays.asList(2, 4), results);
+    }
+
+    @Test
+    void mapAllRunsOffTheCallingThread() {
+        Thread caller = Thread.currentThread();
+        List<Boolean> offCaller = pool.mapAll(Arrays.asList(1, 2, 3), value -> Thread.currentThread() != caller);
+
+        assertEquals(Arrays.asList(true, true, true), offCaller);
+    }
+}
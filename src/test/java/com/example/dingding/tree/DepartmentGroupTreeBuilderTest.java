@@ -0,0 +1,108 @@
+package com.example.dingding.tree;
+
+import com.example.dingding.entity.DepartmentGroup;
+import com.example.dingding.entity.DepartmentSCD2;
+import com.example.dingding.enums.DepartmentGroupType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 部门统计分组构建器单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class DepartmentGroupTreeBuilderTest {
+
+    private static final Long VIRTUAL_ROOT = -1L;
+
+    private static DepartmentSCD2 dept(long deptId, Long parentId) {
+        return DepartmentSCD2.createNewVersion(deptId, parentId, "部门" + deptId, 1, LocalDate.of(2024, 1, 1));
+    }
+
+    private static List<Long> groupIds(List<DepartmentGroup> groups) {
+        List<Long> ids = new ArrayList<>();
+        for (DepartmentGroup group : groups) {
+            ids.add(group.getGroupId());
+        }
+        return ids;
+    }
+
+    @Test
+    void emitsPreOrderKeepingInputOrderAmongSiblings() {
+        DepartmentSCD2 top = dept(1L, 100L);
+        List<DepartmentSCD2> departments = Arrays.asList(top, dept(3L, 1L), dept(2L, 1L), dept(31L, 3L), dept(21L, 2L));
+
+        List<DepartmentGroup> groups = DepartmentGroupTreeBuilder.build(departments, Collections.singletonList(top), null,
+                DepartmentGroupType.REGION, DepartmentGroupType.DEPARTMENT);
+
+        assertEquals(Arrays.asList(1L, 3L, 31L, 2L, 21L), groupIds(groups));
+    }
+
+    @Test
+    void topLevelUsesGivenParentAndLevelsBeyondTypesAreUntyped() {
+        DepartmentSCD2 top = dept(1L, 100L);
+        List<DepartmentSCD2> departments = Arrays.asList(top, dept(2L, 1L), dept(3L, 2L));
+
+        List<DepartmentGroup> groups = DepartmentGroupTreeBuilder.build(departments, Collections.singletonList(top),
+                VIRTUAL_ROOT, DepartmentGroupType.REGION, DepartmentGroupType.DEPARTMENT);
+
+        assertEquals(VIRTUAL_ROOT, groups.get(0).getParentGroupId());
+        assertEquals(DepartmentGroupType.REGION, groups.get(0).getGroupType());
+        assertEquals(Long.valueOf(1L), groups.get(1).getParentGroupId());
+        assertEquals(DepartmentGroupType.DEPARTMENT, groups.get(1).getGroupType());
+        assertEquals(Long.valueOf(2L), groups.get(2).getParentGroupId());
+        assertNull(groups.get(2).getGroupType());
+    }
+
+    @Test
+    void nestedTopLevelDepartmentIsEmittedOnceAsTopLevel() {
+        DepartmentSCD2 outer = dept(1L, 100L);
+        DepartmentSCD2 inner = dept(2L, 1L);
+        List<DepartmentSCD2> departments = Arrays.asList(outer, inner, dept(3L, 2L));
+
+        List<DepartmentGroup> groups = DepartmentGroupTreeBuilder.build(departments, Arrays.asList(outer, inner),
+                VIRTUAL_ROOT, DepartmentGroupType.REGION);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), groupIds(groups));
+        assertEquals(VIRTUAL_ROOT, groups.get(1).getParentGroupId());
+        assertEquals(DepartmentGroupType.REGION, groups.get(1).getGroupType());
+    }
+
+    @Test
+    void duplicateDepartmentsKeepFirstOccurrence() {
+        DepartmentSCD2 top = dept(1L, 100L);
+        DepartmentSCD2 child = dept(2L, 1L);
+        DepartmentSCD2 duplicate = dept(2L, 1L).setName("重复");
+
+        List<DepartmentGroup> groups = DepartmentGroupTreeBuilder.build(Arrays.asList(top, child, duplicate),
+                Collections.singletonList(top), null, DepartmentGroupType.REGION);
+
+        assertEquals(Arrays.asList(1L, 2L), groupIds(groups));
+        assertEquals("部门2", groups.get(1).getGroupName());
+    }
+
+    @Test
+    void deepChainDoesNotOverflowStack() {
+        int depth = 100_000;
+        List<DepartmentSCD2> departments = new ArrayList<>(depth);
+        departments.add(dept(1L, null));
+        for (long id = 2; id <= depth; id++) {
+            departments.add(dept(id, id - 1));
+        }
+
+        List<DepartmentGroup> groups = DepartmentGroupTreeBuilder.build(departments,
+                Collections.singletonList(departments.get(0)), null, DepartmentGroupType.REGION);
+
+        assertEquals(depth, groups.size());
+        assertEquals(Long.valueOf(depth), groups.get(depth - 1).getGroupId());
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.dingding.tree;
+
+import com.example.dingding.dto.DepartmentTreeNodeDTO;
+import com.example.dingding.entity.DepartmentSCD2;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 组织树单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class OrgTreeTest {
+
+    private static final LocalDate AS_OF = LocalDate.of(2024, 1, 1);
+
+    private static DepartmentSCD2 dept(long deptId, Long parentId) {
+        return DepartmentSCD2.createNewVersion(deptId, parentId, "部门" + deptId, 1, AS_OF);
+    }
+
+    private static List<Long> ids(List<DepartmentSCD2> versions) {
+        return versions.stream().map(DepartmentSCD2::getDeptId).collect(Collectors.toList());
+    }
+
+    /**
+     * 1
+     * ├── 2
+     * │   ├── 4
+     * │   └── 5
+     * │       └── 7
+     * └── 3
+     *     └── 6
+     */
+    private static OrgTree sampleTree() {
+        return OrgTree.build(AS_OF, Arrays.asList(
+                dept(5, 2L), dept(1, null), dept(3, 1L), dept(7, 5L),
+                dept(2, 1L), dept(6, 3L), dept(4, 2L)));
+    }
+
+    @Test
+    void emptyTree() {
+        OrgTree tree = OrgTree.build(AS_OF, Collections.emptyList());
+
+        assertEquals(0, tree.size());
+        assertFalse(tree.contains(1L));
+        assertNull(tree.get(1L));
+        assertTrue(tree.getChildren(1L).isEmpty());
+        assertTrue(tree.getDescendants(1L).isEmpty());
+        assertTrue(tree.getAncestors(1L).isEmpty());
+        assertEquals(0, tree.getDescendantCount(1L));
+        assertEquals(-1, tree.getDepth(1L));
+        assertTrue(tree.toTreeNodes().isEmpty());
+    }
+
+    @Test
+    void singleNode() {
+        OrgTree tree = OrgTree.build(AS_OF, Collections.singletonList(dept(1, null)));
+
+        assertEquals(1, tree.size());
+        assertEquals(0, tree.getDepth(1L));
+        assertTrue(tree.getDescendants(1L).isEmpty());
+        assertTrue(tree.getAncestors(1L).isEmpty());
+        assertFalse(tree.isAncestor(1L, 1L));
+        List<DepartmentTreeNodeDTO> nodes = tree.toTreeNodes();
+        assertEquals(1, nodes.size());
+        assertTrue(nodes.get(0).getChildren().isEmpty());
+    }
+
+    @Test
+    void rootNode() {
+        OrgTree tree = sampleTree();
+
+        assertEquals(0, tree.getDepth(1L));
+        assertTrue(tree.getAncestors(1L).isEmpty());
+        assertEquals(6, tree.getDescendantCount(1L));
+        assertEquals(new HashSet<>(Arrays.asList(2L, 3L)), new HashSet<>(ids(tree.getChildren(1L))));
+        for (long deptId = 2; deptId <= 7; deptId++) {
+            assertTrue(tree.isAncestor(1L, deptId));
+            assertFalse(tree.isAncestor(deptId, 1L));
+        }
+    }
+
+    @Test
+    void descendantsAreInPreOrder() {
+        OrgTree tree = sampleTree();
+
+        // 同级部门按输入顺序排列，下级部门总在其上级之后
+        List<Long> descendants = ids(tree.getDescendants(2L));
+        assertEquals(new HashSet<>(Arrays.asList(4L, 5L, 7L)), new HashSet<>(descendants));
+        assertTrue(descendants.indexOf(5L) < descendants.indexOf(7L));
+        List<DepartmentSCD2> all = tree.getDescendants(1L);
+        List<Long> allIds = ids(all);
+        assertEquals(6, all.size());
+        for (DepartmentSCD2 version : all) {
+            Long parentId = version.getParentId();
+            assertTrue(parentId == 1L || allIds.indexOf(parentId) < allIds.indexOf(version.getDeptId()));
+        }
+        assertEquals(Collections.singletonList(6L), ids(tree.getDescendants(3L)));
+        assertTrue(tree.getDescendants(7L).isEmpty());
+        assertEquals(3, tree.getDescendantCount(2L));
+    }
+
+    @Test
+    void ancestorsFromParentToRoot() {
+        OrgTree tree = sampleTree();
+
+        assertEquals(Arrays.asList(5L, 2L, 1L), ids(tree.getAncestors(7L)));
+        assertEquals(3, tree.getDepth(7L));
+        assertTrue(tree.isAncestor(2L, 7L));
+        assertFalse(tree.isAncestor(3L, 7L));
+        assertFalse(tree.isAncestor(7L, 7L));
+        assertFalse(tree.isAncestor(99L, 7L));
+    }
+
+    @Test
+    void deletedParentMakesSubtreeARoot() {
+        // 部门2已删除，其下级4、5、7挂在不存在的父部门下，成为独立的根
+        OrgTree tree = OrgTree.build(AS_OF, Arrays.asList(
+                dept(1, null), dept(3, 1L), dept(4, 2L), dept(5, 2L), dept(7, 5L)));
+
+        assertEquals(0, tree.getDepth(4L));
+        assertEquals(0, tree.getDepth(5L));
+        assertTrue(tree.getAncestors(5L).isEmpty());
+        assertEquals(Collections.singletonList(5L), ids(tree.getAncestors(7L)));
+        assertFalse(tree.isAncestor(1L, 5L));
+        assertEquals(3, tree.toTreeNodes().size());
+    }
+
+    @Test
+    void cycleNodesAreIsolated() {
+        // 2和3互为父部门（数据异常），4挂在环上
+        OrgTree tree = OrgTree.build(AS_OF, Arrays.asList(
+                dept(1, null), dept(2, 3L), dept(3, 2L), dept(4, 3L)));
+
+        assertEquals(4, tree.size());
+        assertTrue(tree.getAncestors(2L).isEmpty());
+        assertTrue(tree.getAncestors(4L).isEmpty());
+        assertTrue(tree.getDescendants(3L).isEmpty());
+        assertFalse(tree.isAncestor(3L, 4L));
+        assertEquals(1, tree.toTreeNodes().size());
+    }
+
+    @Test
+    void selfParentIsRoot() {
+        OrgTree tree = OrgTree.build(AS_OF, Collections.singletonList(dept(1, 1L)));
+
+        assertEquals(0, tree.getDepth(1L));
+        assertTrue(tree.getAncestors(1L).isEmpty());
+    }
+
+    @Test
+    void deepChainDoesNotOverflowStack() {
+        int depth = 100_000;
+        DepartmentSCD2[] versions = new DepartmentSCD2[depth];
+        for (int i = 0; i < depth; i++) {
+            versions[i] = dept(i + 1, i == 0 ? null : (long) i);
+        }
+        OrgTree tree = OrgTree.build(AS_OF, Arrays.asList(versions));
+
+        assertEquals(depth - 1, tree.getDepth((long) depth));
+        assertEquals(depth - 1, tree.getDescendantCount(1L));
+        assertTrue(tree.isAncestor(1L, (long) depth));
+    }
+
+    @Test
+    void findByNamesSortedByDeptId() {
+        OrgTree tree = sampleTree();
+
+        assertEquals(Arrays.asList(3L, 6L), ids(tree.findByNames(Arrays.asList("部门6", "部门3", "不存在"))));
+        assertTrue(tree.findByNames(Collections.emptyList()).isEmpty());
+    }
+}
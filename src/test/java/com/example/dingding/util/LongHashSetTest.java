@@ -0,0 +1,96 @@
+package com.example.dingding.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * long哈希集合单元测试
+ *
+ * @author system
+ * @version 1.0.0
+ */
+class LongHashSetTest {
+
+    @Test
+    void emptySet() {
+        LongHashSet set = new LongHashSet(0);
+
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0L));
+        assertFalse(set.contains(-1L));
+    }
+
+    @Test
+    void addAndContains() {
+        LongHashSet set = new LongHashSet(4);
+
+        assertTrue(set.add(0L));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertTrue(set.add(Long.MAX_VALUE));
+        assertTrue(set.add(-1L));
+        assertFalse(set.add(0L));
+
+        assertEquals(4, set.size());
+        assertTrue(set.contains(0L));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertTrue(set.contains(-1L));
+        assertFalse(set.contains(1L));
+    }
+
+    @Test
+    void growsBeyondExpectedSize() {
+        LongHashSet set = new LongHashSet(1);
+        for (long key = 1; key <= 10_000; key++) {
+            assertTrue(set.add(key * 1000));
+        }
+
+        assertEquals(10_000, set.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertTrue(set.contains(key * 1000));
+            assertFalse(set.contains(key * 1000 + 1));
+        }
+    }
+
+    @Test
+    void collidingKeysAreKeptApart() {
+        // 初始容量为8时，低3位相同的键经过打散后仍可能落入同一槽位，需要线性探测区分
+        LongHashSet set = new LongHashSet(4);
+        long[] keys = new long[64];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) i << 32) | 7L;
+            assertTrue(set.add(keys[i]));
+        }
+
+        assertEquals(keys.length, set.size());
+        for (long key : keys) {
+            assertTrue(set.contains(key));
+            assertFalse(set.add(key));
+        }
+        assertFalse(set.contains(7L | (1L << 40)));
+    }
+
+    @Test
+    void matchesJdkHashSet() {
+        Random random = new Random(42);
+        LongHashSet set = new LongHashSet(16);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            // 取值范围较小，保证有大量重复键
+            long key = random.nextInt(20_000) - 10_000;
+            assertEquals(expected.add(key), set.add(key));
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long key = -10_000; key < 10_000; key++) {
+            assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+}